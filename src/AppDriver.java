@@ -21,7 +21,12 @@ public class AppDriver {
 
     public static MainPanel panel;
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            //runs headless command instead of window
+            runCommand(new Options(args));
+            return;
+        }
         panel = new MainPanel();
         frame = new JFrame("Automata");
         frame.setIconImage(new ImageIcon("resources/cell.png").getImage());
@@ -34,10 +39,12 @@ public class AppDriver {
         frame.setVisible(true);
         frame.setBackground(Color.black);
 
-        //Exports Database on Close
+        //Exports Database and Checkpoint on Close
         frame.addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent e) {
                 panel.getDatabase().exportDatabase();
+                panel.saveCheckpoint();
+                panel.closeRecorder();
                 frame.dispose();
                 System.exit(0);
             }
@@ -50,4 +57,104 @@ public class AppDriver {
         //    }
         //});
     }
+
+    /** Runs a headless command such as
+     *  "export --out run.gif --generations 200".
+     *
+     * @param o parsed command line
+     */
+    public static void runCommand(Options o) throws Exception {
+        switch (o.getCommand()) {
+            case "export":
+                Exporter.run(o);
+                break;
+            case "census":
+                runCensus(o);
+                break;
+            case "search":
+                SoupSearch.run(o);
+                break;
+            case "benchmark":
+                Benchmark.run(o);
+                break;
+            case "distribute":
+                Coordinator.run(o);
+                break;
+            case "worker":
+                Worker.run(o);
+                break;
+            case "serve":
+                StreamServer.run(o);
+                break;
+            case "view":
+                StreamViewer.run(o);
+                break;
+            case "multi":
+                Scheduler.run(o);
+                break;
+            case "universe":
+                TiledGrid.run(o);
+                break;
+            case "ltl":
+                LtlEngine.run(o);
+                break;
+            case "lenia":
+                Lenia.run(o);
+                break;
+            case "elementary":
+                Elementary.run(o);
+                break;
+            case "record":
+                TimeSeriesRecorder.run(o);
+                break;
+            case "explore":
+                RuleExplorer.run(o);
+                break;
+            case "locate":
+                Locator.run(o);
+                break;
+            default:
+                System.out.println("Commands: export, census, search, benchmark, distribute, worker, serve, view, multi, universe, ltl, lenia, elementary, record, explore, locate");
+        }
+    }
+
+    /** Steps a grid for --generations and prints its census.
+     *
+     * @param o parsed command line
+     */
+    private static void runCensus(Options o) {
+        PackedGrid grid = loadGrid(o);
+        Rule rule = Rule.parse(o.getString("rule", Rule.CONWAY.toString()));
+        boolean wrapEnabled = !o.has("nowrap");
+        for (int i = 0; i < o.getInt("generations", 0); i++) {
+            grid.step(rule, wrapEnabled);
+        }
+        long start = System.nanoTime();
+        Census census = new Census(grid, wrapEnabled);
+        System.out.println(census + " (" + (System.nanoTime() - start) / 1000000 + "ms)");
+    }
+
+    /** Loads the starting grid for a headless command, either
+     *  a Database entry (--pattern index or name) or a random
+     *  seed (--rows, --columns, --density, --seed).
+     *
+     * @param o parsed command line
+     * @return first generation
+     */
+    public static PackedGrid loadGrid(Options o) {
+        if (o.has("pattern")) {
+            Database database = new Database();
+            String pattern = o.getString("pattern", "");
+            for (int i = 0; i < database.databaseSize(); i++) {
+                MatrixData m = database.get(i);
+                if (m.getName().equals(pattern) || String.valueOf(i).equals(pattern)) {
+                    return m.toPackedGrid();
+                }
+            }
+            throw new IllegalArgumentException("No pattern in Database: " + pattern);
+        }
+        PackedGrid grid = new PackedGrid(o.getInt("rows", 100), o.getInt("columns", 100));
+        new Seeder(o.getLong("seed", Seeder.newSeed()), o.getDouble("density", 0.30)).fillParallel(grid);
+        return grid;
+    }
 }
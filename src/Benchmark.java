@@ -0,0 +1,186 @@
+/** Benchmark class times the stepping paths
+ *  against each other on random soups of
+ *  several sizes and densities, or with
+ *  --topologies, stepping from the padded buffer
+ *  against the branching path that checks every
+ *  word for edges, on small grids where edges
+ *  dominate, or with --lut, the per-cell reference
+ *  against the block lookup table and scalar kernels.
+ *
+ * @author RMizelle
+ */
+public class Benchmark {
+    /** Prints cells per second of each kernel.
+     *
+     * @param o options: --sizes 256,1024,4096 --densities 0.1,0.3,0.5
+     *          --generations (per batch), --rule, --nowrap, --topologies, --lut
+     */
+    public static void run(Options o) {
+        Rule rule = Rule.parse(o.getString("rule", Rule.CONWAY.toString()));
+        if (o.has("topologies")) {
+            runTopologies(o, rule);
+            return;
+        }
+        if (o.has("lut")) {
+            runLut(o, rule);
+            return;
+        }
+        boolean wrapEnabled = !o.has("nowrap");
+        int numGenerations = o.getInt("generations", 10);
+        StepKernel best = StepKernel.best();
+        System.out.println("Kernel: " + (best == StepKernel.SCALAR ? "scalar only" : best.getClass().getName()));
+        System.out.printf("%8s %8s %16s %16s %8s%n", "size", "density", "scalar cells/s", "best cells/s", "speedup");
+        for (String size : o.getString("sizes", "256,1024,4096").split(",")) {
+            for (String density : o.getString("densities", "0.1,0.3,0.5").split(",")) {
+                int n = Integer.parseInt(size.trim());
+                PackedGrid grid = new PackedGrid(n, n);
+                new Seeder(1, Double.parseDouble(density.trim())).fill(grid);
+                double scalar = time(grid.copy(), StepKernel.SCALAR, rule, wrapEnabled, numGenerations);
+                double fast = time(grid.copy(), best, rule, wrapEnabled, numGenerations);
+                System.out.printf("%8d %8s %16.3e %16.3e %7.2fx%n", n, density.trim(), scalar, fast, fast / scalar);
+            }
+        }
+    }
+
+    /** Prints cells per second of the scalar kernel stepping
+     *  from the padded buffer and of the branching path,
+     *  PackedGrid.stepRowsUnpadded, on small grids, where edges
+     *  dominate, checking the two agree. The branching path
+     *  only joins edges as a torus or not at all.
+     */
+    private static void runTopologies(Options o, Rule rule) {
+        int numGenerations = o.getInt("generations", 10);
+        double density = o.getDouble("density", 0.3);
+        System.out.printf("%8s %14s %16s %16s %8s%n", "size", "topology", "branching/s", "padded/s", "speedup");
+        for (String size : o.getString("sizes", "8,16,32,64,100").split(",")) {
+            int n = Integer.parseInt(size.trim());
+            for (Topology topology : new Topology[] {Topology.DEAD, Topology.TORUS}) {
+                PackedGrid grid = new PackedGrid(n, n);
+                new Seeder(1, density).fill(grid);
+                PackedGrid padded = grid.copy();
+                padded.setKernel(StepKernel.SCALAR);
+                measureUnpadded(grid.copy(), rule, topology, numGenerations);
+                double branching = measureUnpadded(grid.copy(), rule, topology, numGenerations);
+                measure(padded, rule, topology, numGenerations);
+                double fast = measure(padded, rule, topology, numGenerations);
+                //compares one more step of the same start
+                PackedGrid check = grid.copy();
+                check.setKernel(StepKernel.SCALAR);
+                check.step(rule, topology);
+                long[] next = new long[grid.getWords().length];
+                grid.stepRowsUnpadded(grid.getWords(), next, 0, n, rule, topology.wrapsColumns());
+                if (!java.util.Arrays.equals(check.getWords(), next)) {
+                    System.out.println("ERROR: Padded stepping differs from branching path");
+                }
+                System.out.printf("%8d %14s %16.3e %16.3e %7.2fx%n", n, topology, branching, fast, fast / branching);
+            }
+        }
+    }
+
+    /** Steps with the branching path in batches of numGenerations
+     *  for half a second.
+     */
+    private static double measureUnpadded(PackedGrid grid, Rule rule, Topology topology, int numGenerations) {
+        long[] words = grid.getWords();
+        long[] next = new long[words.length];
+        long cells = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < numGenerations; i++) {
+                grid.stepRowsUnpadded(words, next, 0, grid.getNumRows(), rule, topology.wrapsColumns());
+                long[] temp = words;
+                words = next;
+                next = temp;
+            }
+            cells += (long) grid.getNumRows() * grid.getNumColumns() * numGenerations;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < 500000000L);
+        return cells / (elapsed / 1e9);
+    }
+
+    /** Prints cells per second of the per-cell reference, the
+     *  block lookup table kernel and the scalar kernel across
+     *  densities, checking the kernels agree.
+     */
+    private static void runLut(Options o, Rule rule) {
+        Topology topology = Topology.of(!o.has("nowrap"));
+        int numGenerations = o.getInt("generations", 10);
+        StepKernel lut = new LutKernel();
+        System.out.printf("%8s %8s %16s %16s %16s %8s%n", "size", "density", "reference/s", "lut/s", "scalar/s", "speedup");
+        for (String size : o.getString("sizes", "64,256,1024").split(",")) {
+            for (String density : o.getString("densities", "0.1,0.3,0.5").split(",")) {
+                int n = Integer.parseInt(size.trim());
+                PackedGrid grid = new PackedGrid(n, n);
+                new Seeder(1, Double.parseDouble(density.trim())).fill(grid);
+                CellMatrix matrix = new CellMatrix(grid.copy());
+                measureReference(matrix, rule, topology, numGenerations);
+                double reference = measureReference(matrix, rule, topology, numGenerations);
+                PackedGrid table = grid.copy();
+                PackedGrid scalar = grid.copy();
+                double fast = time(table, lut, rule, topology.wrapsColumns(), numGenerations);
+                double slow = time(scalar, StepKernel.SCALAR, rule, topology.wrapsColumns(), numGenerations);
+                //batches differ in count, so compares one more step of the same start
+                table = grid.copy();
+                scalar = grid.copy();
+                table.setKernel(lut);
+                scalar.setKernel(StepKernel.SCALAR);
+                table.step(rule, topology);
+                scalar.step(rule, topology);
+                if (!java.util.Arrays.equals(table.getWords(), scalar.getWords())) {
+                    System.out.println("ERROR: Lookup table kernel differs from scalar kernel");
+                }
+                System.out.printf("%8d %8s %16.3e %16.3e %16.3e %7.2fx%n", n, density.trim(), reference, fast, slow,
+                        fast / reference);
+            }
+        }
+    }
+
+    /** Steps cell by cell, as MainPanel once did, for half a second. */
+    private static double measureReference(CellMatrix matrix, Rule rule, Topology topology, int numGenerations) {
+        long cells = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < numGenerations; i++) {
+                CellMatrix next = new CellMatrix(matrix.getNumRows(), matrix.getNumColumns());
+                for (int x = 0; x < matrix.getNumRows(); x++) {
+                    for (int y = 0; y < matrix.getNumColumns(); y++) {
+                        int numLiving = matrix.numLivingNeighbors(x, y, topology);
+                        if (matrix.isAlive(x, y) ? rule.survives(numLiving) : rule.isBorn(numLiving)) {
+                            next.revive(x, y);
+                        }
+                    }
+                }
+                matrix = next;
+            }
+            cells += (long) matrix.getNumRows() * matrix.getNumColumns() * numGenerations;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < 500000000L);
+        return cells / (elapsed / 1e9);
+    }
+
+    /** Returns cells per second of a kernel, warming
+     *  up and measuring for at least half a second each.
+     */
+    private static double time(PackedGrid grid, StepKernel kernel, Rule rule, boolean wrapEnabled, int numGenerations) {
+        grid.setKernel(kernel);
+        measure(grid, rule, Topology.of(wrapEnabled), numGenerations);
+        return measure(grid, rule, Topology.of(wrapEnabled), numGenerations);
+    }
+
+    /** Steps in batches of numGenerations for half a second. */
+    private static double measure(PackedGrid grid, Rule rule, Topology topology, int numGenerations) {
+        long cells = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < numGenerations; i++) {
+                grid.step(rule, topology);
+            }
+            cells += (long) grid.getNumRows() * grid.getNumColumns() * numGenerations;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < 500000000L);
+        return cells / (elapsed / 1e9);
+    }
+}
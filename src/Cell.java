@@ -1,88 +1,48 @@
 import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.Shape;
-import java.awt.geom.Rectangle2D;
 
-/** Cell Class renders a cell
- *  that is either alive or dead.
+/** Cell Class determines how a cell
+ *  that is either alive or dead is rendered.
  *
  * @author RMizelle
  */
 public class Cell {
-    private Rectangle2D gridCell;
-    private boolean alive;
     //display variables
     public static boolean gridEnabled = true;
-    private boolean spotlit = false;
 
-    /** 4-arg constructor that instantiates a Cell
-     *
-     * @param alive mortality of cell
-     * @param pX position X
-     * @param pY position Y
-     * @param size side lengths
-     */
-    public Cell(boolean alive, double pX, double pY, double size) {
-        this.alive = alive;
-        gridCell = new Rectangle2D.Double(pX, pY, size, size);
-    }
+    //precomputed colors, indexed by alive + 2 * spotlit
+    private static final int[] COLORS = {
+            rgb(false, false), rgb(true, false), rgb(false, true), rgb(true, true)};
 
-    /** 3-arg constructor that instantiates a default Cell
-     *
-     * @param pX position X
-     * @param pY position Y
-     * @param size side lengths
-     */
-    public Cell(double pX, double pY, double size) {
-        alive = false;
-        gridCell = new Rectangle2D.Double(pX, pY, size, size);
+    /** Cell is not instantiated, cells are stored packed. */
+    private Cell() {
     }
 
-    /** Returns Mortality of Cell
+    /** Returns color of a cell depending on configuration.
      *
-     * @return true if Cell is living, false otherwise
+     * @param alive mortality of cell
+     * @param spotlit true if highlighted
+     * @return packed RGB color
      */
-    public boolean isAlive() {
-        return alive;
-    }
-
-    /** Sets alive to false */
-    public void kill() {
-        alive = false;
+    public static int color(boolean alive, boolean spotlit) {
+        return COLORS[(alive ? 1 : 0) + (spotlit ? 2 : 0)];
     }
 
-    /** Sets alive to true */
-    public void revive() {
-        alive = true;
-    }
-
-    /** Inverses mortality status. */
-    public void flip() {
-        alive = !alive;
-    }
-
-    /** Spotlights cell */
-    public void spotlight() {
-        spotlit = true;
-    }
-
-    /** Removes spotlight from cell */
-    public void unspotlight() {
-        spotlit = false;
-    }
-
-    /** Accessor method for gridCell
+    /** Returns color of a block of cells when zoomed out,
+     *  blending dead and living colors by density.
      *
-     * @return gridCell shape
+     * @param density fraction of living cells in block
+     * @return packed RGB color
      */
-    public Shape getGridCell() {
-        return gridCell;
+    public static int densityColor(double density) {
+        int dead = COLORS[0] & 0xFF;
+        int alive = COLORS[1] & 0xFF;
+        //square root keeps sparse blocks visible
+        int v = (int) (dead + (alive - dead) * Math.sqrt(density));
+        return v << 16 | v << 8 | v;
     }
 
-    /** Draws cell depending on configuration */
-    public void drawCell(Graphics g) {
-        Graphics2D g2 = (Graphics2D) g;
+    /** Computes the color of a cell. */
+    private static int rgb(boolean alive, boolean spotlit) {
         //generates respective color
         float[] hsbVal = Color.RGBtoHSB(200, 200, 200, null);
         //additionally brightness for dead cells
@@ -97,13 +57,6 @@ public class Cell {
         if (spotlit) {
             hsbVal[2] = (float) (hsbVal[2] * (1.25 + brightness));
         }
-        g2.setColor(Color.getHSBColor(hsbVal[0], hsbVal[1], hsbVal[2]));
-        //fills gridCell
-        g2.fill(gridCell);
-        //adds border
-        if (gridEnabled) {
-            g2.setColor(Color.black);
-            g2.draw(gridCell);
-        }
+        return Color.HSBtoRGB(hsbVal[0], hsbVal[1], hsbVal[2]) & 0xFFFFFF;
     }
 }
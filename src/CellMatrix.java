@@ -1,157 +1,134 @@
 import java.awt.Graphics;
-import java.util.ArrayList;
 
 /** CellMatrix class generates and
- *  modifies a 2D array of Cell
- *  Objects that can generate and modify.
+ *  modifies a matrix of cells, stored
+ *  packed in a PackedGrid, that can
+ *  generate and modify.
  *
  * @author RMizelle
  */
 public class CellMatrix {
-    private Cell[][] matrix;
-    private int size;
+    private final PackedGrid grid;
+    //highlighted cell, -1 if none
+    private int spotX = -1;
+    private int spotY = -1;
 
-    /** 2-arg constructor instantiates a 2D matrix
-     *  of Cell objects of size numRows by Num Columns.
+    /** 2-arg constructor instantiates a matrix
+     *  of dead cells of size numRows by Num Columns.
      *
      * @param numRows Matrix length
      * @param numColumns Matrix height
      */
     public CellMatrix(int numRows, int numColumns) {
-        matrix = new Cell[numRows][numColumns];
-        double size = ((double) AppDriver.WIDTH) / numRows;
-        for (int x = 0; x < numRows; x++) {
-            for (int y = 0; y < numColumns; y++) {
-                matrix[x][y] = new Cell(x * size, y * size, size);
-            }
-        }
+        grid = new PackedGrid(numRows, numColumns);
+    }
+
+    /** 1-arg constructor wraps an existing grid.
+     *
+     * @param grid cell states, not copied
+     */
+    public CellMatrix(PackedGrid grid) {
+        this.grid = grid;
     }
 
-    /** Accessor Method for Cell.
+    /** Accessor Method for Grid
+     *
+     * @return packed cell states
+     */
+    public PackedGrid getGrid() {
+        return grid;
+    }
+
+    /** Returns Mortality of Cell
      *
      * @param pX position x
      * @param pY position y
-     * @return Cell at position
+     * @return true if Cell is living, false otherwise
+     */
+    public boolean isAlive(int pX, int pY) {
+        return grid.get(pX, pY);
+    }
+
+    /** Sets Cell alive */
+    public void revive(int pX, int pY) {
+        grid.set(pX, pY, true);
+    }
+
+    /** Sets Cell dead */
+    public void kill(int pX, int pY) {
+        grid.set(pX, pY, false);
+    }
+
+    /** Inverses mortality status of Cell. */
+    public void flip(int pX, int pY) {
+        grid.set(pX, pY, !grid.get(pX, pY));
+    }
+
+    /** Accessor Method for number of rows
+     *
+     * @return Matrix length
+     */
+    public int getNumRows() {
+        return grid.getNumRows();
+    }
+
+    /** Accessor Method for number of columns
+     *
+     * @return Matrix height
      */
-    public Cell getCell(int pX, int pY) {
-        return matrix[pX][pY];
+    public int getNumColumns() {
+        return grid.getNumColumns();
     }
 
     /** Counts the number of neighbors that are living.
      *
      * @param pX position X
      * @param pY position Y
+     * @param wrapEnabled true if edges wrap around
      * @return number of living neighbors
      */
     public int numLivingNeighbors(int pX, int pY, boolean wrapEnabled) {
-        //sets bounds for X
-        int startX = pX - 1;
-        int endX = pX + 1;
-        //fixes conditions for end cases
-        if (startX < 0) startX++;
-        if (endX >= matrix.length) endX--;
-
-        //sets bounds for Y
-        int startY = pY - 1;
-        int endY = pY + 1;
-        //fixes conditions for end cases
-        if (startY < 0) startY++;
-        if (endY >= matrix[0].length) endY--;
+        return numLivingNeighbors(pX, pY, Topology.of(wrapEnabled));
+    }
 
-        //resets count
+    /** Counts the number of neighbors that are living, with
+     *  edges joined by a topology. Used as the per-cell reference
+     *  for PackedGrid.step.
+     *
+     * @param pX position X
+     * @param pY position Y
+     * @param topology how edges are joined
+     * @return number of living neighbors
+     */
+    public int numLivingNeighbors(int pX, int pY, Topology topology) {
         int num = 0;
-        //loops through surrounding grid, horizontally
-        for (int x = startX; x <= endX; x++) {
-            //loops through surrounding grid, vertically
-            for(int y = startY; y <= endY; y++) {
+        for (int dX = -1; dX <= 1; dX++) {
+            for (int dY = -1; dY <= 1; dY++) {
                 //skips over compared cell
-                if(x == pX && y == pY) {
-                    if (y + 1 < matrix[0].length) {
-                        //if inside matrix, increment
-                        y++;
-                    }
-                    else {
-                        //else skip over
-                        continue;
-                    }
-                }
-                if(matrix[x][y].isAlive()) {
-                    //if alive, increment
-                    num++;
-                }
-            }
-        }
-
-        if(wrapEnabled) {
-            int sideL = 0;
-            int sideR = matrix.length - 1;
-            int sideT = 0;
-            int sideB = matrix[0].length - 1;
-
-            if (pX == sideL) {
-                //if left side
-                if (pY == sideT) {
-                    //if top left corner
-                    if (matrix[sideR][sideB].isAlive()) {
-                        //if bottom right corner alive, increment
-                        num++;
-                    }
-                }
-                if (pY == sideB) {
-                    //if bottom left corner
-                    if(matrix[sideR][sideT].isAlive()) {
-                        //if top right corner alive, increment
-                        num++;
-                    }
+                if (dX == 0 && dY == 0) {
+                    continue;
                 }
-                for (int y = startY; y <= endY; y++) {
-                    //loops through opposite side
-                    if (matrix[sideR][y].isAlive()) {
-                        //if alive, increment
-                        num++;
-                    }
-                }
-            }
-            else if (pX == sideR) {
-                //if right side
-                if (pY == sideT) {
-                    //if top right corner
-                    if (matrix[sideL][sideB].isAlive()) {
-                        //if bottom left corner alive, increment
-                        num++;
-                    }
-                }
-                if (pY == sideB) {
-                    //if bottom right corner
-                    if(matrix[sideL][sideT].isAlive()) {
-                        //if top left corner alive, increment
-                        num++;
+                int x = pX + dX;
+                int y = pY + dY;
+                //joins sides
+                if (y < 0 || y >= getNumColumns()) {
+                    if (!topology.wrapsColumns()) {
+                        continue;
                     }
+                    y = Math.floorMod(y, getNumColumns());
                 }
-                for (int y = startY; y <= endY; y++) {
-                    //loops through opposite side
-                    if (matrix[sideL][y].isAlive()) {
-                        //if alive, increment
-                        num++;
+                //joins top and bottom, mirrored for a Klein bottle
+                if (x < 0 || x >= getNumRows()) {
+                    if (!topology.wrapsRows()) {
+                        continue;
                     }
-                }
-            }
-            if (pY == sideT) {
-                for (int x = startX; x <= endX; x++) {
-                    //loops through opposite side
-                    if (matrix[x][sideB].isAlive()) {
-                        //if alive, increment
-                        num++;
+                    x = Math.floorMod(x, getNumRows());
+                    if (topology.reversesRows()) {
+                        y = getNumColumns() - 1 - y;
                     }
                 }
-            }
-            else if (pY == sideB) {
-                for (int x = startX; x <= endX; x++) {
-                    //loops through opposite side
-                    if (matrix[x][sideT].isAlive()) {
-                        //if alive, increment
-                        num++;
-                    }
+                if (isAlive(x, y)) {
+                    num++;
                 }
             }
         }
@@ -159,83 +136,85 @@ public class CellMatrix {
     }
 
     /** Passes through paintComponent and
-     *  draws Cell Matrix.
+     *  draws Cell Matrix through the viewport.
      *
      * @param g graphics
+     * @param view visible region and zoom
      */
-    public void drawMatrix(Graphics g) {
-        for (Cell[] row : matrix) {
-            for (Cell c : row) {
-                c.drawCell(g);
-            }
-        }
+    public void drawMatrix(Graphics g, Viewport view) {
+        view.render(g, grid, spotX, spotY);
+    }
+
+    /** Draws Cell Matrix through the viewport, reading the
+     *  density of zoomed out blocks from the tracker.
+     *
+     * @param g graphics
+     * @param view visible region and zoom
+     * @param tracker tile counts of the grid, kept up to date
+     */
+    public void drawMatrix(Graphics g, Viewport view, LiveTracker tracker) {
+        view.render(g, grid, tracker, spotX, spotY);
+    }
+
+    /** Spotlights Cell at position
+     *
+     * @param pX position x
+     * @param pY position y
+     */
+    public void spotlight(int pX, int pY) {
+        spotX = pX;
+        spotY = pY;
     }
 
     /** removes spotlight from all Cells
      *
      */
     public void clearSpotlight() {
-        for (Cell[] row : matrix) {
-            for(Cell c : row) {
-                c.unspotlight();
-            }
-        }
+        spotX = -1;
+        spotY = -1;
     }
 
     /** Finds Cell at given mouse location.
      *
      * @param mouseX mouse horizontal position
      * @param mouseY mouse vertical position
-     * @return Cell at mouseX, MouseY, null if not found
+     * @param view visible region and zoom
+     * @return position [x,y] at mouseX, MouseY, null if not found
      */
-    public Cell findCellAt(int mouseX, int mouseY) {
-        for (Cell[] row : matrix) {
-            for (Cell c : row) {
-                if (c.getGridCell().contains(mouseX, mouseY)) {
-                    return c;
-                }
-            }
+    public int[] findCellAt(int mouseX, int mouseY, Viewport view) {
+        int x = view.toCellX(mouseX);
+        int y = view.toCellY(mouseY);
+        if (x < 0 || y < 0 || x >= getNumRows() || y >= getNumColumns()) {
+            return null;
         }
-        return null;
+        return new int[]{x, y};
     }
 
     /** Randomly generates starter seed with given
-     *  probability.
+     *  probability. The same seed and probability
+     *  always revive the same cells.
      *
+     * @param seed 64-bit seed, see Seeder
      * @param probability % chance for cell to be alive
      */
-    public void randomSeed(double probability) {
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[0].length; y++) {
-                if (Math.random() < probability) {
-                    matrix[x][y].revive();
-                }
-            }
-        }
+    public void randomSeed(long seed, double probability) {
+        new Seeder(seed, probability).overlay(grid);
     }
 
     /** Kills all cells. */
     public void genocide() {
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[0].length; y++) {
-                matrix[x][y].kill();
-            }
-        }
+        grid.clear();
     }
 
     /** String representation of CellMatrix
      * @return (W*H)[x,y][x,y]...[x,y]
      */
     public String toString() {
-        String temp = "(" + matrix.length + "x" + matrix[0].length + ")";
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[0].length; y++) {
-                if(matrix[x][y].isAlive()) {
-                    temp += "[" + x + "," + y + "]";
-                }
-            }
+        StringBuilder temp = new StringBuilder("(" + getNumRows() + "x" + getNumColumns() + ")");
+        for (long cell : toMatrixData().getPackedCells()) {
+            temp.append("[").append((int) (cell >> 32)).append(",").append((int) cell).append("]");
         }
-        return temp;
+        return temp.toString();
     }
 
     /** Converts Matrix to MatrixData
@@ -243,16 +222,16 @@ public class CellMatrix {
      * @return MatrixData representation of CellMatrix
      */
     public MatrixData toMatrixData() {
-        int[] size = {matrix.length, matrix[0].length};
-        ArrayList<int[]> cells = new ArrayList<>();
-        for (int x = 0; x < matrix.length; x++) {
-            for (int y = 0; y < matrix[0].length; y++) {
-                if(matrix[x][y].isAlive()) {
-                    int[] cell = {x, y};
-                    cells.add(cell);
-                }
-            }
-        }
-        return new MatrixData(size, cells);
+        return new MatrixData(grid);
+    }
+
+    /** Converts Matrix to MatrixData cropped to a bounding box,
+     *  reading only the cells within it.
+     *
+     * @param bounds {minX, minY, maxX, maxY} holding every living cell, null if empty
+     * @return MatrixData of the box, offset to where it lies
+     */
+    public MatrixData toMatrixData(int[] bounds) {
+        return bounds == null ? toMatrixData() : new MatrixData(grid, bounds);
     }
 }
@@ -0,0 +1,523 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/** Census class labels the connected objects of
+ *  a PackedGrid (8-neighborhood, across the edges
+ *  its topology joins, mirrored for a Klein bottle)
+ *  and classifies each one against a
+ *  table of known still lifes, oscillators and
+ *  spaceships.
+ *
+ *  Labeling works on runs of living cells rather
+ *  than cells: runs are extracted and merged within
+ *  row stripes in parallel by a union-find, then
+ *  stripe boundaries are merged.
+ *
+ * @author RMizelle
+ */
+public class Census {
+    //name given to objects missing from the table
+    public static final String UNKNOWN = "unknown";
+    //objects larger than this are not classified
+    private static final int MAX_CLASSIFIED_CELLS = 256;
+    //rows per parallel stripe
+    private static final int STRIPE_ROWS = 256;
+    //smaller grids are labeled on the calling thread
+    private static final int PARALLEL_WORDS = 1 << 16;
+    //known objects by canonical hash, built on first use
+    private static volatile HashMap<Long, MatrixData> known;
+
+    private final PackedGrid grid;
+    private final Topology topology;
+    //runs of row x are runStart/runEnd[rowOffset[x]..rowOffset[x + 1])
+    private final int[] rowOffset;
+    private int[] runStart;
+    private int[] runEnd;
+    private int[] parent;
+    private final int numObjects;
+    private final TreeMap<String, Long> counts;
+    private final ArrayList<MatrixData> unknownObjects;
+    private final TreeMap<String, MatrixData> samples;
+
+    /** 2-arg constructor takes the census of a grid.
+     *
+     * @param grid grid to be labeled, not modified
+     * @param wrapEnabled true if edges wrap around
+     */
+    public Census(PackedGrid grid, boolean wrapEnabled) {
+        this(grid, Topology.of(wrapEnabled), true);
+    }
+
+    /** 2-arg constructor takes the census of a grid whose
+     *  edges are joined as topology says.
+     *
+     * @param grid grid to be labeled, not modified
+     * @param topology how edges are joined
+     */
+    public Census(PackedGrid grid, Topology topology) {
+        this(grid, topology, true);
+    }
+
+    /** 3-arg constructor takes the census of a grid, leaving
+     *  every object unknown if classify is false.
+     */
+    private Census(PackedGrid grid, Topology topology, boolean classify) {
+        if (classify) {
+            //builds table before classifying in parallel
+            knownObjects();
+        }
+        this.grid = grid;
+        this.topology = topology;
+        rowOffset = new int[grid.getNumRows() + 1];
+        extractRuns();
+        label();
+        //groups runs by object
+        int numRuns = runStart.length;
+        int[] objectOf = new int[numRuns];
+        int[] firstRun = new int[numRuns + 1];
+        int num = 0;
+        for (int i = 0; i < numRuns; i++) {
+            if (parent[i] == i) {
+                objectOf[i] = num++;
+            }
+            else {
+                objectOf[i] = objectOf[parent[i]];
+            }
+            firstRun[objectOf[i] + 1]++;
+        }
+        numObjects = num;
+        for (int i = 0; i < num; i++) {
+            firstRun[i + 1] += firstRun[i];
+        }
+        int[] runsByObject = new int[numRuns];
+        int[] fill = firstRun.clone();
+        for (int i = 0; i < numRuns; i++) {
+            runsByObject[fill[objectOf[i]]++] = i;
+        }
+        //classifies objects in parallel
+        ConcurrentHashMap<String, LongAdder> tally = new ConcurrentHashMap<>();
+        List<MatrixData> unknown = java.util.Collections.synchronizedList(new ArrayList<>());
+        ConcurrentHashMap<String, MatrixData> sampled = new ConcurrentHashMap<>();
+        range(num).forEach(o -> {
+            MatrixData m = toMatrixData(runsByObject, firstRun[o], firstRun[o + 1]);
+            String name = m == null || !classify ? null : classify(m);
+            if (name == null) {
+                name = UNKNOWN;
+                if (m != null) {
+                    unknown.add(m);
+                }
+            }
+            else {
+                sampled.putIfAbsent(name, m);
+            }
+            tally.computeIfAbsent(name, k -> new LongAdder()).increment();
+        });
+        counts = new TreeMap<>();
+        tally.forEach((k, v) -> counts.put(k, v.sum()));
+        unknownObjects = new ArrayList<>(unknown);
+        samples = new TreeMap<>(sampled);
+        //releases labeling buffers
+        runStart = null;
+        runEnd = null;
+        parent = null;
+    }
+
+    /** Accessor Method for number of objects
+     *
+     * @return number of connected objects
+     */
+    public int getNumObjects() {
+        return numObjects;
+    }
+
+    /** Accessor Method for counts
+     *
+     * @return number of objects by name, unclassified objects as UNKNOWN
+     */
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    /** Accessor Method for unknown objects
+     *
+     * @return unclassified objects of at most 256 cells, normalized to [0,0]
+     */
+    public List<MatrixData> getUnknownObjects() {
+        return unknownObjects;
+    }
+
+    /** Accessor Method for samples
+     *
+     * @return one classified object of each name, normalized to [0,0]
+     */
+    public Map<String, MatrixData> getSamples() {
+        return samples;
+    }
+
+    /** Returns a stream over [0, n), parallel for large grids. */
+    private IntStream range(int n) {
+        IntStream temp = IntStream.range(0, n);
+        return (long) grid.getNumRows() * grid.getWordsPerRow() >= PARALLEL_WORDS ? temp.parallel() : temp;
+    }
+
+    /** Extracts runs of living cells from every row, counting
+     *  then filling each stripe in parallel.
+     */
+    private void extractRuns() {
+        int numRows = grid.getNumRows();
+        int numStripes = (numRows + STRIPE_ROWS - 1) / STRIPE_ROWS;
+        range(numStripes).forEach(s -> {
+            for (int x = s * STRIPE_ROWS; x < Math.min(numRows, (s + 1) * STRIPE_ROWS); x++) {
+                rowOffset[x + 1] = scanRow(x, null, null, 0);
+            }
+        });
+        for (int x = 0; x < numRows; x++) {
+            rowOffset[x + 1] += rowOffset[x];
+        }
+        runStart = new int[rowOffset[numRows]];
+        runEnd = new int[rowOffset[numRows]];
+        range(numStripes).forEach(s -> {
+            for (int x = s * STRIPE_ROWS; x < Math.min(numRows, (s + 1) * STRIPE_ROWS); x++) {
+                scanRow(x, runStart, runEnd, rowOffset[x]);
+            }
+        });
+    }
+
+    /** Finds the runs of row x, storing them from index
+     *  offset if starts is not null.
+     *
+     * @return number of runs in row
+     */
+    private int scanRow(int x, int[] starts, int[] ends, int offset) {
+        int wordsPerRow = grid.getWordsPerRow();
+        long[] words = new long[wordsPerRow];
+        grid.readRow(x, words, 0);
+        int base = 0;
+        int num = 0;
+        int e = 0;
+        for (int i = 0; i < wordsPerRow; i++) {
+            long w = words[base + i];
+            long prev = i > 0 ? words[base + i - 1] >>> 63 : 0L;
+            long next = i < wordsPerRow - 1 ? words[base + i + 1] << 63 : 0L;
+            //bits where runs begin and end
+            long begin = w & ~(w << 1 | prev);
+            long end = w & ~(w >>> 1 | next);
+            if (starts == null) {
+                num += Long.bitCount(begin);
+                continue;
+            }
+            while (begin != 0) {
+                starts[offset + num++] = (i << 6) + Long.numberOfTrailingZeros(begin);
+                begin &= begin - 1;
+            }
+            while (end != 0) {
+                ends[offset + e++] = (i << 6) + Long.numberOfTrailingZeros(end);
+                end &= end - 1;
+            }
+        }
+        return num;
+    }
+
+    /** Unions runs that touch, within stripes in parallel
+     *  and then across stripe boundaries.
+     */
+    private void label() {
+        int numRows = grid.getNumRows();
+        parent = new int[runStart.length];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        int numStripes = (numRows + STRIPE_ROWS - 1) / STRIPE_ROWS;
+        //stripes only union their own runs, so they run concurrently
+        range(numStripes).forEach(s -> {
+            int end = Math.min(numRows, (s + 1) * STRIPE_ROWS);
+            for (int x = s * STRIPE_ROWS; x < end; x++) {
+                mergeRow(x);
+                if (x + 1 < end) {
+                    mergeRows(x, x + 1);
+                }
+            }
+        });
+        for (int s = 1; s < numStripes; s++) {
+            mergeRows(s * STRIPE_ROWS - 1, s * STRIPE_ROWS);
+        }
+        if (topology.wrapsRows() && numRows > 1) {
+            if (topology.reversesRows()) {
+                mergeMirrored(numRows - 1, 0);
+            }
+            else {
+                mergeRows(numRows - 1, 0);
+            }
+        }
+        //flattens, roots always precede their members
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = parent[parent[i]];
+        }
+    }
+
+    /** Unions the first and last run of a row across the wrap edge. */
+    private void mergeRow(int x) {
+        int first = rowOffset[x];
+        int last = rowOffset[x + 1] - 1;
+        if (topology.wrapsColumns() && last > first && runStart[first] == 0 && runEnd[last] == grid.getNumColumns() - 1) {
+            union(first, last);
+        }
+    }
+
+    /** Unions touching runs of two adjacent rows. */
+    private void mergeRows(int a, int b) {
+        int i = rowOffset[a];
+        int endA = rowOffset[a + 1];
+        int j = rowOffset[b];
+        int endB = rowOffset[b + 1];
+        if (i == endA || j == endB) {
+            return;
+        }
+        int lastColumn = grid.getNumColumns() - 1;
+        if (topology.wrapsColumns()) {
+            //diagonal neighbors across the wrap edge
+            if (runEnd[endA - 1] == lastColumn && runStart[j] == 0) {
+                union(endA - 1, j);
+            }
+            if (runStart[i] == 0 && runEnd[endB - 1] == lastColumn) {
+                union(i, endB - 1);
+            }
+        }
+        while (i < endA && j < endB) {
+            if (runStart[j] <= runEnd[i] + 1 && runStart[i] <= runEnd[j] + 1) {
+                union(i, j);
+            }
+            //advances the run that ends first
+            if (runEnd[i] < runEnd[j]) {
+                i++;
+            }
+            else {
+                j++;
+            }
+        }
+    }
+
+    /** Unions runs of row a that touch runs of row b mirrored,
+     *  column y of b lying at lastColumn - y, as a Klein
+     *  bottle joins the top and bottom rows.
+     */
+    private void mergeMirrored(int a, int b) {
+        int i = rowOffset[a];
+        int endA = rowOffset[a + 1];
+        int first = rowOffset[b];
+        int j = rowOffset[b + 1] - 1;
+        if (i == endA || j < first) {
+            return;
+        }
+        int lastColumn = grid.getNumColumns() - 1;
+        if (topology.wrapsColumns()) {
+            //diagonal neighbors across the wrap edge, b's first run mirrored last
+            if (runEnd[endA - 1] == lastColumn && runEnd[j] == lastColumn) {
+                union(endA - 1, j);
+            }
+            if (runStart[i] == 0 && runStart[first] == 0) {
+                union(i, first);
+            }
+        }
+        //mirrored runs of b, walked from its last run, come in increasing order
+        while (i < endA && j >= first) {
+            int start = lastColumn - runEnd[j];
+            int end = lastColumn - runStart[j];
+            if (start <= runEnd[i] + 1 && runStart[i] <= end + 1) {
+                union(i, j);
+            }
+            if (runEnd[i] < end) {
+                i++;
+            }
+            else {
+                j--;
+            }
+        }
+    }
+
+    /** Finds root of run with path halving. */
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /** Unions two runs, keeping the smaller index as root. */
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a < b) {
+            parent[b] = a;
+        }
+        else if (b < a) {
+            parent[a] = b;
+        }
+    }
+
+    /** Collects the cells of an object, unwrapped around its first
+     *  cell so objects crossing a wrap edge stay contiguous.
+     *
+     * @return MatrixData of the object, null if too large
+     */
+    private MatrixData toMatrixData(int[] runsByObject, int from, int to) {
+        int numRows = grid.getNumRows();
+        int numColumns = grid.getNumColumns();
+        int numCells = 0;
+        for (int k = from; k < to; k++) {
+            int r = runsByObject[k];
+            numCells += runEnd[r] - runStart[r] + 1;
+            if (numCells > MAX_CLASSIFIED_CELLS) {
+                return null;
+            }
+        }
+        int[] xs = new int[numCells];
+        int[] ys = new int[numCells];
+        int anchorX = rowOf(runsByObject[from]);
+        int anchorY = runStart[runsByObject[from]];
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int n = 0;
+        for (int k = from; k < to; k++) {
+            int r = runsByObject[k];
+            int row = rowOf(r);
+            int x = unwrap(row, anchorX, numRows, topology.wrapsRows());
+            //rows past a mirrored edge are reflected
+            boolean mirrored = x != row && topology.reversesRows();
+            for (int y = runStart[r]; y <= runEnd[r]; y++) {
+                int uy = unwrap(mirrored ? numColumns - 1 - y : y, anchorY, numColumns, topology.wrapsColumns());
+                xs[n] = x;
+                ys[n++] = uy;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, uy);
+            }
+        }
+        int maxX = 0;
+        int maxY = 0;
+        long[] cells = new long[numCells];
+        for (int i = 0; i < numCells; i++) {
+            maxX = Math.max(maxX, xs[i] - minX);
+            maxY = Math.max(maxY, ys[i] - minY);
+            cells[i] = (long) (xs[i] - minX) << 32 | (ys[i] - minY);
+        }
+        return new MatrixData(new int[]{maxX + 1, maxY + 1}, cells);
+    }
+
+    /** Returns the row of a run by binary search of rowOffset. */
+    private int rowOf(int run) {
+        int lo = 0;
+        int hi = grid.getNumRows() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (rowOffset[mid] <= run) {
+                lo = mid;
+            }
+            else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /** Moves v by a multiple of length to lie nearest anchor,
+     *  if the edges it crosses are joined.
+     */
+    private int unwrap(int v, int anchor, int length, boolean wraps) {
+        if (!wraps) {
+            return v;
+        }
+        if (v - anchor > length / 2) {
+            return v - length;
+        }
+        if (anchor - v > length / 2) {
+            return v + length;
+        }
+        return v;
+    }
+
+    /** Returns the name of a known object, null if unknown.
+     *
+     * @param m object normalized to [0,0]
+     * @return name of object
+     */
+    public static String classify(MatrixData m) {
+        HashMap<Long, MatrixData> table = known != null ? known : knownObjects();
+        MatrixData k = table.get(m.canonicalHash(true));
+        return k != null && k.isSamePattern(m, true) ? k.getName() : null;
+    }
+
+    /** Builds the table of known objects from every
+     *  connected phase of each listed pattern.
+     */
+    private static synchronized HashMap<Long, MatrixData> knownObjects() {
+        if (known != null) {
+            return known;
+        }
+        HashMap<Long, MatrixData> table = new HashMap<>();
+        //name, pattern rows, period
+        Object[][] objects = {
+                {"block", "OO/OO", 1},
+                {"beehive", ".OO./O..O/.OO.", 1},
+                {"loaf", ".OO./O..O/.O.O/..O.", 1},
+                {"boat", "OO./O.O/.O.", 1},
+                {"ship", "OO./O.O/.OO", 1},
+                {"tub", ".O./O.O/.O.", 1},
+                {"pond", ".OO./O..O/O..O/.OO.", 1},
+                {"barge", ".O../O.O./.O.O/..O.", 1},
+                {"long boat", "OO../O.O./.O.O/..O.", 1},
+                {"eater 1", "OO../O.O./..O./..OO", 1},
+                {"aircraft carrier", "OO../O..O/..OO", 1},
+                {"snake", "OO.O/O.OO", 1},
+                {"blinker", "OOO", 2},
+                {"toad", ".OOO/OOO.", 2},
+                {"beacon", "OO../OO../..OO/..OO", 2},
+                {"clock", "..O./O.O./.O.O/.O..", 2},
+                {"pentadecathlon", "..O....O../OO.OOOO.OO/..O....O..", 15},
+                {"glider", ".O./..O/OOO", 4},
+                {"lightweight spaceship", ".O..O/O..../O...O/OOOO.", 4},
+                {"middleweight spaceship", "...O../.O...O/O...../O....O/OOOOO.", 4},
+                {"heavyweight spaceship", "...OO../.O....O/O....../O.....O/OOOOOO.", 4},
+        };
+        for (Object[] object : objects) {
+            String[] rows = ((String) object[1]).split("/");
+            int margin = 8;
+            PackedGrid phase = new PackedGrid(rows.length + 2 * margin, rows[0].length() + 2 * margin);
+            for (int x = 0; x < rows.length; x++) {
+                for (int y = 0; y < rows[x].length(); y++) {
+                    phase.set(x + margin, y + margin, rows[x].charAt(y) == 'O');
+                }
+            }
+            for (int t = 0; t < (int) object[2]; t++) {
+                //registers phases that form a single object
+                Census c = new Census(phase, Topology.DEAD, false);
+                if (c.numObjects == 1 && !c.unknownObjects.isEmpty()) {
+                    MatrixData m = c.unknownObjects.get(0);
+                    m.setName((String) object[0]);
+                    table.putIfAbsent(m.canonicalHash(true), m);
+                }
+                phase.step(Rule.CONWAY, false);
+            }
+        }
+        known = table;
+        return known;
+    }
+
+    /** String representation of Census
+     * @return objects: name xN, ...
+     */
+    @Override
+    public String toString() {
+        StringBuilder temp = new StringBuilder(numObjects + " objects");
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            temp.append(", ").append(e.getKey()).append(" x").append(e.getValue());
+        }
+        return temp.toString();
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/** Checkpoint class holds a consistent snapshot of
+ *  the simulation state and reads and writes it
+ *  as raw little-endian binary.
+ *
+ *  Layout: magic, version, numRows, numColumns,
+ *  numTicks, birth mask, survival mask, flags,
+ *  reserved, followed by the packed grid words.
+ *
+ * @author RMizelle
+ */
+public class Checkpoint {
+    public static final File DEFAULT_FILE = new File("resources/checkpoint.bin");
+
+    private static final int MAGIC = 0x434D5441; //"ATMC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    //topology ordinal, 0 dead edge and 1 torus as when only wrap was stored
+    private static final int FLAG_TOPOLOGY = 3;
+    //bytes copied per buffer or mapping
+    private static final int CHUNK_BYTES = 1 << 24;
+
+    private final PackedGrid grid;
+    private final long numTicks;
+    private final Rule rule;
+    private final Topology topology;
+
+    /** 4-arg constructor instantiates a Checkpoint. The grid is
+     *  not copied, so callers pass a grid that is no longer modified.
+     *
+     * @param grid cell states
+     * @param numTicks generation counter
+     * @param rule birth/survival rule
+     * @param topology how edges are joined
+     */
+    public Checkpoint(PackedGrid grid, long numTicks, Rule rule, Topology topology) {
+        this.grid = grid;
+        this.numTicks = numTicks;
+        this.rule = rule;
+        this.topology = topology;
+    }
+
+    /** Accessor Method for Grid
+     *
+     * @return cell states
+     */
+    public PackedGrid getGrid() {
+        return grid;
+    }
+
+    /** Accessor Method for numTicks
+     *
+     * @return generation counter
+     */
+    public long getNumTicks() {
+        return numTicks;
+    }
+
+    /** Accessor Method for Rule
+     *
+     * @return birth/survival rule
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    /** Accessor Method for Topology
+     *
+     * @return how edges are joined
+     */
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /** Writes checkpoint to a temporary file and
+     *  moves it over the given file once complete.
+     *
+     * @param file destination
+     * @throws IOException if the file could not be written
+     */
+    public void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(grid.getNumRows());
+            header.putInt(grid.getNumColumns());
+            header.putLong(numTicks);
+            header.putInt(rule.getBirthMask());
+            header.putInt(rule.getSurvivalMask());
+            header.putInt(topology.ordinal());
+            header.putInt(0);
+            header.flip();
+            writeFully(channel, header);
+
+            //copies rows in bulk through a reused direct buffer
+            int wordsPerRow = grid.getWordsPerRow();
+            int rowsPerChunk = Math.max(1, Math.min(grid.getNumRows(), CHUNK_BYTES / 8 / wordsPerRow));
+            long[] rows = new long[rowsPerChunk * wordsPerRow];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(8 * rows.length).order(ByteOrder.LITTLE_ENDIAN);
+            for (int x = 0; x < grid.getNumRows(); x += rowsPerChunk) {
+                int n = Math.min(rowsPerChunk, grid.getNumRows() - x);
+                for (int r = 0; r < n; r++) {
+                    grid.readRow(x + r, rows, r * wordsPerRow);
+                }
+                buffer.clear();
+                buffer.asLongBuffer().put(rows, 0, n * wordsPerRow);
+                buffer.limit(n * wordsPerRow * 8);
+                writeFully(channel, buffer);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Writes all remaining bytes of buffer. */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /** Reads checkpoint by memory mapping the given file.
+     *
+     * @param file source
+     * @return Checkpoint stored in file
+     * @throws IOException if the file could not be read or is not a checkpoint
+     */
+    public static Checkpoint read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES) {
+                throw new IOException("Truncated checkpoint: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a checkpoint: " + file);
+            }
+            int numRows = header.getInt();
+            int numColumns = header.getInt();
+            long numTicks = header.getLong();
+            Rule rule = new Rule(header.getInt(), header.getInt());
+            Topology topology = Topology.values()[header.getInt() & FLAG_TOPOLOGY];
+
+            if (numRows <= 0 || numColumns <= 0) {
+                throw new IOException("Bad checkpoint size " + numRows + "x" + numColumns + ": " + file);
+            }
+            //checked before allocating, so a corrupt header cannot exhaust the heap
+            long numWords = (long) numRows * PackedGrid.wordsPerRow(numColumns);
+            if (numWords > Integer.MAX_VALUE - 8) {
+                throw new IOException("Checkpoint too large for the heap, " + numRows + "x" + numColumns + ": " + file);
+            }
+            if (length != HEADER_BYTES + 8L * numWords) {
+                throw new IOException("Truncated checkpoint: " + file);
+            }
+            long[] words = new long[(int) numWords];
+            //maps words in chunks and copies in bulk
+            int wordsPerChunk = CHUNK_BYTES / 8;
+            for (int i = 0; i < words.length; i += wordsPerChunk) {
+                int n = Math.min(wordsPerChunk, words.length - i);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + 8L * i, 8L * n);
+                LongBuffer longs = chunk.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                longs.get(words, i, n);
+            }
+            return new Checkpoint(new PackedGrid(numRows, numColumns, words), numTicks, rule, topology);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** CheckpointWriter class writes Checkpoints
+ *  on a background thread so that the
+ *  simulation is never blocked by disk I/O.
+ *
+ *  Each checkpoint's grid is a snapshot the writer
+ *  frees once written or skipped, as off-heap copies
+ *  are otherwise only released by the Cleaner.
+ *
+ * @author RMizelle
+ */
+public class CheckpointWriter {
+    private final File file;
+    private final ExecutorService executor;
+    //true while a write is queued or running
+    private final AtomicBoolean busy = new AtomicBoolean(false);
+
+    /** 1-arg constructor instantiates writer for a file.
+     *
+     * @param file checkpoint destination
+     */
+    public CheckpointWriter(File file) {
+        this.file = file;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Writes checkpoint in the background. Skipped if the
+     *  previous checkpoint is still being written. Frees the
+     *  grid of c either way.
+     *
+     * @param c snapshot to be written
+     * @return true if the write was scheduled
+     */
+    public boolean writeAsync(Checkpoint c) {
+        if (!busy.compareAndSet(false, true)) {
+            c.getGrid().free();
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                write(c);
+            }
+            finally {
+                c.getGrid().free();
+                busy.set(false);
+            }
+        });
+        return true;
+    }
+
+    /** Waits for pending writes, then writes checkpoint and
+     *  frees its grid.
+     *
+     * @param c snapshot to be written
+     * @return true if successful, false if error
+     */
+    public boolean writeNow(Checkpoint c) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            return write(c);
+        }
+        finally {
+            c.getGrid().free();
+        }
+    }
+
+    /** Writes checkpoint, reporting errors. */
+    private boolean write(Checkpoint c) {
+        try {
+            c.write(file);
+        }
+        catch (IOException e) {
+            System.out.println("ERROR: Failure to write " + file.getName());
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+}
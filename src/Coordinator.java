@@ -0,0 +1,300 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Coordinator class runs a universe partitioned
+ *  into stripes of rows, each owned by a Worker
+ *  process. Workers exchange halo rows with each
+ *  other directly; the Coordinator only hands out
+ *  stripes, releases each batch of generations,
+ *  waits on every worker as a barrier, sums the
+ *  population and gathers snapshots.
+ *
+ * @author RMizelle
+ */
+public class Coordinator implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7340;
+
+    private final int numRows;
+    private final int numColumns;
+    private final Rule rule;
+    private final boolean wrapEnabled;
+    private final ServerSocket server;
+    private final List<Process> processes = new ArrayList<>();
+    private Socket[] sockets;
+    private DataInputStream[] ins;
+    private DataOutputStream[] outs;
+    //first row of each stripe, numRows at the end
+    private int[] firstRows;
+    private long numTicks;
+
+    /** 5-arg constructor opens the port workers connect to.
+     *
+     * @param numRows universe length
+     * @param numColumns universe height
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     * @param port port to listen on, 0 for any
+     * @throws IOException if the port cannot be opened
+     */
+    public Coordinator(int numRows, int numColumns, Rule rule, boolean wrapEnabled, int port) throws IOException {
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.rule = rule;
+        this.wrapEnabled = wrapEnabled;
+        this.server = new ServerSocket(port);
+    }
+
+    /** Starts worker processes on this machine with the
+     *  same JVM, classpath and JVM options.
+     *
+     * @param numWorkers number of processes
+     * @throws IOException if a process cannot be started
+     */
+    public void launchWorkers(int numWorkers) throws IOException {
+        for (int i = 0; i < numWorkers; i++) {
+            List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add("AppDriver");
+            command.add("worker");
+            command.add("--host");
+            command.add("localhost");
+            command.add("--port");
+            command.add(String.valueOf(server.getLocalPort()));
+            processes.add(new ProcessBuilder(command).inheritIO().start());
+        }
+    }
+
+    /** Waits for workers to connect and fills their stripes
+     *  with a soup; each worker seeds its own rows.
+     *
+     * @param numWorkers number of workers
+     * @param seed soup seed
+     * @param density % chance for cell to be alive
+     * @throws IOException if a worker fails
+     */
+    public void start(int numWorkers, long seed, double density) throws IOException {
+        start(numWorkers, seed, density, null);
+    }
+
+    /** Waits for workers to connect and sends each its
+     *  stripe of a grid.
+     *
+     * @param numWorkers number of workers
+     * @param grid first generation, numRows x numColumns
+     * @throws IOException if a worker fails
+     */
+    public void start(int numWorkers, PackedGrid grid) throws IOException {
+        start(numWorkers, 0L, 0.0, grid);
+    }
+
+    /** Connects workers, assigns stripes and links neighbors. */
+    private void start(int numWorkers, long seed, double density, PackedGrid grid) throws IOException {
+        if (numWorkers < 1 || numWorkers > numRows) {
+            throw new IllegalArgumentException("Invalid number of workers: " + numWorkers);
+        }
+        sockets = new Socket[numWorkers];
+        ins = new DataInputStream[numWorkers];
+        outs = new DataOutputStream[numWorkers];
+        String[] hosts = new String[numWorkers];
+        int[] haloPorts = new int[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            sockets[i] = server.accept();
+            sockets[i].setTcpNoDelay(true);
+            ins[i] = new DataInputStream(new BufferedInputStream(sockets[i].getInputStream()));
+            outs[i] = new DataOutputStream(new BufferedOutputStream(sockets[i].getOutputStream()));
+            hosts[i] = sockets[i].getInetAddress().getHostAddress();
+            haloPorts[i] = ins[i].readInt();
+        }
+
+        firstRows = new int[numWorkers + 1];
+        for (int i = 0; i <= numWorkers; i++) {
+            firstRows[i] = (int) ((long) numRows * i / numWorkers);
+        }
+        int wordsPerRow = PackedGrid.wordsPerRow(numColumns);
+        byte[] buffer = new byte[wordsPerRow * 8];
+        for (int i = 0; i < numWorkers; i++) {
+            DataOutputStream out = outs[i];
+            out.writeInt(numColumns);
+            out.writeInt(firstRows[i]);
+            out.writeInt(firstRows[i + 1] - firstRows[i]);
+            out.writeInt(rule.getBirthMask());
+            out.writeInt(rule.getSurvivalMask());
+            out.writeBoolean(wrapEnabled);
+            //each worker links to the one below it
+            boolean linked = numWorkers > 1 && (wrapEnabled || i < numWorkers - 1);
+            int down = (i + 1) % numWorkers;
+            out.writeBoolean(numWorkers > 1 && (wrapEnabled || i > 0));
+            out.writeUTF(linked ? hosts[down] : "");
+            out.writeInt(linked ? haloPorts[down] : -1);
+            if (grid == null) {
+                out.writeInt(Worker.INIT_SOUP);
+                out.writeLong(seed);
+                out.writeDouble(density);
+            }
+            else {
+                out.writeInt(Worker.INIT_WORDS);
+                Worker.writeWords(out, grid.getWords(), firstRows[i] * wordsPerRow,
+                        (firstRows[i + 1] - firstRows[i]) * wordsPerRow, buffer);
+            }
+            out.flush();
+        }
+        for (int i = 0; i < numWorkers; i++) {
+            ins[i].readInt();
+        }
+    }
+
+    /** Advances the universe, letting workers run the
+     *  generations without synchronizing with the Coordinator.
+     *
+     * @param generations number of generations
+     * @return population afterwards
+     * @throws IOException if a worker fails
+     */
+    public long step(int generations) throws IOException {
+        for (DataOutputStream out : outs) {
+            out.writeInt(Worker.STEP);
+            out.writeInt(generations);
+            out.flush();
+        }
+        //barrier, every worker reports when done
+        long population = 0;
+        for (DataInputStream in : ins) {
+            population += in.readLong();
+        }
+        numTicks += generations;
+        return population;
+    }
+
+    /** Gathers every stripe into one grid.
+     *
+     * @return copy of the universe
+     * @throws IOException if a worker fails
+     */
+    public PackedGrid gather() throws IOException {
+        PackedGrid grid = new PackedGrid(numRows, numColumns);
+        int wordsPerRow = grid.getWordsPerRow();
+        byte[] buffer = new byte[wordsPerRow * 8];
+        for (DataOutputStream out : outs) {
+            out.writeInt(Worker.SNAPSHOT);
+            out.flush();
+        }
+        for (int i = 0; i < ins.length; i++) {
+            Worker.readWords(ins[i], grid.getWords(), firstRows[i] * wordsPerRow,
+                    (firstRows[i + 1] - firstRows[i]) * wordsPerRow, buffer);
+        }
+        return grid;
+    }
+
+    /** Gathers the universe as MatrixData.
+     *
+     * @return snapshot of the universe
+     * @throws IOException if a worker fails
+     */
+    public MatrixData snapshot() throws IOException {
+        return new CellMatrix(gather()).toMatrixData();
+    }
+
+    /** Accessor Method for numTicks
+     *
+     * @return generations completed
+     */
+    public long getNumTicks() {
+        return numTicks;
+    }
+
+    /** Stops workers and waits for launched processes to exit. */
+    @Override
+    public void close() throws IOException {
+        if (outs != null) {
+            for (int i = 0; i < outs.length; i++) {
+                try {
+                    outs[i].writeInt(Worker.STOP);
+                    outs[i].flush();
+                }
+                catch (IOException e) {
+                    //worker already gone
+                }
+                sockets[i].close();
+            }
+        }
+        server.close();
+        for (Process p : processes) {
+            try {
+                p.waitFor();
+            }
+            catch (InterruptedException e) {
+                p.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Runs a distributed simulation from command line options.
+     *  Workers are launched locally unless --remote is given,
+     *  in which case "worker --host H --port P" is started on
+     *  each machine by hand.
+     *
+     * @param o options: --workers, --port, --remote, --rows, --columns,
+     *          --density, --seed, --pattern, --rule, --nowrap,
+     *          --generations, --batch, --save
+     */
+    public static void run(Options o) throws IOException {
+        int numWorkers = o.getInt("workers", Runtime.getRuntime().availableProcessors());
+        Rule rule = Rule.parse(o.getString("rule", Rule.CONWAY.toString()));
+        boolean wrapEnabled = !o.has("nowrap");
+        boolean remote = o.has("remote");
+        PackedGrid grid = o.has("pattern") ? AppDriver.loadGrid(o) : null;
+        int numRows = grid != null ? grid.getNumRows() : o.getInt("rows", 4096);
+        int numColumns = grid != null ? grid.getNumColumns() : o.getInt("columns", 4096);
+        int generations = o.getInt("generations", 100);
+        int batch = o.getInt("batch", 10);
+
+        try (Coordinator c = new Coordinator(numRows, numColumns, rule, wrapEnabled,
+                o.getInt("port", remote ? DEFAULT_PORT : 0))) {
+            if (remote) {
+                System.out.println("Waiting for " + numWorkers + " Workers on Port " + c.server.getLocalPort());
+            }
+            else {
+                c.launchWorkers(numWorkers);
+            }
+            if (grid != null) {
+                c.start(numWorkers, grid);
+            }
+            else {
+                c.start(numWorkers, o.getLong("seed", Seeder.newSeed()), o.getDouble("density", 0.30));
+            }
+
+            long start = System.nanoTime();
+            while (c.getNumTicks() < generations) {
+                int n = (int) Math.min(batch, generations - c.getNumTicks());
+                long population = c.step(n);
+                System.out.println("Generation " + c.getNumTicks() + ": " + population + " cells");
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d x %d cells, %d generations in %.2fs on %d workers (%.3g cells/s)%n",
+                    numRows, numColumns, generations, seconds, numWorkers,
+                    (double) numRows * numColumns * generations / seconds);
+
+            if (o.has("save")) {
+                MatrixData m = c.snapshot();
+                m.setName(o.getString("save", "distributed"));
+                Database database = new Database();
+                database.add(m);
+                database.exportDatabase();
+                System.out.println("Saved Snapshot to Database");
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Scanner;
 
 /** Database Class imports and exports
@@ -16,6 +17,9 @@ import java.util.Scanner;
  */
 public class Database extends JPanel {
     private final ArrayList<MatrixData> database;
+    //canonical pattern hash to saved MatrixData
+    private final HashMap<Long, ArrayList<MatrixData>> index;
+    private boolean matchSymmetries = false;
     private File data;
 
     /** 0-arg constructor implements ArrayList of SparseMatrices
@@ -23,6 +27,7 @@ public class Database extends JPanel {
      */
     public Database() {
         database = new ArrayList<>();
+        index = new HashMap<>();
 
         //creates resource folder if necessary
         File directory = new File("resources");
@@ -60,40 +65,8 @@ public class Database extends JPanel {
      */
     private boolean importData() {
         try {
-            //creates scanner
-            Scanner input = new Scanner(data);
-            while (input.hasNextLine()) {
-                String line = input.nextLine();
-                //splits up data fields
-                String[] parts = line.split("##");
-                //removes brackets from data fields
-                for(int i = 0; i < parts.length; i++) {
-                    parts[i] = parts[i].substring(1, parts[i].length() - 1).trim();
-                }
-                //gets name
-                String name = parts[0];
-
-                //get size
-                String[] temp = parts[1].split("x");
-                int[] size = new int[2];
-                size[0] = Integer.parseInt(temp[0].trim());
-                size[1] = Integer.parseInt(temp[1].trim());
-
-                //get live cells
-                ArrayList<int[]> cells = new ArrayList<>();
-                for(int i = 2; i < parts.length; i++) {
-                    //new splits String into parts and converts to ints
-                    int[] cell = new int[2];
-                    temp = parts[i].split(",");
-                    cell[0] = Integer.parseInt(temp[0].trim());
-                    cell[1] = Integer.parseInt(temp[1].trim());
-                    cells.add(cell);
-                }
-                //adds new MatrixData to database
-                database.add(new MatrixData(name, size, cells));
-            }
-            //closes scanner
-            input.close();
+            //loads every saved line as is, duplicates are only skipped when saving
+            readFile(data, false);
         } catch (FileNotFoundException e) {
             System.out.println("ERROR: Couldn't Read File");
             e.printStackTrace();
@@ -102,6 +75,110 @@ public class Database extends JPanel {
         return true;
     }
 
+    /** Bulk imports MatrixData from a file, one per line,
+     *  skipping patterns that are already saved. Accepts
+     *  both "name"##(WxH)##[x,y] and "name" (WxH)[x,y] lines,
+     *  with an optional ##{seed,density} then, for cropped
+     *  patterns, their ##<x,y,rows,columns> offset and grid size.
+     *
+     * @param file file to be imported
+     * @return number of duplicate entries skipped
+     * @throws FileNotFoundException if file does not exist
+     */
+    public int importFile(File file) throws FileNotFoundException {
+        return readFile(file, true);
+    }
+
+    /** Adds the MatrixData of each line of a file, skipping
+     *  patterns already saved if dedupe.
+     */
+    private int readFile(File file, boolean dedupe) throws FileNotFoundException {
+        int duplicates = 0;
+        //creates scanner
+        Scanner input = new Scanner(file);
+        while (input.hasNextLine()) {
+            String line = input.nextLine().trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            MatrixData m = parse(line);
+            if (!dedupe) {
+                add(m);
+            }
+            else if (!addIfAbsent(m)) {
+                duplicates++;
+            }
+        }
+        //closes scanner
+        input.close();
+        return duplicates;
+    }
+
+    /** Parses a line of data.txt into MatrixData. */
+    private MatrixData parse(String line) {
+        String[] parts;
+        if (line.contains("##")) {
+            //splits up data fields
+            parts = line.split("##");
+        }
+        else {
+            //legacy format without separators
+            int nameEnd = line.indexOf('"', 1) + 1;
+            String fields = line.substring(nameEnd).trim().replace(")", ")##").replace("]", "]##");
+            parts = (line.substring(0, nameEnd) + "##" + fields).split("##");
+        }
+        //removes brackets from data fields, except seed braces and offset angles
+        for(int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+            if (!parts[i].startsWith("{") && !parts[i].startsWith("<")) {
+                parts[i] = parts[i].substring(1, parts[i].length() - 1).trim();
+            }
+        }
+        //gets name
+        String name = parts[0];
+
+        //get size
+        String[] temp = parts[1].split("x");
+        int[] size = new int[2];
+        size[0] = Integer.parseInt(temp[0].trim());
+        size[1] = Integer.parseInt(temp[1].trim());
+
+        //get soup seed if recorded
+        int first = 2;
+        boolean seeded = parts.length > 2 && parts[2].startsWith("{");
+        if (seeded) {
+            first++;
+        }
+        //get offset if cropped
+        boolean cropped = parts.length > first && parts[first].startsWith("<");
+        if (cropped) {
+            first++;
+        }
+
+        //get live cells
+        long[] cells = new long[parts.length - first];
+        for(int i = first; i < parts.length; i++) {
+            //new splits String into parts and packs as (x << 32 | y)
+            temp = parts[i].split(",");
+            cells[i - first] = (long) Integer.parseInt(temp[0].trim()) << 32
+                    | (Integer.parseInt(temp[1].trim()) & 0xFFFFFFFFL);
+        }
+        MatrixData m = new MatrixData(name, size, cells);
+        if (seeded) {
+            temp = parts[2].substring(1, parts[2].length() - 1).split(",");
+            m.setSeed(Long.parseLong(temp[0].trim()), Double.parseDouble(temp[1].trim()));
+        }
+        if (cropped) {
+            temp = parts[first - 1].substring(1, parts[first - 1].length() - 1).split(",");
+            int[] offset = {Integer.parseInt(temp[0].trim()), Integer.parseInt(temp[1].trim())};
+            //entries without a grid size get the smallest grid holding the box
+            int[] gridSize = temp.length < 4 ? new int[] {offset[0] + size[0], offset[1] + size[1]}
+                    : new int[] {Integer.parseInt(temp[2].trim()), Integer.parseInt(temp[3].trim())};
+            m.setOffset(offset, gridSize);
+        }
+        return m;
+    }
+
     /** exportData method takes existing
      *  Database and implements data.txt
      *  @return true if successful, false if error
@@ -128,6 +205,80 @@ public class Database extends JPanel {
      */
     public void add(MatrixData m) {
         database.add(m);
+        indexAdd(m);
+    }
+
+    /** Adds MatrixData to internal database unless
+     *  the same pattern is already saved.
+     *
+     * @param m CellMatrix to be Added
+     * @return true if added, false if duplicate
+     */
+    public boolean addIfAbsent(MatrixData m) {
+        if (contains(m)) {
+            return false;
+        }
+        add(m);
+        return true;
+    }
+
+    /** Returns true if the same pattern is already saved.
+     *
+     * @param m MatrixData to be found
+     * @return true if saved
+     */
+    public boolean contains(MatrixData m) {
+        return find(m) != null;
+    }
+
+    /** Finds saved MatrixData with the same pattern,
+     *  ignoring translation and, if enabled, rotation
+     *  and reflection.
+     *
+     * @param m MatrixData to be found
+     * @return saved MatrixData, null if not found
+     */
+    public MatrixData find(MatrixData m) {
+        ArrayList<MatrixData> bucket = index.get(m.canonicalHash(matchSymmetries));
+        if (bucket != null) {
+            for (MatrixData other : bucket) {
+                if (m.isSamePattern(other, matchSymmetries)) {
+                    return other;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Sets whether rotations and reflections of a
+     *  pattern count as the same pattern.
+     *
+     * @param matchSymmetries true to ignore rotation and reflection
+     */
+    public void setMatchSymmetries(boolean matchSymmetries) {
+        this.matchSymmetries = matchSymmetries;
+        //rebuilds index with new hashes
+        index.clear();
+        for (MatrixData m : database) {
+            indexAdd(m);
+        }
+    }
+
+    /** Adds MatrixData to hash index. */
+    private void indexAdd(MatrixData m) {
+        index.computeIfAbsent(m.canonicalHash(matchSymmetries), k -> new ArrayList<>(1)).add(m);
+    }
+
+    /** Removes MatrixData from hash index. */
+    private void indexRemove(MatrixData m) {
+        long hash = m.canonicalHash(matchSymmetries);
+        ArrayList<MatrixData> bucket = index.get(hash);
+        if (bucket != null) {
+            bucket.remove(m);
+            if (bucket.isEmpty()) {
+                index.remove(hash);
+            }
+        }
     }
 
     /** Removes MatrixData from internal database
@@ -135,7 +286,9 @@ public class Database extends JPanel {
      * @param index to be removed
      */
     public MatrixData removeAtIndex(int index) {
-        return database.remove(index);
+        MatrixData m = database.remove(index);
+        indexRemove(m);
+        return m;
     }
 
     /** Empties internal Database
@@ -143,6 +296,7 @@ public class Database extends JPanel {
      */
     public void wipe() {
         database.clear();
+        index.clear();
     }
 
     /** Retrieves MatrixData at index
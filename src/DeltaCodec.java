@@ -0,0 +1,196 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** DeltaCodec class encodes generations of a
+ *  PackedGrid as frames for streaming. A delta
+ *  frame holds the cells that changed since the
+ *  previous generation and a key frame holds every
+ *  living cell, both as run-length encoded runs
+ *  of bits XOR-ed onto the receiver's grid.
+ *
+ *  Frame layout: int length of the rest, byte type,
+ *  long generation, int rows, int columns, long
+ *  population, int number of runs, then per run
+ *  varints for the gap since the last run and the
+ *  run length. Positions are bit indices into the
+ *  packed words, so runs never cross row padding.
+ *
+ * @author RMizelle
+ */
+public class DeltaCodec {
+    public static final byte KEY = 0;
+    public static final byte DELTA = 1;
+    //bytes before the runs, excluding the length
+    private static final int HEADER = 1 + 8 + 4 + 4 + 8 + 4;
+
+    private byte[] bytes = new byte[1 << 12];
+    private int size;
+
+    /** Encodes a key frame of every living cell.
+     *
+     * @param grid current generation
+     * @param generation generation number
+     * @return frame bytes
+     */
+    public byte[] encodeKey(PackedGrid grid, long generation) {
+        return encode(KEY, grid, null, generation);
+    }
+
+    /** Encodes a delta frame of the cells that changed.
+     *
+     * @param grid current generation
+     * @param previous packed words of the previous generation
+     * @param generation generation number
+     * @return frame bytes
+     */
+    public byte[] encodeDelta(PackedGrid grid, long[] previous, long generation) {
+        return encode(DELTA, grid, previous, generation);
+    }
+
+    /** Encodes runs of set bits of words, or of words ^ previous. */
+    private byte[] encode(byte type, PackedGrid grid, long[] previous, long generation) {
+        long[] words = grid.getWords();
+        size = 4 + HEADER;
+        int numRuns = 0;
+        long population = 0;
+        //bit index of the end of the run being built, and its start
+        long runStart = -1;
+        long runEnd = -1;
+        long lastEnd = 0;
+        for (int w = 0; w < words.length; w++) {
+            population += Long.bitCount(words[w]);
+            long d = previous == null ? words[w] : words[w] ^ previous[w];
+            long base = (long) w << 6;
+            while (d != 0) {
+                int s = Long.numberOfTrailingZeros(d);
+                int len = Long.numberOfTrailingZeros(~(d >>> s));
+                if (s + len > 64) {
+                    len = 64 - s;
+                }
+                long start = base + s;
+                if (start != runEnd) {
+                    //closes the previous run
+                    if (runStart >= 0) {
+                        writeVarint(runStart - lastEnd);
+                        writeVarint(runEnd - runStart);
+                        lastEnd = runEnd;
+                        numRuns++;
+                    }
+                    runStart = start;
+                }
+                runEnd = start + len;
+                d = len == 64 ? 0 : d & ~(((1L << len) - 1) << s);
+            }
+        }
+        if (runStart >= 0) {
+            writeVarint(runStart - lastEnd);
+            writeVarint(runEnd - runStart);
+            numRuns++;
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes, 0, 4 + HEADER);
+        header.putInt(size - 4);
+        header.put(type);
+        header.putLong(generation);
+        header.putInt(grid.getNumRows());
+        header.putInt(grid.getNumColumns());
+        header.putLong(population);
+        header.putInt(numRuns);
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /** Appends an unsigned LEB128 varint. */
+    private void writeVarint(long v) {
+        if (size + 10 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        while ((v & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        bytes[size++] = (byte) v;
+    }
+
+    /** Reads an unsigned LEB128 varint. */
+    private static long readVarint(ByteBuffer b) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = b.get();
+            v |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return v;
+            }
+        }
+    }
+
+    /** Applies a frame, excluding its length, to a grid. A key
+     *  frame replaces the grid, a delta frame flips the cells
+     *  that changed.
+     *
+     * @param frame frame bytes after the length
+     * @param grid grid at the previous generation, or null
+     * @return grid at the frame's generation
+     */
+    public static PackedGrid apply(ByteBuffer frame, PackedGrid grid) {
+        byte type = frame.get();
+        frame.getLong();
+        int numRows = frame.getInt();
+        int numColumns = frame.getInt();
+        frame.getLong();
+        int numRuns = frame.getInt();
+        if (type == KEY) {
+            if (grid == null || grid.getNumRows() != numRows || grid.getNumColumns() != numColumns) {
+                grid = new PackedGrid(numRows, numColumns);
+            }
+            else {
+                grid.clear();
+            }
+        }
+        else if (grid == null) {
+            throw new IllegalStateException("Delta frame without a key frame");
+        }
+        long[] words = grid.getWords();
+        long pos = 0;
+        for (int r = 0; r < numRuns; r++) {
+            pos += readVarint(frame);
+            long end = pos + readVarint(frame);
+            flip(words, pos, end);
+            pos = end;
+        }
+        return grid;
+    }
+
+    /** Flips bits [from, to) of words. */
+    private static void flip(long[] words, long from, long to) {
+        int w0 = (int) (from >>> 6);
+        int w1 = (int) ((to - 1) >>> 6);
+        long first = -1L << from;
+        long last = -1L >>> (63 - ((to - 1) & 63));
+        if (w0 == w1) {
+            words[w0] ^= first & last;
+            return;
+        }
+        words[w0] ^= first;
+        for (int w = w0 + 1; w < w1; w++) {
+            words[w] = ~words[w];
+        }
+        words[w1] ^= last;
+    }
+
+    /** Returns the generation of a frame, excluding its length.
+     *
+     * @param frame frame bytes after the length
+     * @return generation number
+     */
+    public static long getGeneration(ByteBuffer frame) {
+        return frame.getLong(frame.position() + 1);
+    }
+
+    /** Returns the population of a frame, excluding its length.
+     *
+     * @param frame frame bytes after the length
+     * @return number of living cells
+     */
+    public static long getPopulation(ByteBuffer frame) {
+        return frame.getLong(frame.position() + 1 + 8 + 4 + 4);
+    }
+}
@@ -0,0 +1,249 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/** Elementary class steps a row of cells under one
+ *  of Wolfram's 256 elementary rules, in which a
+ *  cell's next state is looked up from itself and
+ *  its left and right neighbors.
+ *
+ *  Cells are packed 64 to a long, cell i at bit
+ *  i & 63 of word i >>> 6, as along a PackedGrid row.
+ *  The rule's truth table is synthesized into a tree
+ *  of bitwise multiplexers, so each word of 64 cells
+ *  costs about twenty logic operations whatever the
+ *  rule. Words are read once and written once per
+ *  step, in parallel chunks.
+ *
+ * @author RMizelle
+ */
+public class Elementary {
+    //words per parallel task
+    private static final int CHUNK_WORDS = 1 << 13;
+
+    private final int rule;
+    private final int length;
+    private final boolean wrapEnabled;
+    private final long lastMask;
+    private long[] words;
+    private long[] next;
+    //truth table as all-zero or all-one masks, indexed by 4 * left + 2 * center + right
+    private final long[] table = new long[8];
+    private long numTicks;
+
+    /** 3-arg constructor instantiates a row of dead cells.
+     *
+     * @param rule Wolfram rule number, 0 to 255
+     * @param length number of cells
+     * @param wrapEnabled true if the ends wrap around, else
+     *                    cells beyond them are dead
+     */
+    public Elementary(int rule, int length, boolean wrapEnabled) {
+        if (rule < 0 || rule > 255) {
+            throw new IllegalArgumentException("Invalid rule: " + rule);
+        }
+        if (length < 1) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        this.rule = rule;
+        this.length = length;
+        this.wrapEnabled = wrapEnabled;
+        int numWords = (length + 63) >>> 6;
+        words = new long[numWords];
+        next = new long[numWords];
+        lastMask = -1L >>> (64 * numWords - length);
+        for (int p = 0; p < 8; p++) {
+            table[p] = (rule >>> p & 1) != 0 ? -1L : 0L;
+        }
+    }
+
+    /** Advances the row one generation. */
+    public void step() {
+        int numWords = words.length;
+        long[] src = words;
+        long[] dst = next;
+        //cells beyond the ends, placed where a shift brings them in
+        int lastBit = (length - 1) & 63;
+        long beforeFirst = wrapEnabled ? src[numWords - 1] >>> lastBit & 1L : 0L;
+        long afterLast = wrapEnabled ? src[0] & 1L : 0L;
+        int numChunks = (numWords + CHUNK_WORDS - 1) / CHUNK_WORDS;
+        IntStream.range(0, numChunks).parallel().forEach(c -> {
+            int from = c * CHUNK_WORDS;
+            int to = Math.min(numWords, from + CHUNK_WORDS);
+            long before = from == 0 ? beforeFirst << 63 : src[from - 1];
+            long center = src[from];
+            for (int i = from; i < to; i++) {
+                long after = i + 1 < numWords ? src[i + 1] : 0L;
+                long left = center << 1 | before >>> 63;
+                long right = center >>> 1 | after << 63;
+                if (i == numWords - 1) {
+                    right |= afterLast << lastBit;
+                }
+                dst[i] = apply(left, center, right);
+                before = center;
+                center = after;
+            }
+        });
+        dst[numWords - 1] &= lastMask;
+        words = dst;
+        next = src;
+        numTicks++;
+    }
+
+    /** Looks up 64 cells at once: the right neighbor picks
+     *  between pairs of table entries, then the center
+     *  between those, then the left neighbor.
+     */
+    private long apply(long left, long center, long right) {
+        long[] t = table;
+        long a = t[0] ^ (right & (t[0] ^ t[1]));
+        long b = t[2] ^ (right & (t[2] ^ t[3]));
+        long c = t[4] ^ (right & (t[4] ^ t[5]));
+        long d = t[6] ^ (right & (t[6] ^ t[7]));
+        long e = a ^ (center & (a ^ b));
+        long f = c ^ (center & (c ^ d));
+        return e ^ (left & (e ^ f));
+    }
+
+    /** Returns the state of a cell.
+     *
+     * @param i cell index
+     * @return true if living
+     */
+    public boolean get(int i) {
+        return (words[i >>> 6] >>> i & 1L) != 0;
+    }
+
+    /** Sets the state of a cell.
+     *
+     * @param i cell index
+     * @param alive new state
+     */
+    public void set(int i, boolean alive) {
+        if (alive) {
+            words[i >>> 6] |= 1L << i;
+        }
+        else {
+            words[i >>> 6] &= ~(1L << i);
+        }
+    }
+
+    /** Kills every cell. */
+    public void clear() {
+        Arrays.fill(words, 0);
+        numTicks = 0;
+    }
+
+    /** Revives each cell with a probability, the same way
+     *  for the same seed.
+     *
+     * @param seed 64-bit seed, see Seeder
+     * @param probability chance for a cell to be alive
+     */
+    public void randomSeed(long seed, double probability) {
+        //a Seeder row as long as the row of cells
+        PackedGrid temp = new PackedGrid(1, length);
+        new Seeder(seed, probability).overlay(temp);
+        temp.readRow(0, words, 0);
+        numTicks = 0;
+    }
+
+    /** Copies cells [from, from + n) into dst from bit offset
+     *  0, for drawing part of a long row.
+     *
+     * @param from first cell
+     * @param n number of cells
+     * @param dst destination, at least (n + 63) / 64 words
+     */
+    public void readCells(int from, int n, long[] dst) {
+        int shift = from & 63;
+        int w = from >>> 6;
+        for (int i = 0; i < (n + 63) >>> 6; i++) {
+            long lo = w + i < words.length ? words[w + i] >>> shift : 0L;
+            long hi = shift != 0 && w + i + 1 < words.length ? words[w + i + 1] << (64 - shift) : 0L;
+            dst[i] = lo | hi;
+        }
+        if ((n & 63) != 0) {
+            dst[(n - 1) >>> 6] &= -1L >>> (64 - (n & 63));
+        }
+    }
+
+    /** Returns the number of living cells.
+     *
+     * @return population
+     */
+    public long population() {
+        long count = 0;
+        for (long w : words) {
+            count += Long.bitCount(w);
+        }
+        return count;
+    }
+
+    /** Accessor Method for Rule
+     *
+     * @return Wolfram rule number
+     */
+    public int getRule() {
+        return rule;
+    }
+
+    /** Accessor Method for Length
+     *
+     * @return number of cells
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /** Accessor Method for Number of Ticks
+     *
+     * @return generations since seeding
+     */
+    public long getNumTicks() {
+        return numTicks;
+    }
+
+    /** Runs an elementary rule from command line options. With
+     *  --out the space-time diagram is written to a .png, or
+     *  streamed to a .pbm of any height; with --headless the
+     *  speed is printed; otherwise a window scrolls through it.
+     *
+     * @param o options: --rule (default 30), --length, --generations,
+     *          --density and --seed for a random row (default one
+     *          living center cell), --nowrap, --from and --width for
+     *          the part of the row drawn, --out, --headless
+     */
+    public static void run(Options o) throws Exception {
+        boolean headless = o.has("headless") || o.has("out");
+        int length = o.getInt("length", headless ? 10000000 : 1024);
+        Elementary row = new Elementary(o.getInt("rule", 30), length, !o.has("nowrap"));
+        if (o.has("density") || o.has("seed")) {
+            row.randomSeed(o.getLong("seed", System.nanoTime()), o.getDouble("density", 0.5));
+        }
+        else {
+            row.set(length / 2, true);
+        }
+        //a .pbm is streamed, so may be as wide as the row
+        boolean stream = o.getString("out", "").toLowerCase().endsWith(".pbm");
+        int width = Math.min(length, o.getInt("width", stream ? length : 1024));
+        int from = Math.max(0, Math.min(length - width, o.getInt("from", (length - width) / 2)));
+        int generations = o.getInt("generations", headless ? 1000 : Integer.MAX_VALUE);
+        if (o.has("out")) {
+            SpaceTime.write(row, from, width, generations, new java.io.File(o.getString("out", "")));
+        }
+        else if (!headless) {
+            SpaceTime.open(row, from, width);
+        }
+        else {
+            System.out.println("Rule " + row.getRule() + " on " + length + " cells");
+            long start = System.nanoTime();
+            for (int i = 1; i <= generations; i++) {
+                row.step();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d generations: %d living (%.3f ms/generation, %.2f GB/s)%n",
+                    generations, row.population(), seconds * 1e3 / generations,
+                    2.0 * 8 * row.words.length * generations / seconds / 1e9);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+import java.util.BitSet;
+
+/** EngineManager class steps a PackedGrid with
+ *  whichever engine is cheapest for its current
+ *  state. Every SAMPLE_INTERVAL generations it
+ *  samples population, the share of tiles that
+ *  changed and the bounding box, and migrates:
+ *
+ *  DENSE steps every word with the packed kernel,
+ *  for busy soups. ACTIVE steps only tiles next
+ *  to a change, for sparse or settling fields.
+ *  CYCLE replays the states of a verified period,
+ *  for fields that have settled into oscillators.
+ *
+ *  Thresholds leave a gap between entering and
+ *  leaving ACTIVE and engines are kept at least
+ *  MIN_SAMPLES samples, so it does not thrash.
+ *
+ *  Population and bounding box are kept by a
+ *  LiveTracker from the tiles each step changes.
+ *
+ * @author RMizelle
+ */
+public class EngineManager {
+    //generations between samples
+    private static final int SAMPLE_INTERVAL = 16;
+    //samples an engine is kept before migrating again
+    private static final int MIN_SAMPLES = 2;
+    //share of changed tiles below which ACTIVE is chosen, and above which it is left
+    private static final double ACTIVE_ENTER = 0.05;
+    private static final double ACTIVE_EXIT = 0.15;
+    //longest period searched for, and most words kept for its states
+    private static final int MAX_PERIOD = 30;
+    private static final long MAX_CYCLE_WORDS = 1L << 23;
+    //most samples waited between searches that found no period
+    private static final int MAX_BACKOFF = 64;
+
+    /** Engine enum names the stepping strategies. */
+    public enum Engine {
+        DENSE("Dense"),
+        ACTIVE("Active Tiles"),
+        CYCLE("Cycle");
+
+        private final String name;
+
+        Engine(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final PackedGrid grid;
+    private Engine engine = Engine.DENSE;
+    private Rule rule;
+    private Topology topology;
+    //grid edits seen, to notice changes made between steps
+    private int modCount;
+    private long numTicks;
+    private int numSamples;
+
+    //tiles changed by the last generation, kept by ACTIVE
+    private final BitSet changed = new BitSet();
+    //generation changed was last marked for, -1 if not marked
+    private long changedTick = -1;
+    private final LiveTracker tracker;
+    //grid edits the tracker has counted
+    private int trackedModCount;
+    private long population;
+    private double activity;
+    private int[] bounds;
+    private double migrationMillis;
+
+    //hashes of recent generations while searching for a period
+    private long[] hashes;
+    private int numHashes;
+    //samples to wait before searching again, doubled per failed search
+    private int backoff = 1;
+    private int samplesUntilSearch;
+    //states of a period being captured or replayed
+    private long[][] states;
+    private int numStates;
+    private double captureMillis;
+    private int phase;
+
+    /** 1-arg constructor manages a grid, starting dense.
+     *
+     * @param grid grid to be stepped
+     */
+    public EngineManager(PackedGrid grid) {
+        this.grid = grid;
+        modCount = grid.getModCount();
+        tracker = new LiveTracker(grid);
+        trackedModCount = modCount;
+    }
+
+    /** Advances grid one generation with the current engine.
+     *  Edits, rule and topology changes since the last step
+     *  are detected and the engine revised to match.
+     *
+     * @param rule birth/survival rule
+     * @param topology how edges are joined
+     */
+    public void step(Rule rule, Topology topology) {
+        boolean edited = grid.getModCount() != modCount;
+        if (!rule.equals(this.rule) || topology != this.topology) {
+            this.rule = rule;
+            this.topology = topology;
+            migrate(Engine.DENSE);
+        }
+        else if (edited) {
+            invalidate();
+        }
+        changedTick = -1;
+        refresh();
+
+        switch (engine) {
+            case DENSE:
+                grid.step(rule, topology);
+                break;
+            case ACTIVE:
+                grid.stepActive(rule, topology.wrapsRows(), changed);
+                break;
+            case CYCLE:
+                phase = (phase + 1) % states.length;
+                if (states.length > 1) {
+                    long[] words = grid.getWords();
+                    System.arraycopy(states[phase], 0, words, 0, words.length);
+                }
+                break;
+        }
+        numTicks++;
+        tracker.update(this);
+        if (hashes != null) {
+            findPeriod();
+        }
+        else if (states != null && engine != Engine.CYCLE) {
+            capturePeriod();
+        }
+        if (numTicks % SAMPLE_INTERVAL == 0) {
+            sample();
+        }
+        modCount = grid.getModCount();
+    }
+
+    /** Revises the engine after edits. ACTIVE rescans for changed
+     *  tiles; a replayed or searched period no longer holds.
+     */
+    private void invalidate() {
+        hashes = null;
+        backoff = 1;
+        samplesUntilSearch = 0;
+        if (engine == Engine.CYCLE) {
+            migrate(Engine.DENSE);
+        }
+        else if (engine == Engine.ACTIVE && grid.markChanged(changed) < 0) {
+            migrate(Engine.DENSE);
+        }
+        states = null;
+    }
+
+    /** Recounts the tracker after edits it has not seen, which
+     *  are not among the changes of a step.
+     */
+    private void refresh() {
+        if (grid.getModCount() != trackedModCount) {
+            tracker.rescan();
+            trackedModCount = grid.getModCount();
+        }
+    }
+
+    /** Samples the grid and migrates if another engine is cheaper. */
+    private void sample() {
+        long lastPopulation = population;
+        int[] lastBounds = bounds;
+        population = tracker.getPopulation();
+        bounds = tracker.boundingBox();
+        numSamples++;
+        if (engine == Engine.CYCLE) {
+            activity = 0;
+            return;
+        }
+        //already marked for the tracker, every tile if off the heap
+        activity = (double) changedTiles().cardinality() / grid.getNumTiles();
+
+        //a settled field keeps its bounds and population, and may be periodic
+        boolean settled = java.util.Arrays.equals(bounds, lastBounds)
+                && Math.abs(population - lastPopulation) <= lastPopulation / 20;
+        if (samplesUntilSearch > 0) {
+            samplesUntilSearch--;
+        }
+        else if (settled && hashes == null && states == null && !grid.isOffHeap()
+                && grid.getWords().length * (long) MAX_PERIOD <= MAX_CYCLE_WORDS) {
+            hashes = new long[2 * MAX_PERIOD + 1];
+            numHashes = 0;
+        }
+
+        Engine target = engine;
+        if (activity < ACTIVE_ENTER && supportsActive()) {
+            target = Engine.ACTIVE;
+        }
+        else if (activity > ACTIVE_EXIT || !supportsActive()) {
+            target = Engine.DENSE;
+        }
+        if (target != engine && numSamples >= MIN_SAMPLES) {
+            migrate(target);
+        }
+    }
+
+    /** Returns true if ACTIVE can step the grid. Its edge
+     *  handling covers dead and toroidal edges only.
+     */
+    private boolean supportsActive() {
+        return !grid.isOffHeap() && (topology == Topology.DEAD || topology == Topology.TORUS);
+    }
+
+    /** Hashes the new generation and starts capturing a period
+     *  when it matches one of the last MAX_PERIOD generations.
+     */
+    private void findPeriod() {
+        long h = 0;
+        for (long w : grid.getWords()) {
+            h = Long.rotateLeft((h ^ w) * 0x9E3779B97F4A7C15L, 31);
+        }
+        hashes[numHashes++] = h;
+        for (int p = 1; p <= MAX_PERIOD && p < numHashes; p++) {
+            if (hashes[numHashes - 1 - p] == h) {
+                hashes = null;
+                states = new long[p][];
+                states[0] = grid.getWords().clone();
+                numStates = 1;
+                captureMillis = 0;
+                return;
+            }
+        }
+        if (numHashes == hashes.length) {
+            //not periodic within MAX_PERIOD, searches less often
+            hashes = null;
+            samplesUntilSearch = backoff;
+            backoff = Math.min(MAX_BACKOFF, 2 * backoff);
+        }
+    }
+
+    /** Copies each state of the period, then replays them
+     *  if the period is confirmed word for word. The time
+     *  spent copying counts towards the migration.
+     */
+    private void capturePeriod() {
+        long start = System.nanoTime();
+        long[] words = grid.getWords();
+        if (numStates < states.length) {
+            states[numStates++] = words.clone();
+            captureMillis += (System.nanoTime() - start) / 1e6;
+        }
+        else if (java.util.Arrays.equals(words, states[0])) {
+            captureMillis += (System.nanoTime() - start) / 1e6;
+            migrate(Engine.CYCLE);
+            migrationMillis += captureMillis;
+            phase = 0;
+        }
+        else {
+            //hash collision
+            states = null;
+        }
+    }
+
+    /** Moves to another engine, timing the move. */
+    private void migrate(Engine target) {
+        long start = System.nanoTime();
+        if (target == Engine.ACTIVE && grid.markChanged(changed) < 0) {
+            target = Engine.DENSE;
+        }
+        if (target != Engine.CYCLE) {
+            states = null;
+        }
+        hashes = null;
+        engine = target;
+        numSamples = 0;
+        migrationMillis = (System.nanoTime() - start) / 1e6;
+    }
+
+    /** Marks the tiles changed by the last step, TILE_ROWS rows
+     *  by one word each. While ACTIVE these are the tiles it
+     *  already tracks, so the cost follows the activity.
+     *
+     * @return changed tiles, owned by the manager and not to be modified
+     */
+    public BitSet changedTiles() {
+        if (engine == Engine.ACTIVE || changedTick == numTicks) {
+            return changed;
+        }
+        changedTick = numTicks;
+        if (engine == Engine.CYCLE) {
+            long[] now = states[phase];
+            long[] before = states[(phase + states.length - 1) % states.length];
+            int wpr = grid.getWordsPerRow();
+            changed.clear();
+            for (int k = 0; k < now.length; k++) {
+                if (now[k] != before[k]) {
+                    changed.set(k / wpr / PackedGrid.TILE_ROWS * wpr + k % wpr);
+                }
+            }
+        }
+        else if (grid.markChanged(changed) < 0) {
+            //off-heap grids are not compared tile by tile
+            changed.clear();
+            changed.set(0, grid.getNumTiles());
+        }
+        return changed;
+    }
+
+    /** Returns the cells of word i of row x changed by the last
+     *  step.
+     *
+     * @param x row
+     * @param i word of row
+     * @return set bits for changed cells
+     */
+    public long getChange(int x, int i) {
+        if (engine != Engine.CYCLE) {
+            return grid.getChange(x, i);
+        }
+        int k = x * grid.getWordsPerRow() + i;
+        return states[phase][k] ^ states[(phase + states.length - 1) % states.length][k];
+    }
+
+    /** Counts living cells and the cells born and killed by
+     *  the last step, as tracked unless the grid was edited
+     *  since. A replayed period then compares its states,
+     *  as the step buffer is not kept while replaying.
+     *
+     * @return {population, births, deaths}, null if unknown
+     */
+    public long[] changeCounts() {
+        long[] counts = grid.getModCount() == trackedModCount ? tracker.changeCounts() : null;
+        if (counts != null) {
+            return counts;
+        }
+        if (engine != Engine.CYCLE) {
+            return grid.changeCounts();
+        }
+        long[] now = states[phase];
+        long[] before = states[(phase + states.length - 1) % states.length];
+        long population = 0;
+        long births = 0;
+        long deaths = 0;
+        for (int i = 0; i < now.length; i++) {
+            population += Long.bitCount(now[i]);
+            births += Long.bitCount(now[i] & ~before[i]);
+            deaths += Long.bitCount(before[i] & ~now[i]);
+        }
+        return new long[] {population, births, deaths};
+    }
+
+    /** Accessor Method for Engine
+     *
+     * @return engine in use
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /** Accessor Method for Population
+     *
+     * @return living cells
+     */
+    public long getPopulation() {
+        refresh();
+        return tracker.getPopulation();
+    }
+
+    /** Accessor Method for Activity
+     *
+     * @return share of tiles changed at the last sample
+     */
+    public double getActivity() {
+        return activity;
+    }
+
+    /** Accessor Method for Tracker, recounted first if the
+     *  grid was edited since it was last updated.
+     *
+     * @return population and tile counts of the grid
+     */
+    public LiveTracker getTracker() {
+        refresh();
+        return tracker;
+    }
+
+    /** Accessor Method for Bounds
+     *
+     * @return {minX, minY, maxX, maxY}, null if empty
+     */
+    public int[] getBounds() {
+        refresh();
+        return tracker.boundingBox();
+    }
+
+    /** Accessor Method for the cost of the last migration
+     *
+     * @return milliseconds spent migrating
+     */
+    public double getMigrationMillis() {
+        return migrationMillis;
+    }
+
+    /** Returns the engine and the cost of moving to it,
+     *  for the status overlay.
+     *
+     * @return engine status
+     */
+    public String getStatus() {
+        String temp = engine.toString();
+        if (engine == Engine.CYCLE) {
+            temp += " (period " + states.length + ")";
+        }
+        else {
+            temp += String.format(" (%.1f%% active)", 100 * activity);
+        }
+        return temp + String.format(" %.2fms", migrationMillis);
+    }
+}
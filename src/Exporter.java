@@ -0,0 +1,264 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Exporter class renders a number of generations
+ *  into an animated GIF or a numbered PNG sequence.
+ *  Simulation, rasterization and encoding run as
+ *  stages connected by bounded queues, so encoding
+ *  overlaps simulation and memory stays flat.
+ *
+ * @author RMizelle
+ */
+public class Exporter {
+    //frames buffered between stages
+    private static final int QUEUE_CAPACITY = 4;
+    //marks the end of a stream
+    private static final long[] END_OF_GRIDS = new long[0];
+    private static final BufferedImage END_OF_FRAMES = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_BINARY);
+
+    private final PackedGrid grid;
+    private final Rule rule;
+    private final boolean wrapEnabled;
+    private final int numGenerations;
+    private final int scale;
+    private final int delay;
+    //palette index 0 for dead, 1 for living cells
+    private final IndexColorModel palette;
+
+    /** 6-arg constructor instantiates an export of a grid.
+     *  The grid is stepped in place by the export.
+     *
+     * @param grid first generation
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     * @param numGenerations number of frames
+     * @param scale pixels per cell side
+     * @param delay milliseconds per frame
+     */
+    public Exporter(PackedGrid grid, Rule rule, boolean wrapEnabled, int numGenerations, int scale, int delay) {
+        if (numGenerations < 1 || scale < 1) {
+            throw new IllegalArgumentException("Invalid export: " + numGenerations + " frames at scale " + scale);
+        }
+        this.grid = grid;
+        this.rule = rule;
+        this.wrapEnabled = wrapEnabled;
+        this.numGenerations = numGenerations;
+        this.scale = scale;
+        this.delay = delay;
+        //matches Cell colors
+        byte dead = (byte) 20;
+        byte alive = (byte) 200;
+        palette = new IndexColorModel(1, 2, new byte[]{dead, alive}, new byte[]{dead, alive}, new byte[]{dead, alive});
+    }
+
+    /** Runs the export pipeline. Writes an animated GIF if
+     *  output ends with ".gif", otherwise writes
+     *  output/frame_00000.png onwards.
+     *
+     * @param output destination file or directory
+     * @throws IOException if frames could not be written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void export(File output) throws IOException, InterruptedException {
+        boolean gif = output.getName().toLowerCase().endsWith(".gif");
+        if (!gif && !output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("Could not create directory " + output);
+        }
+        BlockingQueue<long[]> grids = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<BufferedImage> frames = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        ExecutorService stages = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "export-stage");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Future<?> simulate = stages.submit(() -> {
+                simulate(grids);
+                return null;
+            });
+            Future<?> rasterize = stages.submit(() -> {
+                rasterize(grids, frames);
+                return null;
+            });
+            //encodes on the calling thread
+            if (gif) {
+                encodeGif(frames, output);
+            }
+            else {
+                encodePng(frames, output);
+            }
+            simulate.get();
+            rasterize.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            //unblocks stages if encoding failed
+            stages.shutdownNow();
+        }
+    }
+
+    /** Simulation stage, passes a copy of each generation on. */
+    private void simulate(BlockingQueue<long[]> grids) throws InterruptedException {
+        try {
+            for (int i = 0; i < numGenerations; i++) {
+                if (i > 0) {
+                    grid.step(rule, wrapEnabled);
+                }
+                grids.put(grid.getWords().clone());
+            }
+        }
+        finally {
+            grids.put(END_OF_GRIDS);
+        }
+    }
+
+    /** Rasterization stage, converts generations to images. */
+    private void rasterize(BlockingQueue<long[]> grids, BlockingQueue<BufferedImage> frames) throws InterruptedException {
+        try {
+            long[] words;
+            while ((words = grids.take()) != END_OF_GRIDS) {
+                frames.put(rasterize(words));
+            }
+        }
+        finally {
+            frames.put(END_OF_FRAMES);
+        }
+    }
+
+    /** Draws a generation as a 1-bit image with cell [x,y]
+     *  at pixel (x * scale, y * scale), as in CellMatrix.
+     *
+     * @param words packed rows of the generation
+     * @return image of generation
+     */
+    public BufferedImage rasterize(long[] words) {
+        int numRows = grid.getNumRows();
+        int numColumns = grid.getNumColumns();
+        int wordsPerRow = grid.getWordsPerRow();
+        BufferedImage image = new BufferedImage(numRows * scale, numColumns * scale, BufferedImage.TYPE_BYTE_BINARY, palette);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int stride = (image.getWidth() + 7) >>> 3;
+        for (int y = 0; y < numColumns; y++) {
+            //builds the first scanline of the cell column
+            int line = y * scale * stride;
+            int word = y >>> 6;
+            long bit = 1L << y;
+            for (int x = 0; x < numRows; x++) {
+                if ((words[x * wordsPerRow + word] & bit) != 0) {
+                    for (int px = x * scale; px < (x + 1) * scale; px++) {
+                        pixels[line + (px >>> 3)] |= (byte) (0x80 >>> (px & 7));
+                    }
+                }
+            }
+            //repeats scanline for the cell height
+            for (int k = 1; k < scale; k++) {
+                System.arraycopy(pixels, line, pixels, line + k * stride, stride);
+            }
+        }
+        return image;
+    }
+
+    /** Encoding stage for animated GIFs. */
+    private void encodeGif(BlockingQueue<BufferedImage> frames, File output) throws IOException, InterruptedException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        //image streams do not truncate existing files
+        Files.deleteIfExists(output.toPath());
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(out);
+            writer.prepareWriteSequence(null);
+            IIOMetadata metadata = null;
+            BufferedImage frame;
+            while ((frame = frames.take()) != END_OF_FRAMES) {
+                //first frame also carries the looping extension
+                IIOMetadata frameMetadata = metadata == null ? gifMetadata(writer, frame, true) : metadata;
+                if (metadata == null) {
+                    metadata = gifMetadata(writer, frame, false);
+                }
+                writer.writeToSequence(new IIOImage(frame, null, frameMetadata), null);
+            }
+            writer.endWriteSequence();
+        }
+        finally {
+            writer.dispose();
+        }
+    }
+
+    /** Builds frame metadata with delay and optionally infinite looping. */
+    private IIOMetadata gifMetadata(ImageWriter writer, BufferedImage frame, boolean loop) throws IOException {
+        IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(frame), null);
+        String format = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+        IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", String.valueOf(Math.max(1, delay / 10)));
+        control.setAttribute("transparentColorIndex", "0");
+        root.appendChild(control);
+
+        if (loop) {
+            IIOMetadataNode applications = new IIOMetadataNode("ApplicationExtensions");
+            IIOMetadataNode netscape = new IIOMetadataNode("ApplicationExtension");
+            netscape.setAttribute("applicationID", "NETSCAPE");
+            netscape.setAttribute("authenticationCode", "2.0");
+            netscape.setUserObject(new byte[]{1, 0, 0});
+            applications.appendChild(netscape);
+            root.appendChild(applications);
+        }
+
+        metadata.setFromTree(format, root);
+        return metadata;
+    }
+
+    /** Encoding stage for numbered PNG sequences. */
+    private void encodePng(BlockingQueue<BufferedImage> frames, File directory) throws IOException, InterruptedException {
+        int index = 0;
+        BufferedImage frame;
+        while ((frame = frames.take()) != END_OF_FRAMES) {
+            File file = new File(directory, String.format("frame_%05d.png", index++));
+            if (!ImageIO.write(frame, "png", file)) {
+                throw new IOException("No PNG writer available");
+            }
+        }
+    }
+
+    /** Runs an export from command line options.
+     *
+     * @param o options: --out, --generations, --scale, --delay,
+     *          plus the pattern options of AppDriver.loadGrid
+     */
+    public static void run(Options o) throws IOException, InterruptedException {
+        File output = new File(o.getString("out", "export.gif"));
+        PackedGrid grid = AppDriver.loadGrid(o);
+        Rule rule = Rule.parse(o.getString("rule", Rule.CONWAY.toString()));
+        Exporter exporter = new Exporter(grid, rule, !o.has("nowrap"),
+                o.getInt("generations", 100), o.getInt("scale", 4), o.getInt("delay", 100));
+        long start = System.nanoTime();
+        exporter.export(output);
+        System.out.println("Exported " + o.getInt("generations", 100) + " Generations to " + output
+                + " in " + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+}
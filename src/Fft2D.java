@@ -0,0 +1,245 @@
+import java.util.stream.IntStream;
+
+/** Fft2D class computes in-place two-dimensional
+ *  discrete Fourier transforms of complex arrays
+ *  whose sides are powers of two. Rows and then
+ *  columns are transformed with an iterative
+ *  radix-2 FFT, spread over parallel tasks.
+ *
+ *  Arrays hold row x, column y at x * numColumns + y,
+ *  with real and imaginary parts in separate arrays.
+ *
+ * @author RMizelle
+ */
+public class Fft2D {
+    //columns copied out and transformed together, for locality
+    private static final int COLUMN_BLOCK = 8;
+
+    private final int numRows;
+    private final int numColumns;
+    private final Table rowTable;
+    private final Table columnTable;
+    //per-thread rows and column blocks, reused across transforms
+    private final ThreadLocal<double[]> scratchRe;
+    private final ThreadLocal<double[]> scratchIm;
+
+    /** Twiddle factors and bit-reversal order of one length. */
+    private static class Table {
+        private final int n;
+        private final double[] cos;
+        private final double[] sin;
+        private final int[] reversed;
+
+        private Table(int n) {
+            this.n = n;
+            cos = new double[n / 2];
+            sin = new double[n / 2];
+            for (int k = 0; k < n / 2; k++) {
+                cos[k] = Math.cos(2 * Math.PI * k / n);
+                sin[k] = Math.sin(2 * Math.PI * k / n);
+            }
+            reversed = new int[n];
+            int bits = Integer.numberOfTrailingZeros(n);
+            for (int i = 0; i < n; i++) {
+                reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+            }
+        }
+    }
+
+    /** 2-arg constructor precomputes tables for a size.
+     *
+     * @param numRows rows, a power of two
+     * @param numColumns columns, a power of two
+     */
+    public Fft2D(int numRows, int numColumns) {
+        if (Integer.bitCount(numRows) != 1 || Integer.bitCount(numColumns) != 1) {
+            throw new IllegalArgumentException("FFT size must be powers of two: " + numRows + "x" + numColumns);
+        }
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        rowTable = new Table(numColumns);
+        columnTable = numRows == numColumns ? rowTable : new Table(numRows);
+        int scratchSize = Math.max(numColumns, COLUMN_BLOCK * numRows);
+        scratchRe = ThreadLocal.withInitial(() -> new double[scratchSize]);
+        scratchIm = ThreadLocal.withInitial(() -> new double[scratchSize]);
+    }
+
+    /** Returns the smallest power of two of at least n.
+     *
+     * @param n minimum size
+     * @return power of two
+     */
+    public static int ceilPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /** Transforms re and im in place. The inverse transform
+     *  is scaled by 1 / (numRows * numColumns), so a forward
+     *  and inverse transform return the input.
+     *
+     * @param re real parts
+     * @param im imaginary parts
+     * @param inverse true for the inverse transform
+     */
+    public void transform(double[] re, double[] im, boolean inverse) {
+        IntStream.range(0, numRows).parallel().forEach(x ->
+                fft(re, im, x * numColumns, rowTable, inverse));
+        transformColumns(re, im, numColumns, inverse);
+        if (inverse) {
+            double scale = 1.0 / ((double) numRows * numColumns);
+            IntStream.range(0, numRows).parallel().forEach(x -> {
+                for (int i = x * numColumns; i < (x + 1) * numColumns; i++) {
+                    re[i] *= scale;
+                    im[i] *= scale;
+                }
+            });
+        }
+    }
+
+    /** Transforms a real array, about twice as fast as transform.
+     *  The spectrum of a real array is conjugate symmetric, so
+     *  only columns [0, numColumns / 2] of re and im are written;
+     *  the rest of each row is left unchanged.
+     *
+     * @param in real values
+     * @param re real parts of the spectrum, which may be in
+     * @param im imaginary parts of the spectrum
+     */
+    public void transformReal(double[] in, double[] re, double[] im) {
+        int half = numColumns / 2;
+        //transforms rows x and x + 1 together as one complex row
+        IntStream.range(0, (numRows + 1) / 2).parallel().forEach(p -> {
+            int x = 2 * p;
+            double[] zr = scratchRe.get();
+            double[] zi = scratchIm.get();
+            System.arraycopy(in, x * numColumns, zr, 0, numColumns);
+            if (x + 1 < numRows) {
+                System.arraycopy(in, (x + 1) * numColumns, zi, 0, numColumns);
+            }
+            else {
+                java.util.Arrays.fill(zi, 0, numColumns, 0);
+            }
+            fft(zr, zi, 0, rowTable, false);
+            //separates the two spectra by their symmetry
+            for (int k = 0; k <= half; k++) {
+                int m = (numColumns - k) & (numColumns - 1);
+                int a = x * numColumns + k;
+                re[a] = (zr[k] + zr[m]) / 2;
+                im[a] = (zi[k] - zi[m]) / 2;
+                if (x + 1 < numRows) {
+                    re[a + numColumns] = (zi[k] + zi[m]) / 2;
+                    im[a + numColumns] = (zr[m] - zr[k]) / 2;
+                }
+            }
+        });
+        transformColumns(re, im, half + 1, false);
+    }
+
+    /** Inverts transformReal, reading columns [0, numColumns / 2]
+     *  of the spectrum, which is overwritten.
+     *
+     * @param re real parts of the spectrum
+     * @param im imaginary parts of the spectrum
+     * @param out real values, which may be re
+     */
+    public void inverseReal(double[] re, double[] im, double[] out) {
+        int half = numColumns / 2;
+        transformColumns(re, im, half + 1, true);
+        double scale = 1.0 / ((double) numRows * numColumns);
+        //rows x and x + 1 are real, so come back as one complex row
+        IntStream.range(0, (numRows + 1) / 2).parallel().forEach(p -> {
+            int x = 2 * p;
+            boolean pair = x + 1 < numRows;
+            double[] zr = scratchRe.get();
+            double[] zi = scratchIm.get();
+            for (int k = 0; k < numColumns; k++) {
+                //columns past half are conjugates of those before
+                int c = k <= half ? k : numColumns - k;
+                double sign = k <= half ? 1 : -1;
+                int a = x * numColumns + c;
+                double ar = re[a];
+                double ai = sign * im[a];
+                double br = pair ? re[a + numColumns] : 0;
+                double bi = pair ? sign * im[a + numColumns] : 0;
+                zr[k] = ar - bi;
+                zi[k] = ai + br;
+            }
+            fft(zr, zi, 0, rowTable, true);
+            for (int y = 0; y < numColumns; y++) {
+                out[x * numColumns + y] = zr[y] * scale;
+                if (pair) {
+                    out[(x + 1) * numColumns + y] = zi[y] * scale;
+                }
+            }
+        });
+    }
+
+    /** Transforms columns [0, width) in place, unscaled. */
+    private void transformColumns(double[] re, double[] im, int width, boolean inverse) {
+        int numBlocks = (width + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+        IntStream.range(0, numBlocks).parallel().forEach(b -> {
+            double[] blockRe = scratchRe.get();
+            double[] blockIm = scratchIm.get();
+            int y0 = b * COLUMN_BLOCK;
+            int count = Math.min(COLUMN_BLOCK, width - y0);
+            //gathers the columns into contiguous runs
+            for (int x = 0; x < numRows; x++) {
+                int base = x * numColumns + y0;
+                for (int j = 0; j < count; j++) {
+                    blockRe[j * numRows + x] = re[base + j];
+                    blockIm[j * numRows + x] = im[base + j];
+                }
+            }
+            for (int j = 0; j < count; j++) {
+                fft(blockRe, blockIm, j * numRows, columnTable, inverse);
+            }
+            for (int x = 0; x < numRows; x++) {
+                int base = x * numColumns + y0;
+                for (int j = 0; j < count; j++) {
+                    re[base + j] = blockRe[j * numRows + x];
+                    im[base + j] = blockIm[j * numRows + x];
+                }
+            }
+        });
+    }
+
+    /** Transforms the table.n values from off in place with
+     *  the iterative radix-2 algorithm.
+     */
+    private static void fft(double[] re, double[] im, int off, Table table, boolean inverse) {
+        int n = table.n;
+        //permutes into bit-reversed order
+        for (int i = 0; i < n; i++) {
+            int j = table.reversed[i];
+            if (j > i) {
+                int a = off + i;
+                int b = off + j;
+                double t = re[a];
+                re[a] = re[b];
+                re[b] = t;
+                t = im[a];
+                im[a] = im[b];
+                im[b] = t;
+            }
+        }
+        double sign = inverse ? 1.0 : -1.0;
+        for (int size = 2; size <= n; size <<= 1) {
+            int half = size >>> 1;
+            int step = n / size;
+            for (int start = 0; start < n; start += size) {
+                for (int k = 0; k < half; k++) {
+                    double wr = table.cos[k * step];
+                    double wi = sign * table.sin[k * step];
+                    int a = off + start + k;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
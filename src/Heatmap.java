@@ -0,0 +1,184 @@
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.BitSet;
+
+/** Heatmap class accumulates where a grid changes,
+ *  with exponential decay, and draws it as a
+ *  translucent overlay above the cells.
+ *
+ *  Heat is kept per block of cells, a power of two
+ *  on each side, so no more than MAX_BLOCKS blocks
+ *  are kept whatever the grid size. Each generation
+ *  only the tiles EngineManager reports changed are
+ *  read, and only warm blocks are decayed and
+ *  redrawn, so the cost follows the activity
+ *  rather than the grid size.
+ *
+ *  The overlay holds one pixel per block, redrawn
+ *  only when the block's shade changes, and is
+ *  scaled through the viewport when painted.
+ *
+ * @author RMizelle
+ */
+public class Heatmap {
+    public static final int DEFAULT_HALF_LIFE = 32;
+    private static final int MAX_BLOCKS = 1 << 20;
+    //shades drawn
+    private static final int LEVELS = 32;
+    //heat below which a block is dropped, one half-life after a single change
+    private static final float COLD = 0.5f;
+    private static final int[] SHADES = buildShades();
+
+    private final int numRows;
+    private final int numColumns;
+    private final int wordsPerRow;
+    //cells per block side, as a shift
+    private final int shift;
+    private final int blockRows;
+    private final int blockColumns;
+    private final double decay;
+    //heat of a block at which it is drawn fully hot
+    private final double saturation;
+    private final float[] heat;
+    //shade last drawn for each block
+    private final byte[] drawn;
+    //blocks with heat, in no order
+    private int[] warm = new int[64];
+    private int numWarm;
+    private final BufferedImage overlay;
+    private final int[] pixels;
+
+    /** 2-arg constructor instantiates a cold heatmap for a grid.
+     *
+     * @param grid grid whose changes are tracked
+     * @param halfLife generations for heat to halve
+     */
+    public Heatmap(PackedGrid grid, int halfLife) {
+        numRows = grid.getNumRows();
+        numColumns = grid.getNumColumns();
+        wordsPerRow = grid.getWordsPerRow();
+        int s = 0;
+        while ((long) ((numRows - 1 >> s) + 1) * ((numColumns - 1 >> s) + 1) > MAX_BLOCKS) {
+            s++;
+        }
+        shift = s;
+        blockRows = (numRows - 1 >> s) + 1;
+        blockColumns = (numColumns - 1 >> s) + 1;
+        decay = Math.pow(0.5, 1.0 / halfLife);
+        //a block whose cells all change every generation settles at area / (1 - decay)
+        saturation = (double) (1 << 2 * s) / (1 - decay) / 4;
+        heat = new float[blockRows * blockColumns];
+        drawn = new byte[heat.length];
+        //rows run across the screen, as in Viewport
+        overlay = new BufferedImage(blockRows, blockColumns, BufferedImage.TYPE_INT_ARGB);
+        pixels = ((DataBufferInt) overlay.getRaster().getDataBuffer()).getData();
+    }
+
+    /** Blends transparent red through orange to opaque yellow. */
+    private static int[] buildShades() {
+        int[] temp = new int[LEVELS];
+        for (int i = 1; i < LEVELS; i++) {
+            double t = (double) i / (LEVELS - 1);
+            int alpha = (int) (60 + 160 * t);
+            int green = (int) (40 + 200 * t);
+            int blue = (int) (80 * t * t);
+            temp[i] = alpha << 24 | 255 << 16 | green << 8 | blue;
+        }
+        return temp;
+    }
+
+    /** Decays warm blocks and adds the cells changed by the
+     *  last step. Called once per generation.
+     *
+     * @param engines manager that stepped the grid
+     */
+    public void update(EngineManager engines) {
+        //cools warm blocks, dropping cold ones
+        for (int k = 0; k < numWarm; k++) {
+            int b = warm[k];
+            heat[b] *= decay;
+            if (heat[b] < COLD) {
+                heat[b] = 0;
+                warm[k--] = warm[--numWarm];
+                if (drawn[b] != 0) {
+                    redraw(b, 0);
+                }
+            }
+        }
+
+        BitSet tiles = engines.changedTiles();
+        for (int t = tiles.nextSetBit(0); t >= 0; t = tiles.nextSetBit(t + 1)) {
+            int i = t % wordsPerRow;
+            int x0 = t / wordsPerRow * PackedGrid.TILE_ROWS;
+            int x1 = Math.min(numRows, x0 + PackedGrid.TILE_ROWS);
+            for (int x = x0; x < x1; x++) {
+                long change = engines.getChange(x, i);
+                if (change == 0) {
+                    continue;
+                }
+                int line = (x >>> shift) * blockColumns;
+                if (shift >= 6) {
+                    //the whole word lies in one block
+                    heat(line + (i << 6 >>> shift), Long.bitCount(change));
+                    continue;
+                }
+                while (change != 0) {
+                    int y = (i << 6) + Long.numberOfTrailingZeros(change);
+                    change &= change - 1;
+                    heat(line + (y >>> shift), 1);
+                }
+            }
+        }
+
+        //redraws blocks whose shade moved
+        for (int k = 0; k < numWarm; k++) {
+            int b = warm[k];
+            int level = shade(heat[b]);
+            if (level != drawn[b]) {
+                redraw(b, level);
+            }
+        }
+    }
+
+    /** Adds heat to block b, warming it if cold. */
+    private void heat(int b, int amount) {
+        if (heat[b] == 0) {
+            if (numWarm == warm.length) {
+                warm = java.util.Arrays.copyOf(warm, 2 * numWarm);
+            }
+            warm[numWarm++] = b;
+        }
+        heat[b] += amount;
+    }
+
+    /** Returns the shade of a heat, 0 for none. */
+    private int shade(float h) {
+        return (int) Math.min(LEVELS - 1, LEVELS * h / saturation);
+    }
+
+    /** Sets the overlay pixel of block b. */
+    private void redraw(int b, int level) {
+        drawn[b] = (byte) level;
+        int bx = b / blockColumns;
+        int by = b % blockColumns;
+        pixels[by * blockRows + bx] = SHADES[level];
+    }
+
+    /** Draws the overlay above the cells.
+     *
+     * @param g graphics
+     * @param view visible region and zoom
+     */
+    public void draw(Graphics g, Viewport view) {
+        view.drawOverlay(g, overlay, 1 << shift, numRows, numColumns);
+    }
+
+    /** Accessor Method for the number of warm blocks
+     *
+     * @return blocks with heat
+     */
+    public int getNumWarm() {
+        return numWarm;
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/** Lenia class steps a continuous automaton: each
+ *  cell holds a value in [0, 1], convolved with a
+ *  smooth ring kernel of radius R, and grows or
+ *  shrinks by a Gaussian of the convolution.
+ *
+ *  The convolution is a product in frequency space,
+ *  costing O(NM log NM) whatever the radius. The
+ *  kernel spectrum is computed once; each step is a
+ *  forward and inverse real Fft2D of the field,
+ *  which keeps only half of each spectrum.
+ *
+ *  Toroidal fields need power-of-two sides. Fields
+ *  with dead edges are zero-padded to a power of two
+ *  at least R beyond each side, so the circular
+ *  convolution never wraps into live cells.
+ *
+ *  All buffers are allocated once, as double[].
+ *
+ * @author RMizelle
+ */
+public class Lenia {
+    //Orbium, a glider of the standard kernel
+    public static final int DEFAULT_RADIUS = 13;
+    public static final double DEFAULT_MU = 0.15;
+    public static final double DEFAULT_SIGMA = 0.015;
+    public static final double DEFAULT_DT = 0.1;
+
+    private final int numRows;
+    private final int numColumns;
+    private final boolean wrapEnabled;
+    private final int radius;
+    private final double mu;
+    private final double sigma;
+    private final double dt;
+
+    //transform size, equal to the field when wrapped
+    private final int fftRows;
+    private final int fftColumns;
+    private final Fft2D fft;
+    //cell values at x * fftColumns + y, padding left at zero
+    private final double[] cells;
+    private final double[] re;
+    private final double[] im;
+    //kernel spectrum
+    private final double[] kernelRe;
+    private final double[] kernelIm;
+    private long numTicks;
+
+    /** 3-arg constructor instantiates an empty field with
+     *  the default kernel and growth parameters.
+     *
+     * @param numRows Matrix length
+     * @param numColumns Matrix width
+     * @param wrapEnabled true if edges wrap around
+     */
+    public Lenia(int numRows, int numColumns, boolean wrapEnabled) {
+        this(numRows, numColumns, wrapEnabled, DEFAULT_RADIUS, DEFAULT_MU, DEFAULT_SIGMA, DEFAULT_DT);
+    }
+
+    /** 7-arg constructor instantiates an empty field.
+     *
+     * @param numRows Matrix length, a power of two if wrapped
+     * @param numColumns Matrix width, a power of two if wrapped
+     * @param wrapEnabled true if edges wrap around, else cells
+     *                    beyond the edges are zero
+     * @param radius kernel radius R
+     * @param mu convolution of fastest growth
+     * @param sigma width of the growth band
+     * @param dt time step
+     */
+    public Lenia(int numRows, int numColumns, boolean wrapEnabled,
+                 int radius, double mu, double sigma, double dt) {
+        if (radius < 1 || 2 * radius >= Math.min(numRows, numColumns)) {
+            throw new IllegalArgumentException("Invalid radius: " + radius);
+        }
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.wrapEnabled = wrapEnabled;
+        this.radius = radius;
+        this.mu = mu;
+        this.sigma = sigma;
+        this.dt = dt;
+        if (wrapEnabled) {
+            fftRows = numRows;
+            fftColumns = numColumns;
+        }
+        else {
+            fftRows = Fft2D.ceilPowerOfTwo(numRows + radius);
+            fftColumns = Fft2D.ceilPowerOfTwo(numColumns + radius);
+        }
+        fft = new Fft2D(fftRows, fftColumns);
+        int size = fftRows * fftColumns;
+        cells = new double[size];
+        re = new double[size];
+        im = new double[size];
+        kernelRe = new double[size];
+        kernelIm = new double[size];
+        buildKernel();
+    }
+
+    /** Places the normalized ring kernel around the origin,
+     *  wrapping negative offsets, and transforms it.
+     */
+    private void buildKernel() {
+        double total = 0;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                double r = Math.sqrt(dx * dx + dy * dy) / radius;
+                if (r > 0 && r < 1) {
+                    //smooth bump peaking at r = 1/2
+                    double k = Math.exp(4 - 1 / (r * (1 - r)));
+                    kernelRe[Math.floorMod(dx, fftRows) * fftColumns + Math.floorMod(dy, fftColumns)] = k;
+                    total += k;
+                }
+            }
+        }
+        for (int i = 0; i < kernelRe.length; i++) {
+            kernelRe[i] /= total;
+        }
+        fft.transformReal(kernelRe, kernelRe, kernelIm);
+    }
+
+    /** Advances the field one time step. */
+    public void step() {
+        fft.transformReal(cells, re, im);
+        int half = fftColumns / 2;
+        IntStream.range(0, fftRows).parallel().forEach(x -> {
+            for (int i = x * fftColumns; i <= x * fftColumns + half; i++) {
+                double a = re[i];
+                double b = im[i];
+                re[i] = a * kernelRe[i] - b * kernelIm[i];
+                im[i] = a * kernelIm[i] + b * kernelRe[i];
+            }
+        });
+        fft.inverseReal(re, im, re);
+        double scale = 1 / (2 * sigma * sigma);
+        IntStream.range(0, numRows).parallel().forEach(x -> {
+            for (int i = x * fftColumns; i < x * fftColumns + numColumns; i++) {
+                double d = re[i] - mu;
+                double growth = 2 * Math.exp(-d * d * scale) - 1;
+                cells[i] = Math.min(1, Math.max(0, cells[i] + dt * growth));
+            }
+        });
+        numTicks++;
+    }
+
+    /** Clears the field and scatters square patches of
+     *  random values, about one per 32R x 32R area.
+     *  Patches are 4R across; smaller ones mostly die out.
+     *
+     * @param seed random seed
+     */
+    public void seed(long seed) {
+        Arrays.fill(cells, 0);
+        SplittableRandom random = new SplittableRandom(seed);
+        int side = 4 * radius;
+        long numPatches = 1 + (long) numRows * numColumns / (1024L * radius * radius);
+        for (long p = 0; p < numPatches; p++) {
+            int x0 = random.nextInt(numRows);
+            int y0 = random.nextInt(numColumns);
+            for (int x = x0; x < x0 + side; x++) {
+                for (int y = y0; y < y0 + side; y++) {
+                    if (wrapEnabled || (x < numRows && y < numColumns)) {
+                        cells[(x % numRows) * fftColumns + y % numColumns] = random.nextDouble();
+                    }
+                }
+            }
+        }
+        numTicks = 0;
+    }
+
+    /** Returns the value of a cell.
+     *
+     * @param x row
+     * @param y column
+     * @return value in [0, 1]
+     */
+    public double get(int x, int y) {
+        return cells[x * fftColumns + y];
+    }
+
+    /** Sets the value of a cell.
+     *
+     * @param x row
+     * @param y column
+     * @param value value in [0, 1]
+     */
+    public void set(int x, int y, double value) {
+        cells[x * fftColumns + y] = value;
+    }
+
+    /** Returns the sum of all cell values.
+     *
+     * @return total mass
+     */
+    public double mass() {
+        return IntStream.range(0, numRows).parallel().mapToDouble(x -> {
+            double sum = 0;
+            for (int i = x * fftColumns; i < x * fftColumns + numColumns; i++) {
+                sum += cells[i];
+            }
+            return sum;
+        }).sum();
+    }
+
+    /** Accessor Method for Number of Rows
+     *
+     * @return Matrix length
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /** Accessor Method for Number of Columns
+     *
+     * @return Matrix width
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /** Accessor Method for Number of Ticks
+     *
+     * @return steps since seeding
+     */
+    public long getNumTicks() {
+        return numTicks;
+    }
+
+    /** Runs Lenia from command line options, in a window
+     *  or headless printing mass and speed.
+     *
+     * @param o options: --rows, --columns (default 512), --radius,
+     *          --mu, --sigma, --dt, --seed, --nowrap, --headless,
+     *          --generations
+     */
+    public static void run(Options o) throws Exception {
+        Lenia lenia = new Lenia(o.getInt("rows", 512), o.getInt("columns", 512), !o.has("nowrap"),
+                o.getInt("radius", DEFAULT_RADIUS), o.getDouble("mu", DEFAULT_MU),
+                o.getDouble("sigma", DEFAULT_SIGMA), o.getDouble("dt", DEFAULT_DT));
+        long seed = o.getLong("seed", System.nanoTime());
+        lenia.seed(seed);
+        if (!o.has("headless")) {
+            LeniaPanel.open(lenia, seed);
+            return;
+        }
+        int generations = o.getInt("generations", 100);
+        System.out.println("Lenia " + lenia.getNumRows() + "x" + lenia.getNumColumns()
+                + ", radius " + lenia.radius + ", seed " + seed);
+        long start = System.nanoTime();
+        for (int i = 1; i <= generations; i++) {
+            lenia.step();
+            if (i % 10 == 0 || i == generations) {
+                System.out.printf("Generation %d: mass %.1f (%.1f ms/generation)%n",
+                        i, lenia.mass(), (System.nanoTime() - start) / 1e6 / i);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/** LeniaPanel class animates a Lenia field, mapping
+ *  each value through a colormap into an image
+ *  scaled to the panel.
+ *
+ *  SPACE pauses and resumes, S reseeds.
+ *
+ * @author RMizelle
+ */
+public class LeniaPanel extends JPanel {
+    //milliseconds between frames
+    private static final int FRAME_DELAY = 15;
+    //colors of values 0, 1/4, 1/2, 3/4 and 1, blended between
+    private static final Color[] GRADIENT = {new Color(0, 0, 0), new Color(30, 30, 140),
+            new Color(150, 40, 150), new Color(240, 130, 40), new Color(255, 250, 160)};
+    private static final int[] COLORMAP = buildColormap(256);
+
+    private final Lenia lenia;
+    private final BufferedImage image;
+    private final int[] pixels;
+    private long seed;
+    private boolean running = true;
+    private double stepMillis;
+
+    /** 2-arg constructor instantiates a panel stepping
+     *  a field once per frame.
+     *
+     * @param lenia field to animate
+     * @param seed seed the field was filled from
+     */
+    public LeniaPanel(Lenia lenia, long seed) {
+        this.lenia = lenia;
+        this.seed = seed;
+        //rows run across the screen, as in Viewport
+        image = new BufferedImage(lenia.getNumRows(), lenia.getNumColumns(), BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_SPACE) {
+                    running = !running;
+                }
+                else if (e.getKeyCode() == KeyEvent.VK_S) {
+                    LeniaPanel.this.seed++;
+                    lenia.seed(LeniaPanel.this.seed);
+                }
+                repaint();
+            }
+        });
+        new Timer(FRAME_DELAY, e -> {
+            if (running) {
+                long start = System.nanoTime();
+                lenia.step();
+                stepMillis = (System.nanoTime() - start) / 1e6;
+                repaint();
+            }
+        }).start();
+    }
+
+    /** Blends GRADIENT into a table of n colors. */
+    private static int[] buildColormap(int n) {
+        int[] temp = new int[n];
+        for (int i = 0; i < n; i++) {
+            double t = (double) i / (n - 1) * (GRADIENT.length - 1);
+            int k = Math.min((int) t, GRADIENT.length - 2);
+            double f = t - k;
+            Color a = GRADIENT[k];
+            Color b = GRADIENT[k + 1];
+            int red = (int) Math.round(a.getRed() + f * (b.getRed() - a.getRed()));
+            int green = (int) Math.round(a.getGreen() + f * (b.getGreen() - a.getGreen()));
+            int blue = (int) Math.round(a.getBlue() + f * (b.getBlue() - a.getBlue()));
+            temp[i] = red << 16 | green << 8 | blue;
+        }
+        return temp;
+    }
+
+    @Override
+    /** Paint method for LeniaPanel that draws the
+     *  field and its step time.
+     *
+     * @param g graphics
+     */
+    public void paintComponent(Graphics g) {
+        int width = lenia.getNumRows();
+        int height = lenia.getNumColumns();
+        int top = COLORMAP.length - 1;
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                pixels[y * width + x] = COLORMAP[(int) (lenia.get(x, y) * top)];
+            }
+        }
+        g.drawImage(image, 0, 0, getWidth(), getHeight(), null);
+        g.setColor(Color.white);
+        g.drawString(String.format("Generation %d (%.1fms)%s", lenia.getNumTicks(), stepMillis,
+                running ? "" : " paused"), 10, 20);
+    }
+
+    /** Opens a window animating a field.
+     *
+     * @param lenia field to animate
+     * @param seed seed the field was filled from
+     */
+    public static void open(Lenia lenia, long seed) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            JFrame frame = new JFrame("Automata Lenia");
+            frame.setContentPane(new LeniaPanel(lenia, seed));
+            frame.setSize(AppDriver.WIDTH + 17, AppDriver.HEIGHT + 40);
+            frame.setLocation(50, 50);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setResizable(false);
+            frame.setVisible(true);
+        });
+    }
+}
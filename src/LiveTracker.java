@@ -0,0 +1,370 @@
+import java.util.BitSet;
+
+/** LiveTracker class keeps the population and
+ *  bounding box of a PackedGrid up to date from
+ *  each generation's births and deaths, so they
+ *  are read without scanning the grid.
+ *
+ *  Living cells are counted per tile, TILE_ROWS
+ *  rows by one word, along with the occupied tiles
+ *  of each tile row and word column. Each step only
+ *  the tiles EngineManager reports changed are read,
+ *  or for dense steps every tile in one pass.
+ *  The bounding box is found from the outermost
+ *  occupied tile rows and columns, reading only the
+ *  words of those tiles, and kept until the next
+ *  change.
+ *
+ *  Living cells are also counted per block of
+ *  TILE_ROWS rows by a quarter word, square blocks
+ *  of 16 cells a side, and summed into a pyramid,
+ *  each level counting 2x2 blocks of the level below,
+ *  so the cells of any large square are read from a
+ *  few counts. Sparse steps update the blocks they
+ *  change; after dense steps or edits the blocks are
+ *  recounted when next read.
+ *
+ * @author RMizelle
+ */
+public class LiveTracker {
+    //columns of the blocks at the base of the pyramid, a quarter word
+    public static final int BLOCK_COLUMNS = 16;
+    private static final int QUARTERS = 64 / BLOCK_COLUMNS;
+    private static final long QUARTER_MASK = (1L << BLOCK_COLUMNS) - 1;
+
+    private final PackedGrid grid;
+    private final int numRows;
+    private final int wordsPerRow;
+    private final int numTileRows;
+    //living cells per tile
+    private final int[] tileCounts;
+    //living cells per base block, at most 256 so kept in shorts
+    private final short[] blockCounts;
+    private boolean blocksValid;
+    //living cells per block of 2^k by 2^k base blocks at level k, unused at level 0
+    private final int[][] levels;
+    //blocks per row of each level
+    private final int[] levelColumns;
+    //occupied tiles per tile row and per word column
+    private final int[] rowCounts;
+    private final int[] columnCounts;
+    //word columns of the changed tiles of a tile row, and their births and deaths
+    private final int[] columns;
+    private final int[] born;
+    private final int[] killed;
+    //change in living cells per quarter word of the changed tiles of a tile row
+    private final int[] quarters;
+    private long population;
+    //cells born and killed by the last step, -1 if unknown
+    private long births = -1;
+    private long deaths = -1;
+    private int[] bounds;
+    private boolean boundsValid;
+
+    /** 1-arg constructor counts the living cells of a grid.
+     *
+     * @param grid grid to be tracked, on or off the heap
+     */
+    public LiveTracker(PackedGrid grid) {
+        this.grid = grid;
+        numRows = grid.getNumRows();
+        wordsPerRow = grid.getWordsPerRow();
+        numTileRows = (numRows + PackedGrid.TILE_ROWS - 1) / PackedGrid.TILE_ROWS;
+        tileCounts = new int[numTileRows * wordsPerRow];
+        rowCounts = new int[numTileRows];
+        columnCounts = new int[wordsPerRow];
+        columns = new int[wordsPerRow];
+        born = new int[wordsPerRow];
+        killed = new int[wordsPerRow];
+        quarters = new int[wordsPerRow * QUARTERS];
+        int numBlockColumns = wordsPerRow * QUARTERS;
+        int numLevels = 1;
+        while ((numTileRows - 1 >> numLevels - 1) > 0 || (numBlockColumns - 1 >> numLevels - 1) > 0) {
+            numLevels++;
+        }
+        blockCounts = new short[numTileRows * numBlockColumns];
+        levels = new int[numLevels][];
+        levelColumns = new int[numLevels];
+        levelColumns[0] = numBlockColumns;
+        for (int k = 1; k < numLevels; k++) {
+            levelColumns[k] = (numBlockColumns - 1 >> k) + 1;
+            levels[k] = new int[((numTileRows - 1 >> k) + 1) * levelColumns[k]];
+        }
+        rescan();
+    }
+
+    /** Recounts every tile, after edits whose changes are not
+     *  known. Births and deaths become unknown.
+     */
+    public void rescan() {
+        java.util.Arrays.fill(tileCounts, 0);
+        java.util.Arrays.fill(rowCounts, 0);
+        java.util.Arrays.fill(columnCounts, 0);
+        population = 0;
+        long[] row = new long[wordsPerRow];
+        for (int x = 0; x < numRows; x++) {
+            grid.readRow(x, row, 0);
+            int base = x / PackedGrid.TILE_ROWS * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                tileCounts[base + i] += Long.bitCount(row[i]);
+            }
+        }
+        for (int t = 0; t < tileCounts.length; t++) {
+            if (tileCounts[t] > 0) {
+                population += tileCounts[t];
+                rowCounts[t / wordsPerRow]++;
+                columnCounts[t % wordsPerRow]++;
+            }
+        }
+        blocksValid = false;
+        births = -1;
+        deaths = -1;
+        boundsValid = false;
+    }
+
+    /** Adds the births and deaths of the last step, reading
+     *  only the tiles that changed, or every tile after a
+     *  dense step.
+     *
+     * @param engines manager that stepped the grid
+     */
+    public void update(EngineManager engines) {
+        //dense steps change most tiles, so all are read rather than marked first
+        BitSet tiles = engines.getEngine() == EngineManager.Engine.DENSE ? null : engines.changedTiles();
+        births = 0;
+        deaths = 0;
+        if (tiles == null) {
+            for (int r = 0; r < numTileRows; r++) {
+                grid.countChanges(r * PackedGrid.TILE_ROWS, Math.min(numRows, (r + 1) * PackedGrid.TILE_ROWS),
+                        born, killed);
+                for (int i = 0; i < wordsPerRow; i++) {
+                    apply(r * wordsPerRow + i, born[i], killed[i]);
+                    born[i] = 0;
+                    killed[i] = 0;
+                }
+            }
+            //recounted when next read, so steps between frames do not pay for it
+            blocksValid = false;
+        }
+        int t = tiles == null ? -1 : tiles.nextSetBit(0);
+        while (t >= 0) {
+            //changed tiles of one tile row, read row by row
+            int r = t / wordsPerRow;
+            int end = (r + 1) * wordsPerRow;
+            int n = 0;
+            for (; t >= 0 && t < end; t = tiles.nextSetBit(t + 1)) {
+                columns[n++] = t % wordsPerRow;
+            }
+            int x1 = Math.min(numRows, (r + 1) * PackedGrid.TILE_ROWS);
+            for (int x = r * PackedGrid.TILE_ROWS; x < x1; x++) {
+                for (int k = 0; k < n; k++) {
+                    long change = engines.getChange(x, columns[k]);
+                    if (change != 0) {
+                        long now = grid.getWord(x, columns[k]);
+                        long bornBits = change & now;
+                        long killedBits = change & ~now;
+                        born[k] += Long.bitCount(bornBits);
+                        killed[k] += Long.bitCount(killedBits);
+                        for (int q = 0; blocksValid && q < QUARTERS; q++) {
+                            int shift = q * BLOCK_COLUMNS;
+                            quarters[k * QUARTERS + q] += Long.bitCount(bornBits >>> shift & QUARTER_MASK)
+                                    - Long.bitCount(killedBits >>> shift & QUARTER_MASK);
+                        }
+                    }
+                }
+            }
+            for (int k = 0; k < n; k++) {
+                apply(r * wordsPerRow + columns[k], born[k], killed[k]);
+                born[k] = 0;
+                killed[k] = 0;
+                for (int q = 0; q < QUARTERS; q++) {
+                    addBlock(r, columns[k] * QUARTERS + q, quarters[k * QUARTERS + q]);
+                    quarters[k * QUARTERS + q] = 0;
+                }
+            }
+        }
+        population += births - deaths;
+    }
+
+    /** Adds the cells born and killed in tile t. */
+    private void apply(int t, int born, int killed) {
+        if (born == 0 && killed == 0) {
+            return;
+        }
+        births += born;
+        deaths += killed;
+        boundsValid = false;
+        if (born == killed) {
+            return;
+        }
+        int before = tileCounts[t];
+        int after = before + born - killed;
+        tileCounts[t] = after;
+        //a tile emptied or filled changes the occupied rows and columns
+        if (before == 0 || after == 0) {
+            int delta = after == 0 ? -1 : 1;
+            rowCounts[t / wordsPerRow] += delta;
+            columnCounts[t % wordsPerRow] += delta;
+        }
+    }
+
+    /** Adds a change in living cells to base block [r, j]
+     *  and the blocks above it.
+     */
+    private void addBlock(int r, int j, int delta) {
+        if (delta == 0 || !blocksValid) {
+            return;
+        }
+        blockCounts[r * levelColumns[0] + j] += delta;
+        for (int k = 1; k < levels.length; k++) {
+            levels[k][(r >> k) * levelColumns[k] + (j >> k)] += delta;
+        }
+    }
+
+    /** Counts every base block and sums each level of the
+     *  pyramid from the one below.
+     */
+    private void countBlocks() {
+        java.util.Arrays.fill(blockCounts, (short) 0);
+        long[] row = new long[wordsPerRow];
+        for (int x = 0; x < numRows; x++) {
+            grid.readRow(x, row, 0);
+            int base = x / PackedGrid.TILE_ROWS * levelColumns[0];
+            for (int i = 0; i < wordsPerRow; i++) {
+                for (int q = 0; row[i] != 0 && q < QUARTERS; q++) {
+                    blockCounts[base + i * QUARTERS + q] += Long.bitCount(row[i] >>> q * BLOCK_COLUMNS & QUARTER_MASK);
+                }
+            }
+        }
+        for (int k = 1; k < levels.length; k++) {
+            java.util.Arrays.fill(levels[k], 0);
+            int numBelow = k == 1 ? blockCounts.length : levels[k - 1].length;
+            for (int b = 0; b < numBelow; b++) {
+                int r = b / levelColumns[k - 1];
+                int j = b % levelColumns[k - 1];
+                levels[k][(r >> 1) * levelColumns[k] + (j >> 1)] += k == 1 ? blockCounts[b] : levels[k - 1][b];
+            }
+        }
+        blocksValid = true;
+    }
+
+    /** Returns the number of pyramid levels. Level k counts
+     *  blocks of TILE_ROWS * 2^k rows by BLOCK_COLUMNS * 2^k
+     *  columns, and the top level holds one block.
+     *
+     * @return levels, at least 1
+     */
+    public int getNumLevels() {
+        return levels.length;
+    }
+
+    /** Returns the living cells of a block of the pyramid.
+     *
+     * @param level pyramid level
+     * @param r block row, counted in blocks of the level
+     * @param i block column, counted in blocks of the level
+     * @return living cells in the block
+     */
+    public int getBlockCount(int level, int r, int i) {
+        if (!blocksValid) {
+            countBlocks();
+        }
+        return level == 0 ? blockCounts[r * levelColumns[0] + i] : levels[level][r * levelColumns[level] + i];
+    }
+
+    /** Accessor Method for Population
+     *
+     * @return living cells
+     */
+    public long getPopulation() {
+        return population;
+    }
+
+    /** Returns the cells born and killed by the last step.
+     *
+     * @return {population, births, deaths}, null if unknown
+     */
+    public long[] changeCounts() {
+        return births < 0 ? null : new long[] {population, births, deaths};
+    }
+
+    /** Returns the smallest box holding every living cell,
+     *  reading only the outermost occupied tiles.
+     *
+     * @return {minX, minY, maxX, maxY}, null if no cell is alive
+     */
+    public int[] boundingBox() {
+        if (boundsValid) {
+            return bounds;
+        }
+        boundsValid = true;
+        if (population == 0) {
+            bounds = null;
+            return null;
+        }
+        int minR = 0;
+        while (rowCounts[minR] == 0) {
+            minR++;
+        }
+        int maxR = numTileRows - 1;
+        while (rowCounts[maxR] == 0) {
+            maxR--;
+        }
+        int minW = 0;
+        while (columnCounts[minW] == 0) {
+            minW++;
+        }
+        int maxW = wordsPerRow - 1;
+        while (columnCounts[maxW] == 0) {
+            maxW--;
+        }
+        //first and last occupied rows within the outer tile rows
+        int minX = -1;
+        for (int x = minR * PackedGrid.TILE_ROWS; minX < 0; x++) {
+            if (occupied(x, minR, minW, maxW)) {
+                minX = x;
+            }
+        }
+        int maxX = -1;
+        for (int x = Math.min(numRows, (maxR + 1) * PackedGrid.TILE_ROWS) - 1; maxX < 0; x--) {
+            if (occupied(x, maxR, minW, maxW)) {
+                maxX = x;
+            }
+        }
+        //cells of the outer word columns, over their occupied tiles
+        long first = column(minW, minR, maxR);
+        long last = column(maxW, minR, maxR);
+        bounds = new int[] {minX, (minW << 6) + Long.numberOfTrailingZeros(first),
+                maxX, (maxW << 6) + 63 - Long.numberOfLeadingZeros(last)};
+        return bounds;
+    }
+
+    /** Returns true if row x has a living cell in words
+     *  [minW, maxW], reading only occupied tiles of tile row r.
+     */
+    private boolean occupied(int x, int r, int minW, int maxW) {
+        for (int i = minW; i <= maxW; i++) {
+            if (tileCounts[r * wordsPerRow + i] > 0 && grid.getWord(x, i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the OR of word i over the occupied tiles of
+     *  tile rows [minR, maxR].
+     */
+    private long column(int i, int minR, int maxR) {
+        long temp = 0L;
+        for (int r = minR; r <= maxR; r++) {
+            if (tileCounts[r * wordsPerRow + i] == 0) {
+                continue;
+            }
+            int x1 = Math.min(numRows, (r + 1) * PackedGrid.TILE_ROWS);
+            for (int x = r * PackedGrid.TILE_ROWS; x < x1; x++) {
+                temp |= grid.getWord(x, i);
+            }
+        }
+        return temp;
+    }
+}
@@ -0,0 +1,384 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/** Locator class finds every occurrence of a
+ *  template pattern in a PackedGrid, in each of
+ *  its distinct orientations.
+ *
+ *  A match has exactly the template's cells alive
+ *  within its bounding box and, if isolated, a ring
+ *  of dead cells around it. Each template cell is a
+ *  check against the grid shifted so its bit lines
+ *  up with the anchor, so one word tests 64 anchors
+ *  at once; living cells are checked first, and a
+ *  word is rejected as soon as no anchor is left.
+ *
+ *  Anchor rows are searched in stripes in parallel.
+ *  As a grid changes, relocate searches again only
+ *  near the changed tiles.
+ *
+ * @author RMizelle
+ */
+public class Locator {
+    //anchor rows searched per parallel task
+    private static final int STRIPE = 64;
+
+    /** Hit class holds one occurrence of the template. */
+    public static class Hit {
+        private final int x;
+        private final int y;
+        private final int rows;
+        private final int columns;
+        private final int orientation;
+
+        /** 5-arg constructor instantiates a hit.
+         *
+         * @param x first row of the bounding box
+         * @param y first column of the bounding box
+         * @param rows rows of the bounding box
+         * @param columns columns of the bounding box
+         * @param orientation transform of the template, see MatrixData.orientedCells
+         */
+        public Hit(int x, int y, int rows, int columns, int orientation) {
+            this.x = x;
+            this.y = y;
+            this.rows = rows;
+            this.columns = columns;
+            this.orientation = orientation;
+        }
+
+        /** Accessor Method for X
+         *
+         * @return first row of the bounding box
+         */
+        public int getX() {
+            return x;
+        }
+
+        /** Accessor Method for Y
+         *
+         * @return first column of the bounding box
+         */
+        public int getY() {
+            return y;
+        }
+
+        /** Accessor Method for Rows
+         *
+         * @return rows of the bounding box
+         */
+        public int getRows() {
+            return rows;
+        }
+
+        /** Accessor Method for Columns
+         *
+         * @return columns of the bounding box
+         */
+        public int getColumns() {
+            return columns;
+        }
+
+        /** Accessor Method for Orientation
+         *
+         * @return transform of the template, see MatrixData.orientedCells
+         */
+        public int getOrientation() {
+            return orientation;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + x + "," + y + "] " + rows + "x" + columns + " t" + orientation;
+        }
+    }
+
+    /** Shape class holds the checks of one orientation. */
+    private static class Shape {
+        private final int orientation;
+        private final int rows;
+        private final int columns;
+        //row offset, word offset and bit of each checked cell, relative to the anchor
+        private final int[] dx;
+        private final int[] words;
+        private final int[] bits;
+        private final boolean[] alive;
+
+        /** Builds the checks of a normalized cell set. */
+        private Shape(long[] cells, int orientation, boolean isolated) {
+            this.orientation = orientation;
+            int maxX = 0;
+            int maxY = 0;
+            for (long cell : cells) {
+                maxX = Math.max(maxX, (int) (cell >> 32));
+                maxY = Math.max(maxY, (int) cell);
+            }
+            rows = maxX + 1;
+            columns = maxY + 1;
+            int margin = isolated ? 1 : 0;
+            int n = (rows + 2 * margin) * (columns + 2 * margin);
+            dx = new int[n];
+            words = new int[n];
+            bits = new int[n];
+            alive = new boolean[n];
+            //living cells first, the most selective in sparse grids
+            int k = 0;
+            for (long cell : cells) {
+                add(k++, (int) (cell >> 32), (int) cell, true);
+            }
+            for (int x = -margin; x < rows + margin; x++) {
+                for (int y = -margin; y < columns + margin; y++) {
+                    if (Arrays.binarySearch(cells, (long) x << 32 | y) < 0) {
+                        add(k++, x, y, false);
+                    }
+                }
+            }
+        }
+
+        /** Sets check k. */
+        private void add(int k, int x, int y, boolean isAlive) {
+            dx[k] = x;
+            words[k] = Math.floorDiv(y, 64);
+            bits[k] = Math.floorMod(y, 64);
+            alive[k] = isAlive;
+        }
+    }
+
+    private final MatrixData template;
+    private final Shape[] shapes;
+    //dead cells checked around each match
+    private final int margin;
+    //rows and columns before a changed cell whose anchors test it
+    private final int reachRows;
+    private final int reachColumns;
+
+    /** 2-arg constructor prepares the distinct orientations
+     *  of a template.
+     *
+     * @param template pattern to be found, with at least one living cell
+     * @param isolated true if matches must be surrounded by dead cells
+     */
+    public Locator(MatrixData template, boolean isolated) {
+        if (template.getNumCells() == 0) {
+            throw new IllegalArgumentException("Empty template: " + template.getName());
+        }
+        this.template = template;
+        List<long[]> seen = new ArrayList<>();
+        List<Shape> temp = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long[] cells = template.orientedCells(t);
+            boolean duplicate = false;
+            for (long[] other : seen) {
+                duplicate |= Arrays.equals(cells, other);
+            }
+            if (!duplicate) {
+                seen.add(cells);
+                temp.add(new Shape(cells, t, isolated));
+            }
+        }
+        shapes = temp.toArray(new Shape[0]);
+        margin = isolated ? 1 : 0;
+        int maxRows = 0;
+        int maxColumns = 0;
+        for (Shape shape : shapes) {
+            maxRows = Math.max(maxRows, shape.rows);
+            maxColumns = Math.max(maxColumns, shape.columns);
+        }
+        reachRows = maxRows - 1 + margin;
+        reachColumns = maxColumns - 1 + margin;
+    }
+
+    /** Accessor Method for Template
+     *
+     * @return pattern being found
+     */
+    public MatrixData getTemplate() {
+        return template;
+    }
+
+    /** Returns the number of distinct orientations searched.
+     *
+     * @return 1 to 8
+     */
+    public int getNumOrientations() {
+        return shapes.length;
+    }
+
+    /** Finds every occurrence of the template lying wholly
+     *  within the grid. Cells outside the grid count as dead.
+     *
+     * @param grid grid to be searched, on or off the heap
+     * @return hits, ordered by row
+     */
+    public List<Hit> locate(PackedGrid grid) {
+        int numStripes = (grid.getNumRows() + STRIPE - 1) / STRIPE;
+        List<List<Hit>> stripes = new ArrayList<>(numStripes);
+        for (int s = 0; s < numStripes; s++) {
+            stripes.add(new ArrayList<>());
+        }
+        IntStream.range(0, numStripes).parallel().forEach(s -> {
+            int from = s * STRIPE;
+            locateRows(grid, from, Math.min(grid.getNumRows(), from + STRIPE), stripes.get(s));
+        });
+        List<Hit> hits = new ArrayList<>();
+        for (List<Hit> stripe : stripes) {
+            hits.addAll(stripe);
+        }
+        return hits;
+    }
+
+    /** Updates the hits of a grid after cells changed within
+     *  some tiles, TILE_ROWS rows by one word each, as marked by
+     *  EngineManager.changedTiles(). Only anchors near a changed
+     *  tile are searched again; other hits are kept, since no
+     *  cell they test changed.
+     *
+     * @param grid grid searched, on or off the heap
+     * @param hits hits before the change
+     * @param tiles tiles whose cells changed
+     * @return hits after the change, not ordered
+     */
+    public List<Hit> relocate(PackedGrid grid, List<Hit> hits, BitSet tiles) {
+        int wordsPerRow = grid.getWordsPerRow();
+        int numTileRows = (grid.getNumRows() + PackedGrid.TILE_ROWS - 1) / PackedGrid.TILE_ROWS;
+        //anchors whose checks reach a changed cell
+        BitSet dirty = new BitSet();
+        for (int t = tiles.nextSetBit(0); t >= 0; t = tiles.nextSetBit(t + 1)) {
+            int r = t / wordsPerRow;
+            int i = t % wordsPerRow;
+            int r0 = Math.max(0, Math.floorDiv(r * PackedGrid.TILE_ROWS - reachRows, PackedGrid.TILE_ROWS));
+            int r1 = Math.min(numTileRows - 1, (r * PackedGrid.TILE_ROWS + PackedGrid.TILE_ROWS - 1 + margin)
+                    / PackedGrid.TILE_ROWS);
+            int i0 = Math.max(0, Math.floorDiv((i << 6) - reachColumns, 64));
+            int i1 = Math.min(wordsPerRow - 1, ((i << 6) + 63 + margin) >> 6);
+            for (int dr = r0; dr <= r1; dr++) {
+                dirty.set(dr * wordsPerRow + i0, dr * wordsPerRow + i1 + 1);
+            }
+        }
+        List<Hit> temp = new ArrayList<>();
+        for (Hit hit : hits) {
+            if (!dirty.get(hit.x / PackedGrid.TILE_ROWS * wordsPerRow + (hit.y >>> 6))) {
+                temp.add(hit);
+            }
+        }
+        //tile rows are searched in parallel, as stripes are by locate
+        List<List<Hit>> found = new ArrayList<>(numTileRows);
+        for (int r = 0; r < numTileRows; r++) {
+            found.add(null);
+        }
+        IntStream.range(0, numTileRows).parallel().forEach(r -> {
+            int end = (r + 1) * wordsPerRow;
+            int t = dirty.nextSetBit(r * wordsPerRow);
+            if (t < 0 || t >= end) {
+                return;
+            }
+            List<Hit> row = new ArrayList<>();
+            int x1 = Math.min(grid.getNumRows(), (r + 1) * PackedGrid.TILE_ROWS);
+            for (; t >= 0 && t < end; t = dirty.nextSetBit(t + 1)) {
+                for (int x = r * PackedGrid.TILE_ROWS; x < x1; x++) {
+                    locateWord(grid, x, t % wordsPerRow, row);
+                }
+            }
+            found.set(r, row);
+        });
+        for (List<Hit> row : found) {
+            if (row != null) {
+                temp.addAll(row);
+            }
+        }
+        return temp;
+    }
+
+    /** Finds hits anchored in rows [fromRow, toRow). */
+    private void locateRows(PackedGrid grid, int fromRow, int toRow, List<Hit> hits) {
+        int wordsPerRow = grid.getWordsPerRow();
+        for (int x = fromRow; x < toRow; x++) {
+            for (int i = 0; i < wordsPerRow; i++) {
+                locateWord(grid, x, i, hits);
+            }
+        }
+    }
+
+    /** Finds hits anchored in row x within the 64 columns of word i. */
+    private void locateWord(PackedGrid grid, int x, int i, List<Hit> hits) {
+        int wordsPerRow = grid.getWordsPerRow();
+        for (Shape shape : shapes) {
+            if (x + shape.rows > grid.getNumRows()) {
+                continue;
+            }
+            //anchors whose box fits within the columns
+            int lastY = grid.getNumColumns() - shape.columns - (i << 6);
+            if (lastY < 0) {
+                continue;
+            }
+            long match = lastY >= 63 ? -1L : -1L >>> 63 - lastY;
+            for (int k = 0; k < shape.dx.length && match != 0; k++) {
+                long cells = shifted(grid, x + shape.dx[k], i + shape.words[k], shape.bits[k], wordsPerRow);
+                match &= shape.alive[k] ? cells : ~cells;
+            }
+            while (match != 0) {
+                int y = (i << 6) + Long.numberOfTrailingZeros(match);
+                match &= match - 1;
+                hits.add(new Hit(x, y, shape.rows, shape.columns, shape.orientation));
+            }
+        }
+    }
+
+    /** Returns the 64 cells of row x starting at bit b of word i,
+     *  0 outside the grid.
+     */
+    private static long shifted(PackedGrid grid, int x, int i, int b, int wordsPerRow) {
+        if (x < 0 || x >= grid.getNumRows()) {
+            return 0L;
+        }
+        long low = i >= 0 && i < wordsPerRow ? grid.getWord(x, i) : 0L;
+        if (b == 0) {
+            return low;
+        }
+        long high = i + 1 >= 0 && i + 1 < wordsPerRow ? grid.getWord(x, i + 1) : 0L;
+        return low >>> b | high << 64 - b;
+    }
+
+    /** Finds a Database pattern (--template index or name) in a
+     *  grid, after stepping it for --generations, and prints the
+     *  hits found and the time taken.
+     *
+     * @param o options: --template, --noborder (matches may touch
+     *          other cells), --generations, --rule, --nowrap, --print,
+     *          plus the pattern options of AppDriver.loadGrid
+     */
+    public static void run(Options o) {
+        Database database = new Database();
+        String name = o.getString("template", "");
+        MatrixData template = null;
+        for (int i = 0; i < database.databaseSize() && template == null; i++) {
+            MatrixData m = database.get(i);
+            if (m.getName().equals(name) || String.valueOf(i).equals(name)) {
+                template = m;
+            }
+        }
+        if (template == null) {
+            throw new IllegalArgumentException("No pattern in Database: " + name);
+        }
+        PackedGrid grid = AppDriver.loadGrid(o);
+        Rule rule = Rule.parse(o.getString("rule", Rule.CONWAY.toString()));
+        Topology topology = Topology.of(!o.has("nowrap"));
+        for (int i = 0; i < o.getInt("generations", 0); i++) {
+            grid.step(rule, topology);
+        }
+        Locator locator = new Locator(template, !o.has("noborder"));
+        //warms up, then times
+        locator.locate(grid);
+        long start = System.nanoTime();
+        List<Hit> hits = locator.locate(grid);
+        System.out.printf("Found %d of %s (%d orientations) in %dx%d in %.1fms%n", hits.size(),
+                template.getName(), locator.getNumOrientations(), grid.getNumRows(), grid.getNumColumns(),
+                (System.nanoTime() - start) / 1e6);
+        for (int i = 0; i < Math.min(hits.size(), o.getInt("print", 20)); i++) {
+            System.out.println("  " + hits.get(i));
+        }
+    }
+}
@@ -0,0 +1,253 @@
+import java.util.stream.IntStream;
+
+/** LtlEngine class steps a PackedGrid under a
+ *  Larger than Life rule. Neighbor counts cost
+ *  O(1) per cell whatever the range:
+ *
+ *  Moore counts are separable, so each row is
+ *  summed with a sliding window across columns,
+ *  and those sums with a sliding window down rows.
+ *  Von Neumann counts move the diamond down a row
+ *  at a time, adding its new lower edges and
+ *  removing its old upper edges, each summed in
+ *  O(1) from prefix sums along the diagonals.
+ *
+ *  Stripes of rows are computed in parallel, each
+ *  reading its own halo of rows, so the buffers of
+ *  a stripe stay small.
+ *
+ * @author RMizelle
+ */
+public class LtlEngine {
+    //rows computed per parallel task
+    private static final int STRIPE_ROWS = 64;
+
+    private final LtlRule rule;
+    //next generation, copied back into the grid
+    private PackedGrid next;
+
+    /** 1-arg constructor instantiates an engine for a rule.
+     *
+     * @param rule Larger than Life rule
+     */
+    public LtlEngine(LtlRule rule) {
+        this.rule = rule;
+    }
+
+    /** Accessor Method for Rule
+     *
+     * @return Larger than Life rule
+     */
+    public LtlRule getRule() {
+        return rule;
+    }
+
+    /** Advances grid one generation.
+     *
+     * @param grid grid to be stepped, on or off the heap
+     * @param wrapEnabled true if edges wrap around, else cells
+     *                    beyond the edges are dead
+     */
+    public void step(PackedGrid grid, boolean wrapEnabled) {
+        int numRows = grid.getNumRows();
+        if (next == null || next.getNumRows() != numRows || next.getNumColumns() != grid.getNumColumns()
+                || next.isOffHeap() != grid.isOffHeap()) {
+            next = grid.isOffHeap() ? PackedGrid.offHeap(numRows, grid.getNumColumns())
+                    : new PackedGrid(numRows, grid.getNumColumns());
+        }
+        int numStripes = (numRows + STRIPE_ROWS - 1) / STRIPE_ROWS;
+        IntStream.range(0, numStripes).parallel().forEach(s -> {
+            int fromRow = s * STRIPE_ROWS;
+            int toRow = Math.min(numRows, fromRow + STRIPE_ROWS);
+            if (rule.isVonNeumann()) {
+                stepDiamonds(grid, wrapEnabled, fromRow, toRow);
+            }
+            else {
+                stepSquares(grid, wrapEnabled, fromRow, toRow);
+            }
+        });
+        //migrates previous to current generation
+        long[] row = new long[grid.getWordsPerRow()];
+        for (int x = 0; x < numRows; x++) {
+            next.readRow(x, row, 0);
+            grid.writeRow(x, row, 0);
+        }
+    }
+
+    /** Steps rows [fromRow, toRow) with Moore counts from a
+     *  ring of 2R + 2 row window sums.
+     */
+    private void stepSquares(PackedGrid grid, boolean wrapEnabled, int fromRow, int toRow) {
+        int range = rule.getRange();
+        int numColumns = grid.getNumColumns();
+        int window = 2 * range + 1;
+        int[][] ring = new int[window + 1][numColumns];
+        int[] cells = new int[numColumns + 2 * range];
+        int[] count = new int[numColumns];
+        long[] words = new long[grid.getWordsPerRow()];
+        //rows [fromRow - R, fromRow + R] start the window
+        for (int k = 0; k < window; k++) {
+            int[] sums = ring[k];
+            windowSums(grid, fromRow - range + k, wrapEnabled, cells, words, sums);
+            for (int y = 0; y < numColumns; y++) {
+                count[y] += sums[y];
+            }
+        }
+        for (int x = fromRow; x < toRow; x++) {
+            if (x > fromRow) {
+                //slides the window down, adding row x + R and removing row x - R - 1
+                int[] added = ring[(x + range - fromRow + range) % (window + 1)];
+                int[] removed = ring[(x - range - 1 - fromRow + range) % (window + 1)];
+                windowSums(grid, x + range, wrapEnabled, cells, words, added);
+                for (int y = 0; y < numColumns; y++) {
+                    count[y] += added[y] - removed[y];
+                }
+            }
+            applyRule(grid, x, count, words);
+        }
+    }
+
+    /** Sums the 2R + 1 cells centered on each column of row x. */
+    private void windowSums(PackedGrid grid, int x, boolean wrapEnabled, int[] cells, long[] words, int[] sums) {
+        int range = rule.getRange();
+        expandRow(grid, x, wrapEnabled, range, cells, words);
+        int sum = 0;
+        for (int c = 0; c < 2 * range + 1; c++) {
+            sum += cells[c];
+        }
+        sums[0] = sum;
+        for (int y = 1; y < sums.length; y++) {
+            sum += cells[y + 2 * range] - cells[y - 1];
+            sums[y] = sum;
+        }
+    }
+
+    /** Steps rows [fromRow, toRow) with von Neumann counts. The
+     *  diamond of row fromRow is summed from row prefix sums; each
+     *  following row adds the two lower edges of the diamond one
+     *  row down and removes the two upper edges of the last one.
+     */
+    private void stepDiamonds(PackedGrid grid, boolean wrapEnabled, int fromRow, int toRow) {
+        int range = rule.getRange();
+        int numColumns = grid.getNumColumns();
+        int pad = range + 1;
+        int width = numColumns + 2 * pad;
+        //rows [fromRow - R, toRow + R) after a row of zeros
+        int firstRow = fromRow - range;
+        int height = toRow + range - firstRow + 1;
+        //prefix sums along the down-right and down-left diagonals
+        int[] right = new int[height * width];
+        int[] left = new int[height * width];
+        int[] cells = new int[width];
+        long[] words = new long[grid.getWordsPerRow()];
+        for (int r = 1; r < height; r++) {
+            expandRow(grid, firstRow + r - 1, wrapEnabled, pad, cells, words);
+            int base = r * width;
+            int above = base - width;
+            for (int c = 0; c < width; c++) {
+                right[base + c] = cells[c] + (c > 0 ? right[above + c - 1] : 0);
+                left[base + c] = cells[c] + (c + 1 < width ? left[above + c + 1] : 0);
+            }
+        }
+
+        int[] count = new int[numColumns];
+        int[] prefix = new int[width + 1];
+        for (int dx = -range; dx <= range; dx++) {
+            expandRow(grid, fromRow + dx, wrapEnabled, pad, cells, words);
+            for (int c = 0; c < width; c++) {
+                prefix[c + 1] = prefix[c] + cells[c];
+            }
+            int half = range - Math.abs(dx);
+            for (int y = 0; y < numColumns; y++) {
+                count[y] += prefix[y + pad + half + 1] - prefix[y + pad - half];
+            }
+        }
+        applyRule(grid, fromRow, count, words);
+
+        for (int x = fromRow + 1; x < toRow; x++) {
+            //base of row x + d in the prefix sums
+            int below = (x + range - firstRow + 1) * width;
+            int belowLast = (x + range - 1 - firstRow + 1) * width;
+            int last = (x - 1 - firstRow + 1) * width;
+            int aboveUpper = (x - range - 1 - firstRow + 1) * width;
+            int beyondUpper = (x - range - 2 - firstRow + 1) * width;
+            for (int y = 0; y < numColumns; y++) {
+                int c = y + pad;
+                int lowerLeft = right[below + c] - right[last + c - range - 1];
+                int lowerRight = left[belowLast + c + 1] - left[last + c + range + 1];
+                int upperLeft = left[last + c - range] - left[beyondUpper + c + 1];
+                int upperRight = right[last + c + range] - right[aboveUpper + c];
+                count[y] += lowerLeft + lowerRight - upperLeft - upperRight;
+            }
+            applyRule(grid, x, count, words);
+        }
+    }
+
+    /** Copies row x into cells as 0s and 1s, with pad cells on
+     *  each side taken across the edges or left dead.
+     */
+    private static void expandRow(PackedGrid grid, int x, boolean wrapEnabled, int pad, int[] cells, long[] words) {
+        int numRows = grid.getNumRows();
+        int numColumns = grid.getNumColumns();
+        if (wrapEnabled) {
+            x = Math.floorMod(x, numRows);
+        }
+        else if (x < 0 || x >= numRows) {
+            java.util.Arrays.fill(cells, 0);
+            return;
+        }
+        grid.readRow(x, words, 0);
+        for (int c = 0; c < cells.length; c++) {
+            int y = c - pad;
+            if (wrapEnabled) {
+                y = Math.floorMod(y, numColumns);
+            }
+            else if (y < 0 || y >= numColumns) {
+                cells[c] = 0;
+                continue;
+            }
+            cells[c] = (int) (words[y >>> 6] >>> y) & 1;
+        }
+    }
+
+    /** Writes row x of the next generation from its counts,
+     *  which include the cell itself.
+     */
+    private void applyRule(PackedGrid grid, int x, int[] count, long[] words) {
+        grid.readRow(x, words, 0);
+        long[] out = new long[words.length];
+        int self = rule.countsMiddle() ? 0 : 1;
+        for (int y = 0; y < count.length; y++) {
+            boolean alive = (words[y >>> 6] >>> y & 1L) != 0;
+            if (rule.next(alive, count[y] - (alive ? self : 0))) {
+                out[y >>> 6] |= 1L << y;
+            }
+        }
+        next.writeRow(x, out, 0);
+    }
+
+    /** Runs a Larger than Life rule from command line options,
+     *  printing population and speed.
+     *
+     * @param o options: --rule (Golly notation, default Bosco's rule),
+     *          --rows, --columns, --density, --seed, --pattern,
+     *          --nowrap, --generations
+     */
+    public static void run(Options o) {
+        LtlRule rule = LtlRule.parse(o.getString("rule", LtlRule.BOSCO.toString()));
+        boolean wrapEnabled = !o.has("nowrap");
+        int generations = o.getInt("generations", 100);
+        PackedGrid grid = AppDriver.loadGrid(o);
+        LtlEngine engine = new LtlEngine(rule);
+        System.out.println(rule + " on " + grid.getNumRows() + "x" + grid.getNumColumns()
+                + ", " + grid.population() + " living");
+        long start = System.nanoTime();
+        for (int i = 1; i <= generations; i++) {
+            engine.step(grid, wrapEnabled);
+            if (i % 10 == 0 || i == generations) {
+                System.out.printf("Generation %d: %d cells (%.1f ms/generation)%n",
+                        i, grid.population(), (System.nanoTime() - start) / 1e6 / i);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/** LtlRule class describes a Larger than Life
+ *  rule: cells count the living cells within a
+ *  range-R Moore (square) or von Neumann (diamond)
+ *  neighborhood, and are born or survive when the
+ *  count falls within an interval.
+ *
+ *  Written as in Golly, for example Bosco's rule
+ *  "R5,C0,M1,S34..58,B34..45,NM". Only two-state
+ *  rules (C0 or C2) are supported.
+ *
+ * @author RMizelle
+ */
+public class LtlRule {
+    //Bosco's rule, radius 5 Moore
+    public static final LtlRule BOSCO = parse("R5,C0,M1,S34..58,B34..45,NM");
+
+    private final int range;
+    //true if a cell counts itself
+    private final boolean middle;
+    private final int minSurvival;
+    private final int maxSurvival;
+    private final int minBirth;
+    private final int maxBirth;
+    //true for the von Neumann neighborhood, false for Moore
+    private final boolean vonNeumann;
+
+    /** 7-arg constructor instantiates a rule.
+     *
+     * @param range neighborhood radius R
+     * @param middle true if a cell counts itself
+     * @param minSurvival fewest neighbors allowing survival
+     * @param maxSurvival most neighbors allowing survival
+     * @param minBirth fewest neighbors causing birth
+     * @param maxBirth most neighbors causing birth
+     * @param vonNeumann true for a diamond neighborhood, false for a square
+     */
+    public LtlRule(int range, boolean middle, int minSurvival, int maxSurvival,
+                   int minBirth, int maxBirth, boolean vonNeumann) {
+        if (range < 1) {
+            throw new IllegalArgumentException("Invalid range: " + range);
+        }
+        this.range = range;
+        this.middle = middle;
+        this.minSurvival = minSurvival;
+        this.maxSurvival = maxSurvival;
+        this.minBirth = minBirth;
+        this.maxBirth = maxBirth;
+        this.vonNeumann = vonNeumann;
+    }
+
+    /** Parses a rule such as "R5,C0,M1,S34..58,B34..45,NM".
+     *  Omitted parts default to R1, M0, no survival, no birth
+     *  and the Moore neighborhood.
+     *
+     * @param s rule string
+     * @return LtlRule represented by s
+     */
+    public static LtlRule parse(String s) {
+        int range = 1;
+        boolean middle = false;
+        int[] survival = {1, 0};
+        int[] birth = {1, 0};
+        boolean vonNeumann = false;
+        try {
+            for (String part : s.trim().toUpperCase().split(",")) {
+                if (part.isEmpty()) {
+                    continue;
+                }
+                String value = part.substring(1);
+                switch (part.charAt(0)) {
+                    case 'R':
+                        range = Integer.parseInt(value);
+                        break;
+                    case 'C':
+                        //states beyond two would need generations
+                        if (Integer.parseInt(value) > 2) {
+                            throw new IllegalArgumentException("Only two-state rules are supported: " + s);
+                        }
+                        break;
+                    case 'M':
+                        middle = value.equals("1");
+                        break;
+                    case 'S':
+                        survival = parseInterval(value);
+                        break;
+                    case 'B':
+                        birth = parseInterval(value);
+                        break;
+                    case 'N':
+                        vonNeumann = value.equals("N");
+                        if (!vonNeumann && !value.equals("M")) {
+                            throw new IllegalArgumentException("Invalid neighborhood: " + s);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid rule: " + s);
+                }
+            }
+        }
+        catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid rule: " + s);
+        }
+        return new LtlRule(range, middle, survival[0], survival[1], birth[0], birth[1], vonNeumann);
+    }
+
+    /** Parses "min..max" or a single count. */
+    private static int[] parseInterval(String s) {
+        int dots = s.indexOf("..");
+        if (dots < 0) {
+            int n = Integer.parseInt(s);
+            return new int[] {n, n};
+        }
+        return new int[] {Integer.parseInt(s.substring(0, dots)), Integer.parseInt(s.substring(dots + 2))};
+    }
+
+    /** Returns the next state of a cell.
+     *
+     * @param alive current state
+     * @param count living cells in the neighborhood, including
+     *              the cell itself if middle
+     * @return true if the cell lives next generation
+     */
+    public boolean next(boolean alive, int count) {
+        return alive ? count >= minSurvival && count <= maxSurvival
+                : count >= minBirth && count <= maxBirth;
+    }
+
+    /** Accessor Method for Range
+     *
+     * @return neighborhood radius R
+     */
+    public int getRange() {
+        return range;
+    }
+
+    /** Returns true if a cell counts itself.
+     *
+     * @return true if M1
+     */
+    public boolean countsMiddle() {
+        return middle;
+    }
+
+    /** Returns true for the von Neumann neighborhood.
+     *
+     * @return true if NN, false if NM
+     */
+    public boolean isVonNeumann() {
+        return vonNeumann;
+    }
+
+    /** String representation of LtlRule
+     * @return rule in Golly notation
+     */
+    @Override
+    public String toString() {
+        return "R" + range + ",C0,M" + (middle ? 1 : 0) + ",S" + minSurvival + ".." + maxSurvival
+                + ",B" + minBirth + ".." + maxBirth + ",N" + (vonNeumann ? "N" : "M");
+    }
+}
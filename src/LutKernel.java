@@ -0,0 +1,129 @@
+/** LutKernel class steps a PackedGrid with the
+ *  classic block lookup table: the 4x4 cells around
+ *  each 2x2 block index a 65536-entry table holding
+ *  the block's next state, so four cells cost one
+ *  table hit instead of four neighbor counts.
+ *
+ *  Rows are taken in pairs from the padded buffer,
+ *  with the row above and below the pair, and each
+ *  word of the pair in 32 blocks of two columns. The table is generated
+ *  from the rule on first use and regenerated when
+ *  the rule changes.
+ *
+ *  Selected with -Dautomata.kernel=lut, see
+ *  StepKernel.best().
+ *
+ * @author RMizelle
+ */
+public class LutKernel implements StepKernel {
+    //table last generated, replaced whole so workers never see it half built
+    private volatile Table table;
+
+    /** Table class pairs a rule with its lookup table. */
+    private static class Table {
+        private final Rule rule;
+        //next state of the inner 2x2 cells, by 4x4 neighborhood
+        private final byte[] next = new byte[1 << 16];
+
+        /** 1-arg constructor generates the table of a rule.
+         *
+         *  Index bit 4r + c holds the cell at row r, column c of
+         *  the 4x4 neighborhood; result bit 2r + c the inner cell
+         *  at row r + 1, column c + 1.
+         */
+        private Table(Rule rule) {
+            this.rule = rule;
+            for (int index = 0; index < next.length; index++) {
+                int result = 0;
+                for (int r = 0; r < 2; r++) {
+                    for (int c = 0; c < 2; c++) {
+                        int numLiving = 0;
+                        for (int dr = 0; dr <= 2; dr++) {
+                            for (int dc = 0; dc <= 2; dc++) {
+                                if ((dr != 1 || dc != 1) && (index >>> 4 * (r + dr) + c + dc & 1) != 0) {
+                                    numLiving++;
+                                }
+                            }
+                        }
+                        boolean alive = (index >>> 4 * (r + 1) + c + 1 & 1) != 0;
+                        if (alive ? rule.survives(numLiving) : rule.isBorn(numLiving)) {
+                            result |= 1 << 2 * r + c;
+                        }
+                    }
+                }
+                next[index] = (byte) result;
+            }
+        }
+    }
+
+    /** Returns the table of a rule, generating it if the rule changed. */
+    private byte[] table(Rule rule) {
+        Table t = table;
+        if (t == null || !t.rule.equals(rule)) {
+            t = new Table(rule);
+            table = t;
+        }
+        return t.next;
+    }
+
+    @Override
+    public void stepRows(PackedGrid grid, long[] src, long[] dst, int fromRow, int toRow, Rule rule) {
+        byte[] next = table(rule);
+        int wordsPerRow = grid.getWordsPerRow();
+        int stride = wordsPerRow + 2;
+        long lastMask = grid.getLastMask();
+        //an odd row at the end is left to the scalar kernel
+        int end = toRow - (toRow - fromRow & 1);
+        for (int x = fromRow; x < end; x += 2) {
+            //padded rows x - 1 to x + 2
+            int base0 = x * stride + 1;
+            int base1 = base0 + stride;
+            int base2 = base1 + stride;
+            int base3 = base2 + stride;
+            int out = x * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                //each row as cells y - 1 to y + 62, plus cells y + 63 and y + 64
+                long a0 = west(src, base0 + i);
+                long a1 = west(src, base1 + i);
+                long a2 = west(src, base2 + i);
+                long a3 = west(src, base3 + i);
+                long out1 = 0;
+                long out2 = 0;
+                for (int s = 0; s < 62; s += 2) {
+                    int index = (int) (a0 >>> s & 15 | (a1 >>> s & 15) << 4
+                            | (a2 >>> s & 15) << 8 | (a3 >>> s & 15) << 12);
+                    int result = next[index];
+                    out1 |= (long) (result & 3) << s;
+                    out2 |= (long) (result >>> 2 & 3) << s;
+                }
+                //the last block reaches into the next word
+                int index = (int) (top(src, base0 + i, a0) | top(src, base1 + i, a1) << 4
+                        | top(src, base2 + i, a2) << 8 | top(src, base3 + i, a3) << 12);
+                int result = next[index];
+                out1 |= (long) (result & 3) << 62;
+                out2 |= (long) (result >>> 2 & 3) << 62;
+                dst[out + i] = out1;
+                dst[out + wordsPerRow + i] = out2;
+            }
+            dst[out + wordsPerRow - 1] &= lastMask;
+            dst[out + 2 * wordsPerRow - 1] &= lastMask;
+        }
+        if (end < toRow) {
+            grid.stepRows(src, dst, end, toRow, rule);
+        }
+    }
+
+    /** Returns the padded word at p shifted so each bit holds
+     *  the cell to its left (y - 1), as PackedGrid does.
+     */
+    private static long west(long[] src, int p) {
+        return src[p] << 1 | src[p - 1] >>> 63;
+    }
+
+    /** Returns the cells y + 61 to y + 64 of the padded word at p,
+     *  for its last block.
+     */
+    private static long top(long[] src, int p, long a) {
+        return a >>> 62 | (src[p] >>> 63) << 2 | (src[p + 1] & 1L) << 3;
+    }
+}
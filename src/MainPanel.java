@@ -1,9 +1,11 @@
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.UIManager;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
 
 /** MainPanel class renders a CellMatrix
  *  representing an interactive version
@@ -11,18 +13,45 @@ import java.awt.event.*;
  *
  * @author RMizelle
  */
-public class MainPanel extends JPanel implements MouseListener, MouseMotionListener, KeyListener, ActionListener {
+public class MainPanel extends JPanel implements MouseListener, MouseMotionListener, MouseWheelListener, KeyListener, ActionListener {
     //Mouse Positions
     private int mouseX;
     private int mouseY;
 
+    //View Variables
+    private final Viewport view = new Viewport(AppDriver.WIDTH, AppDriver.HEIGHT);
+    private final int panStep = 50;
+    private final double zoomStep = 1.25;
+
 
     //Grid Variables
     private CellMatrix matrix;
+    //picks how matrix is stepped
+    private EngineManager engines;
     private int numRows = 100;
     private int numColumns = 100;
     private final double maxP = 0.30;
     private final int increment = 5;
+    private final int maxSize = 10000;
+    //keeps cells off the heap, set by -Dautomata.storage=offheap
+    private final boolean offHeap = "offheap".equals(System.getProperty("automata.storage"));
+    //seed of the current soup, null if stepped, edited or imported
+    private Long seed = null;
+    //where the matrix changes, null unless shown
+    private Heatmap heatmap;
+    //records every generation to the file named by -Dautomata.record, null if not set
+    private TimeSeriesRecorder recorder;
+    //finds a Database pattern as the matrix changes, null unless shown
+    private Locator locator;
+    private java.util.List<Locator.Hit> hits;
+    //grid edits counted when hits were last found
+    private int hitsModCount;
+    //tiles changed since hits were last found, and the time that search took
+    private final java.util.BitSet pendingTiles = new java.util.BitSet();
+    private long locateNanos;
+    private long lastLocate;
+    //searches may take up to 1/locateShare of the time
+    private final int locateShare = 10;
 
     //Database Variables
     private final Database database;
@@ -32,12 +61,18 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
     public static final Color mainColor = new Color((int)(Math.random() * 0x1000000));
     public static final Font mainFont = new Font("SansSerif", Font.PLAIN, 10);
     private final Timer timer;
-    private int numTicks = 0;
+    private long numTicks = 0;
     private int delay = 100;
     private boolean showStatus = true;
     private boolean showMenu = true;
-    private boolean wrapEnabled = true;
+    private Topology topology = Topology.TORUS;
     private boolean showDatabase = false;
+    private Rule rule = Rule.CONWAY;
+
+    //Checkpoint Variables
+    private final int checkpointDelay = 60000;
+    private final CheckpointWriter checkpointWriter;
+    private final Timer checkpointTimer;
 
     /** 0-arg constructor adds Mouse Listeners
      *  and instantiates the matrix and timer.
@@ -46,53 +81,139 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
         //adds listeners
         addMouseListener(this);
         addMouseMotionListener(this);
+        addMouseWheelListener(this);
         addKeyListener(this);
         this.setFocusable(true);
         //instantiates matrix
-        matrix = new CellMatrix(numRows, numColumns);
-        matrix.randomSeed(maxP);
+        replaceMatrix(newGrid(numRows, numColumns));
+        view.fit(numRows, numColumns);
+        reseed();
         //instantiates timer
         timer = new Timer(delay, this);
         //database variables
         database = new Database();
+        //resumes previous session if available
+        checkpointWriter = new CheckpointWriter(Checkpoint.DEFAULT_FILE);
+        if (Checkpoint.DEFAULT_FILE.exists()) {
+            try {
+                restore(Checkpoint.read(Checkpoint.DEFAULT_FILE));
+                System.out.println("Checkpoint Restored Successfully");
+            }
+            catch (IOException e) {
+                System.out.println("ERROR: Failed to Restore Checkpoint");
+                e.printStackTrace();
+            }
+        }
+        //periodically checkpoints running simulation
+        checkpointTimer = new Timer(checkpointDelay, e -> {
+            if (timer.isRunning()) {
+                checkpointWriter.writeAsync(checkpoint());
+            }
+        });
+        checkpointTimer.start();
+        //records generations if -Dautomata.record=file is set, -Dautomata.record.overflow=block waits for the writer
+        String recordFile = System.getProperty("automata.record");
+        if (recordFile != null) {
+            try {
+                recorder = new TimeSeriesRecorder(new java.io.File(recordFile), TimeSeriesRecorder.DEFAULT_CAPACITY,
+                        TimeSeriesRecorder.Overflow.valueOf(System.getProperty("automata.record.overflow", "drop").toUpperCase()));
+            }
+            catch (IOException e) {
+                System.out.println("ERROR: Failed to Open " + recordFile);
+                e.printStackTrace();
+            }
+        }
         repaint();
     }
 
     /** Ticks matrix to next generation according to the
-     *  rules of the Conway's Game of Life.
+     *  rule, with edges joined by the topology, using the
+     *  engine EngineManager finds cheapest.
      */
     public void tick() {
-        //next generation matrix
-        CellMatrix g2 = new CellMatrix(numRows, numColumns);
-        //navigates grid horizontally
-        for (int x = 0; x < numRows; x++) {
-            //navigates grid vertically
-            for (int y = 0; y < numColumns; y++) {
-                //Gen 1 Cell at index
-                Cell c = matrix.getCell(x, y);
-                //num of living neighbors
-                int numLiving = matrix.numLivingNeighbors(x, y, wrapEnabled);
-                if (!c.isAlive() && numLiving == 3) {
-                    //reproduction
-                    g2.getCell(x, y).revive();
-                }
-                else if (c.isAlive() && (numLiving < 2 || numLiving > 3)) {
-                    //over or under population
-                    g2.getCell(x, y).kill();
-                }
-                else if (c.isAlive()) {
-                    //if previously alive
-                    g2.getCell(x, y).revive();
-                }
-                else {
-                    //isolation or previously dead
-                    g2.getCell(x, y).kill();
+        engines.step(rule, topology);
+        numTicks++;
+        //the seed only regenerates the first generation
+        seed = null;
+        if (heatmap != null) {
+            heatmap.update(engines);
+        }
+        if (locator != null) {
+            //only tiles the steps changed are searched again, unless edited since
+            if (matrix.getGrid().getModCount() != hitsModCount) {
+                locateAll();
+            }
+            else {
+                pendingTiles.or(engines.changedTiles());
+                //slow searches of busy grids are spread over several generations
+                if (System.nanoTime() - lastLocate >= (long) locateShare * locateNanos) {
+                    relocate();
                 }
             }
         }
-        //migrates previous to current generation
-        matrix = g2;
-        numTicks++;
+        if (recorder != null) {
+            long[] counts = engines.changeCounts();
+            if (counts != null) {
+                recorder.record(numTicks, counts[0], counts[1], counts[2]);
+            }
+            else {
+                recorder.record(numTicks, matrix.getGrid().population(), -1, -1);
+            }
+        }
+    }
+
+    /** Writes the remaining samples and closes the recorder,
+     *  if recording.
+     */
+    public void closeRecorder() {
+        if (recorder != null) {
+            recorder.close();
+            recorder = null;
+        }
+    }
+
+    /** Captures a consistent snapshot of the simulation.
+     *  Called on the event dispatch thread between ticks.
+     *  The grid is a copy, which CheckpointWriter frees
+     *  once written.
+     *
+     * @return Checkpoint of matrix, numTicks, rule, and topology
+     */
+    public Checkpoint checkpoint() {
+        return new Checkpoint(PackedGrid.fromCellMatrix(matrix), numTicks, rule, topology);
+    }
+
+    /** Writes a checkpoint immediately, waiting for any
+     *  background checkpoint to finish first.
+     *
+     * @return true if successful, false if error
+     */
+    public boolean saveCheckpoint() {
+        checkpointTimer.stop();
+        return checkpointWriter.writeNow(checkpoint());
+    }
+
+    /** Replaces the simulation state with a checkpoint.
+     *
+     * @param c Checkpoint to be restored
+     */
+    public void restore(Checkpoint c) {
+        PackedGrid grid = c.getGrid();
+        numRows = grid.getNumRows();
+        numColumns = grid.getNumColumns();
+        replaceMatrix(grid);
+        view.fit(numRows, numColumns);
+        seed = null;
+        numTicks = c.getNumTicks();
+        rule = c.getRule();
+        topology = c.getTopology();
+        repaint();
+    }
+
+    /** Randomly generates a new soup with a fresh seed. */
+    private void reseed() {
+        seed = Seeder.newSeed();
+        matrix.randomSeed(seed, maxP);
     }
 
     /** Resizes grid with given increment.
@@ -102,7 +223,38 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
     private void changeGrid(int i) {
         numColumns += i;
         numRows += i;
-        matrix = new CellMatrix(numRows, numColumns);
+        replaceMatrix(newGrid(numRows, numColumns));
+        view.fit(numRows, numColumns);
+    }
+
+    /** Returns an empty grid, off the heap if enabled.
+     *
+     * @param numRows grid length
+     * @param numColumns grid height
+     * @return empty grid
+     */
+    private PackedGrid newGrid(int numRows, int numColumns) {
+        return offHeap ? PackedGrid.offHeap(numRows, numColumns) : new PackedGrid(numRows, numColumns);
+    }
+
+    /** Replaces the matrix with one holding grid, moved off the
+     *  heap if enabled, and frees the words of the old matrix.
+     *
+     * @param grid cells of the new matrix
+     */
+    private void replaceMatrix(PackedGrid grid) {
+        CellMatrix old = matrix;
+        matrix = new CellMatrix(grid.isOffHeap() == offHeap ? grid : grid.copy(offHeap));
+        engines = new EngineManager(matrix.getGrid());
+        if (heatmap != null) {
+            heatmap = new Heatmap(matrix.getGrid(), Heatmap.DEFAULT_HALF_LIFE);
+        }
+        if (locator != null) {
+            locateAll();
+        }
+        if (old != null) {
+            old.getGrid().free();
+        }
     }
 
     @Override
@@ -113,7 +265,13 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
      */
     public void paintComponent(Graphics g) {
         g.setFont(mainFont);
-        matrix.drawMatrix(g);
+        matrix.drawMatrix(g, view, engines.getTracker());
+        if (heatmap != null) {
+            heatmap.draw(g, view);
+        }
+        if (locator != null) {
+            paintHits(g);
+        }
         if (showStatus) {
             paintStatus(g);
             g.setFont(mainFont);
@@ -128,9 +286,23 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
         }
     }
 
+    /** Outlines every occurrence of the located pattern and
+     *  shows how many were found.
+     *
+     * @param g graphics
+     */
+    public void paintHits(Graphics g) {
+        g.setColor(mainColor);
+        for (Locator.Hit hit : hits) {
+            view.drawBox(g, hit.getX(), hit.getY(), hit.getRows(), hit.getColumns());
+        }
+        g.setColor(Color.white);
+        g.drawString(hits.size() + " x " + locator.getTemplate().getName(), 10, AppDriver.HEIGHT - 10);
+    }
+
     /** Displays an indicator if the
-     *  simulation is running and number
-     *  of ticks.
+     *  simulation is running, number
+     *  of ticks, and stepping engine.
      *
      * @param g graphics
      */
@@ -157,7 +329,7 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
         g2.fill(status);
         g2.setColor(Color.white);
 
-        if (!wrapEnabled) {
+        if (topology != Topology.TORUS) {
             g2.draw(tickBox);
         }
 
@@ -180,6 +352,22 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
         pX += ((boxWidth - dX) / 2);
 
         g2.drawString(digits, pX, pY);
+
+        //engine and its migration cost below the box
+        g2.setFont(mainFont);
+        String engine = engines.getStatus();
+        metrics = getFontMetrics(mainFont);
+        g2.drawString(engine, AppDriver.WIDTH - border - metrics.stringWidth(engine),
+                border + boxHeight + metrics.getAscent() + 2);
+
+        //living cells and their extent, tracked by the engine
+        int[] bounds = engines.getBounds();
+        String live = engines.getPopulation() + " alive";
+        if (bounds != null) {
+            live += " (" + (bounds[2] - bounds[0] + 1) + "x" + (bounds[3] - bounds[1] + 1) + ")";
+        }
+        g2.drawString(live, AppDriver.WIDTH - border - metrics.stringWidth(live),
+                border + boxHeight + 2 * metrics.getAscent() + 4);
     }
 
     /** Displays the keycodes to
@@ -192,14 +380,22 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
         //list of menu items
         String[] menuItems = {"Automata"
                                     + " (" + numRows + "x" + numColumns + ") "
-                                    + "(" + delay + "ms)",
+                                    + "(" + delay + "ms) "
+                                    + "(" + topology + ")",
                                 "Toggle Simulation [SPACE]",
-                                "Resize Grid [Q/E]",
+                                "Resize Grid [Q/E, SHIFT x2]",
+                                "Zoom [WHEEL, +/-]",
+                                "Pan [RIGHT DRAG, ARROWS]",
+                                "Fit View [F]",
                                 "Change Speed [A/D]",
-                                "Wrap-Around Grid [W]",
+                                "Cycle Topology [W]",
                                 "Generate Random Seed [S]",
                                 "Save [Z]",
+                                "Checkpoint [P]",
+                                "Print Census [I]",
                                 "Toggle Grid [X]",
+                                "Toggle Heatmap [G]",
+                                "Locate Pattern [O]",
                                 "Clear [C]",
                                 "Open Database [J]",
                                 "Navigate Database [U/N]",
@@ -274,9 +470,22 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
     public void mousePressed(MouseEvent e) {
         int button = e.getButton();
         if(button == MouseEvent.BUTTON1) {
-            Cell cell = matrix.findCellAt(mouseX, mouseY);
-            if (cell != null) cell.flip();
+            int[] cell = matrix.findCellAt(mouseX, mouseY, view);
+            if (cell != null) {
+                matrix.flip(cell[0], cell[1]);
+                seed = null;
+                if (locator != null) {
+                    //searches again only around the flipped cell
+                    PackedGrid grid = matrix.getGrid();
+                    pendingTiles.set(cell[0] / PackedGrid.TILE_ROWS * grid.getWordsPerRow() + (cell[1] >>> 6));
+                    hitsModCount = grid.getModCount();
+                    relocate();
+                }
+            }
         }
+        //anchors panning
+        mouseX = e.getX();
+        mouseY = e.getY();
         repaint();
     }
 
@@ -325,7 +534,24 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
      */
     @Override
     public void mouseDragged(MouseEvent e) {
+        if (SwingUtilities.isRightMouseButton(e)) {
+            //pans view on right drag
+            view.pan(e.getX() - mouseX, e.getY() - mouseY);
+            mouseX = e.getX();
+            mouseY = e.getY();
+            repaint();
+        }
+    }
 
+    /**
+     * Zooms view around the mouse on scroll.
+     *
+     * @param e the event to be processed
+     */
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        view.zoom(Math.pow(zoomStep, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+        repaint();
     }
 
     /**
@@ -338,8 +564,8 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
         mouseX = e.getX();
         mouseY = e.getY();
         matrix.clearSpotlight();
-        Cell cell = matrix.findCellAt(mouseX, mouseY);
-        if (cell != null) cell.spotlight();
+        int[] cell = matrix.findCellAt(mouseX, mouseY, view);
+        if (cell != null) matrix.spotlight(cell[0], cell[1]);
         repaint();
     }
 
@@ -377,6 +603,10 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
             //toggles simulation on space-bar
             if(timer.isRunning()) {
                 timer.stop();
+                if (locator != null) {
+                    //catches up on generations whose search was deferred
+                    relocate();
+                }
             }
             else {
                 timer.start();
@@ -404,30 +634,90 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
             timer.setDelay(delay);
         }
         if(e.getKeyCode() == KeyEvent.VK_E) {
-            //increases grid size on 'E'
-            if (numRows < AppDriver.WIDTH / 3) {
+            //increases grid size on 'E', doubles with shift
+            int i = e.isShiftDown() ? numRows : increment;
+            if (numRows + i <= maxSize) {
                 numTicks = 0;
-                changeGrid(increment);
-                matrix.randomSeed(maxP);
+                changeGrid(i);
+                reseed();
             }
         }
         if(e.getKeyCode() == KeyEvent.VK_Q) {
-            //decreases grid size on 'Q'
-            if (numRows > increment) {
+            //decreases grid size on 'Q', halves with shift
+            int i = e.isShiftDown() ? numRows / 2 : increment;
+            if (numRows > i && i > 0) {
                 numTicks = 0;
-                changeGrid(-1 * increment);
-                matrix.randomSeed(maxP);
+                changeGrid(-1 * i);
+                reseed();
             }
         }
+        if (e.getKeyCode() == KeyEvent.VK_F) {
+            //fits grid to window on 'F'
+            view.fit(numRows, numColumns);
+        }
+        if (e.getKeyCode() == KeyEvent.VK_EQUALS || e.getKeyCode() == KeyEvent.VK_ADD) {
+            //zooms in around center on '+'
+            view.zoom(zoomStep, AppDriver.WIDTH / 2, AppDriver.HEIGHT / 2);
+        }
+        if (e.getKeyCode() == KeyEvent.VK_MINUS || e.getKeyCode() == KeyEvent.VK_SUBTRACT) {
+            //zooms out around center on '-'
+            view.zoom(1 / zoomStep, AppDriver.WIDTH / 2, AppDriver.HEIGHT / 2);
+        }
+        if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+            view.pan(panStep, 0);
+        }
+        if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+            view.pan(-panStep, 0);
+        }
+        if (e.getKeyCode() == KeyEvent.VK_UP) {
+            view.pan(0, panStep);
+        }
+        if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+            view.pan(0, -panStep);
+        }
         if (e.getKeyCode() == KeyEvent.VK_X) {
             //turns grid on and off on 'X'
             Cell.gridEnabled = !Cell.gridEnabled;
         }
         if (e.getKeyCode() == KeyEvent.VK_Z) {
-            // Saves Cell Matrix on 'Z'
-            database.add(matrix.toMatrixData());
+            // Saves Cell Matrix on 'Z' unless already saved, cropped to the living cells
+            MatrixData m;
+            if (seed != null) {
+                //an unstepped soup is saved whole with its seed, so it can be regenerated
+                m = matrix.toMatrixData();
+                m.setSeed(seed, maxP);
+            }
+            else {
+                m = matrix.toMatrixData(engines.getBounds());
+            }
+            if (!database.addIfAbsent(m)) {
+                System.out.println("Pattern Already Saved");
+            }
 
         }
+        if (e.getKeyCode() == KeyEvent.VK_P) {
+            // Checkpoints simulation in the background on 'P'
+            checkpointWriter.writeAsync(checkpoint());
+        }
+        if (e.getKeyCode() == KeyEvent.VK_I) {
+            //prints object census on 'I'
+            PackedGrid snapshot = PackedGrid.fromCellMatrix(matrix);
+            System.out.println(new Census(snapshot, topology));
+            snapshot.free();
+        }
+        if (e.getKeyCode() == KeyEvent.VK_G) {
+            //toggles activity heatmap on 'G'
+            heatmap = heatmap == null ? new Heatmap(matrix.getGrid(), Heatmap.DEFAULT_HALF_LIFE) : null;
+        }
+        if (e.getKeyCode() == KeyEvent.VK_O) {
+            //locates a Database pattern on 'O', or stops locating
+            if (locator != null) {
+                locator = null;
+            }
+            else {
+                locate();
+            }
+        }
         if (e.getKeyCode() == KeyEvent.VK_R) {
             //toggles status on 'R'
             showStatus = !showStatus;
@@ -442,19 +732,20 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
             indexDatabase = -1;
         }
         if (e.getKeyCode() == KeyEvent.VK_W) {
-            //toggles wrap around on 'W'
-            wrapEnabled = !wrapEnabled;
+            //cycles dead edge, torus, cylinder and Klein bottle on 'W'
+            topology = topology.next();
             repaint();
         }
         if (e.getKeyCode() == KeyEvent.VK_S) {
             //randomizes matrix seed on 'S'
             matrix.genocide();
-            matrix.randomSeed(maxP);
+            reseed();
             numTicks = 0;
         }
         if (e.getKeyCode() == KeyEvent.VK_C) {
             //kills all cells on 'C'
             matrix.genocide();
+            seed = null;
             numTicks = 0;
         }
         if (showDatabase && database.databaseSize() > 0) {
@@ -523,19 +814,66 @@ public class MainPanel extends JPanel implements MouseListener, MouseMotionListe
                 indexDatabase = -1;
             }
         }
+        if (locator != null && matrix.getGrid().getModCount() != hitsModCount) {
+            //cleared or reseeded
+            locateAll();
+        }
         repaint();
     }
 
+    /** Searches the whole grid for the located pattern. */
+    private void locateAll() {
+        long start = System.nanoTime();
+        hits = locator.locate(matrix.getGrid());
+        hitsModCount = matrix.getGrid().getModCount();
+        pendingTiles.clear();
+        lastLocate = System.nanoTime();
+        locateNanos = lastLocate - start;
+    }
+
+    /** Searches again around the tiles changed since the last search. */
+    private void relocate() {
+        long start = System.nanoTime();
+        hits = locator.relocate(matrix.getGrid(), hits, pendingTiles);
+        pendingTiles.clear();
+        lastLocate = System.nanoTime();
+        locateNanos = lastLocate - start;
+    }
+
+    /** Prompts for a Database pattern, by index or name, and
+     *  highlights its occurrences in every orientation.
+     */
+    private void locate() {
+        String s = (String) JOptionPane.showInputDialog(
+                this, "Pattern to Locate (Index or Name):", "Locate",
+                JOptionPane.PLAIN_MESSAGE, null, null, indexDatabase > -1 ? String.valueOf(indexDatabase) : "");
+        if (s == null) {
+            return;
+        }
+        for (int i = 0; i < database.databaseSize(); i++) {
+            MatrixData m = database.get(i);
+            if ((m.getName().equals(s) || String.valueOf(i).equals(s.trim())) && m.getNumCells() > 0) {
+                locator = new Locator(m, true);
+                locateAll();
+                return;
+            }
+        }
+        System.out.println("ERROR: No Pattern in Database: " + s);
+    }
+
     /** Accesses MatrixData from internal index and
      *  updates numRows, numColumns and matrix
      */
     private void importFromDatabase() {
         MatrixData m = database.get(indexDatabase);
-        int[] size = m.getSize();
-        numRows = size[0];
-        numColumns = size[1];
+        //cropped patterns return to where they were, in a grid of the size they were saved from
+        PackedGrid grid = m.toPackedGrid();
+        numRows = grid.getNumRows();
+        numColumns = grid.getNumColumns();
         numTicks = 0;
-        matrix = m.toCellMatrix();
+        replaceMatrix(grid);
+        view.fit(numRows, numColumns);
+        seed = m.hasSeed() ? m.getSeed() : null;
         repaint();
     }
 
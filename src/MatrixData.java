@@ -1,4 +1,5 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /** MatrixData class assigns a name to
  *  a CellMatrix's and stores the size
@@ -9,7 +10,24 @@ import java.util.ArrayList;
 public class MatrixData {
     private String name;
     private int[] size;
-    private ArrayList<int[]> cells;
+    //living cells, either sorted coordinates (x << 32 | y)
+    //or for dense patterns the packed words of a PackedGrid
+    private long[] cells;
+    private long[] bitmap;
+    private int numCells;
+    //position of the box in the grid the pattern was cropped from, and that grid's size, null if not cropped
+    private int[] offset;
+    private int[] gridSize;
+    //seed and density of the soup the pattern came from
+    private boolean seeded = false;
+    private long seed;
+    private double density;
+    //cached canonical hashes, translation only and with symmetries;
+    //the canonical forms themselves are recomputed when needed
+    private long canonicalHash;
+    private long symmetricHash;
+    private boolean hashed = false;
+    private boolean symmetricHashed = false;
 
     /** 3-arg constructor instantiates name, size, and cells.
      *
@@ -18,9 +36,7 @@ public class MatrixData {
      * @param cells Arraylist of Living Cell Coordinates [x,y]
      */
     public MatrixData(String name, int[] size, ArrayList<int[]> cells) {
-        this.name = name;
-        this.size = size;
-        this.cells = cells;
+        this(name, size, encode(cells));
     }
 
     /** 2-arg Constructor instantiates size and cells with
@@ -30,9 +46,152 @@ public class MatrixData {
      * @param cells Arraylist of Living Cell Coordinates [x,y]
      */
     public MatrixData(int[] size, ArrayList<int[]> cells) {
-        this.name = "CellMatrix_(" + size[0] + "x" + size[1] + ")";
+        this(defaultName(size), size, encode(cells));
+    }
+
+    /** 3-arg constructor instantiates name, size, and packed cells.
+     *
+     * @param name matrix name
+     * @param size grid size [x,y]
+     * @param cells Living Cell Coordinates encoded as (x << 32 | y),
+     *              in any order; the array is kept
+     */
+    public MatrixData(String name, int[] size, long[] cells) {
+        this.name = name;
         this.size = size;
+        Arrays.sort(cells);
         this.cells = cells;
+        this.numCells = cells.length;
+        //packs dense patterns as a bitmap
+        if (numCells > (long) size[0] * PackedGrid.wordsPerRow(size[1]) && inBounds()) {
+            PackedGrid temp = toPackedGrid();
+            bitmap = temp.getWords();
+            numCells = (int) temp.population();
+            this.cells = null;
+        }
+    }
+
+    /** 2-arg constructor instantiates size and packed cells with
+     *  default name of "CellMatrix_(W*H)"
+     *
+     * @param size grid size [x,y]
+     * @param cells Living Cell Coordinates encoded as (x << 32 | y),
+     *              in any order; the array is kept
+     */
+    public MatrixData(int[] size, long[] cells) {
+        this(defaultName(size), size, cells);
+    }
+
+    /** 1-arg constructor copies the living cells of a grid,
+     *  with default name of "CellMatrix_(W*H)".
+     *
+     * @param grid cells to be stored
+     */
+    public MatrixData(PackedGrid grid) {
+        this.size = new int[] {grid.getNumRows(), grid.getNumColumns()};
+        this.name = defaultName(size);
+        //read row by row, so off-heap grids are never copied whole
+        int wordsPerRow = grid.getWordsPerRow();
+        long population = grid.population();
+        if (population > (long) size[0] * wordsPerRow) {
+            //copies words, cheaper than coordinates when dense
+            bitmap = new long[size[0] * wordsPerRow];
+            for (int x = 0; x < size[0]; x++) {
+                grid.readRow(x, bitmap, x * wordsPerRow);
+            }
+        }
+        else {
+            cells = new long[(int) population];
+            int n = 0;
+            long[] row = new long[wordsPerRow];
+            for (int x = 0; x < size[0]; x++) {
+                grid.readRow(x, row, 0);
+                for (int i = 0; i < wordsPerRow; i++) {
+                    //visits living cells only, in sorted order
+                    long w = row[i];
+                    int y = i << 6;
+                    while (w != 0) {
+                        cells[n++] = (long) x << 32 | (y + Long.numberOfTrailingZeros(w));
+                        w &= w - 1;
+                    }
+                }
+            }
+        }
+        numCells = (int) population;
+    }
+
+    /** 2-arg constructor copies the living cells of a grid within
+     *  a box, reading only the words the box covers. The pattern
+     *  is cropped to the box, with the box origin as its offset
+     *  and the grid size kept to rebuild it.
+     *
+     * @param grid cells to be stored
+     * @param box {minX, minY, maxX, maxY} holding every living cell
+     */
+    public MatrixData(PackedGrid grid, int[] box) {
+        this(defaultName(boxSize(box)), boxSize(box), crop(grid, box));
+        offset = new int[] {box[0], box[1]};
+        gridSize = new int[] {grid.getNumRows(), grid.getNumColumns()};
+    }
+
+    /** Returns the size of a box. */
+    private static int[] boxSize(int[] box) {
+        return new int[] {box[2] - box[0] + 1, box[3] - box[1] + 1};
+    }
+
+    /** Returns the living cells of grid within box, relative to its origin. */
+    private static long[] crop(PackedGrid grid, int[] box) {
+        long[] temp = new long[64];
+        int n = 0;
+        int minW = box[1] >>> 6;
+        int maxW = box[3] >>> 6;
+        for (int x = box[0]; x <= box[2]; x++) {
+            for (int i = minW; i <= maxW; i++) {
+                long w = grid.getWord(x, i);
+                //clips the outer words to the box
+                if (i == minW) {
+                    w &= -1L << box[1];
+                }
+                if (i == maxW) {
+                    w &= -1L >>> 63 - (box[3] & 63);
+                }
+                while (w != 0) {
+                    if (n == temp.length) {
+                        temp = Arrays.copyOf(temp, 2 * n);
+                    }
+                    int y = (i << 6) + Long.numberOfTrailingZeros(w);
+                    temp[n++] = (long) (x - box[0]) << 32 | (y - box[1]);
+                    w &= w - 1;
+                }
+            }
+        }
+        return Arrays.copyOf(temp, n);
+    }
+
+    /** Returns the name given to unnamed matrices. */
+    private static String defaultName(int[] size) {
+        return "CellMatrix_(" + size[0] + "x" + size[1] + ")";
+    }
+
+    /** Returns true if every cell lies within size. */
+    private boolean inBounds() {
+        for (long cell : cells) {
+            int x = (int) (cell >> 32);
+            int y = (int) cell;
+            if (x < 0 || x >= size[0] || y < 0 || y >= size[1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Encodes cells as (x << 32 | y). */
+    private static long[] encode(ArrayList<int[]> cells) {
+        long[] temp = new long[cells.size()];
+        for (int i = 0; i < temp.length; i++) {
+            temp[i] = (long) cells.get(i)[0] << 32 | (cells.get(i)[1] & 0xFFFFFFFFL);
+        }
+        return temp;
     }
 
     /** Setter Method for Name
@@ -59,12 +218,218 @@ public class MatrixData {
         return size;
     }
 
-    /** Accessor Method for Cells Arraylist
+    /** Accessor Method for Offset
+     *
+     * @return position [x,y] of the pattern in the grid it was cropped from, null if not cropped
+     */
+    public int[] getOffset() {
+        return offset;
+    }
+
+    /** Accessor Method for Grid Size
+     *
+     * @return size [x,y] of the grid the pattern was cropped from, null if not cropped
+     */
+    public int[] getGridSize() {
+        return gridSize;
+    }
+
+    /** Records where a cropped pattern lies in its grid.
+     *
+     * @param offset position [x,y] of the pattern in its grid
+     * @param gridSize size [x,y] of the grid it was cropped from
+     */
+    public void setOffset(int[] offset, int[] gridSize) {
+        this.offset = offset;
+        this.gridSize = gridSize;
+    }
+
+    /** Records the soup the pattern was generated from.
+     *
+     * @param seed 64-bit seed, see Seeder
+     * @param density % chance for cell to be alive
+     */
+    public void setSeed(long seed, double density) {
+        this.seeded = true;
+        this.seed = seed;
+        this.density = density;
+    }
+
+    /** Returns true if the pattern came from a recorded soup.
+     *
+     * @return true if seed and density are known
+     */
+    public boolean hasSeed() {
+        return seeded;
+    }
+
+    /** Accessor Method for Seed
+     *
+     * @return 64-bit seed of the soup
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Accessor Method for Density
+     *
+     * @return density of the soup
+     */
+    public double getDensity() {
+        return density;
+    }
+
+    /** Accessor Method for Cells Arraylist, built on each call
      *
      * @return ArrayList of living Cells coordinates
      */
     public ArrayList<int[]> getCells() {
-        return cells;
+        long[] temp = getPackedCells();
+        ArrayList<int[]> list = new ArrayList<>(temp.length);
+        for (long cell : temp) {
+            list.add(new int[] {(int) (cell >> 32), (int) cell});
+        }
+        return list;
+    }
+
+    /** Returns the living cells encoded as (x << 32 | y), sorted.
+     *  The array must not be modified.
+     *
+     * @return packed living cell coordinates
+     */
+    public long[] getPackedCells() {
+        if (cells != null) {
+            return cells;
+        }
+        //decodes the bitmap
+        long[] temp = new long[numCells];
+        int n = 0;
+        int wordsPerRow = PackedGrid.wordsPerRow(size[1]);
+        for (int i = 0; i < bitmap.length; i++) {
+            long w = bitmap[i];
+            long x = (long) (i / wordsPerRow) << 32;
+            int y = (i % wordsPerRow) << 6;
+            while (w != 0) {
+                temp[n++] = x | (y + Long.numberOfTrailingZeros(w));
+                w &= w - 1;
+            }
+        }
+        return temp;
+    }
+
+    /** Accessor Method for the number of living cells
+     *
+     * @return number of living cells
+     */
+    public int getNumCells() {
+        return numCells;
+    }
+
+    /** Returns the living cells translated so the bounding box
+     *  starts at [0,0], encoded as (x << 32 | y) and sorted. If
+     *  symmetric, the lexicographically smallest such form over
+     *  all 8 rotations and reflections is returned instead.
+     *  Computed on every call, not kept.
+     *
+     * @param symmetric true to ignore rotation and reflection
+     * @return canonical live-cell set
+     */
+    public long[] canonicalCells(boolean symmetric) {
+        if (!symmetric) {
+            return normalize(0);
+        }
+        long[] best = normalize(0);
+        for (int t = 1; t < 8; t++) {
+            long[] temp = normalize(t);
+            if (Arrays.compare(temp, best) < 0) {
+                best = temp;
+            }
+        }
+        return best;
+    }
+
+    /** Returns the living cells in one of 8 orientations,
+     *  translated so the bounding box starts at [0,0].
+     *
+     * @param t bit 0 mirrors x, bit 1 mirrors y, bit 2 swaps x and y
+     * @return packed cells (x << 32 | y), sorted
+     */
+    public long[] orientedCells(int t) {
+        return normalize(t);
+    }
+
+    /** Applies transform t to all cells and normalizes them.
+     *  Bit 0 of t mirrors x, bit 1 mirrors y, bit 2 swaps x and y.
+     */
+    private long[] normalize(int t) {
+        long[] packed = getPackedCells();
+        int n = packed.length;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            int x = (int) (packed[i] >> 32);
+            int y = (int) packed[i];
+            if ((t & 1) != 0) x = -x;
+            if ((t & 2) != 0) y = -y;
+            if ((t & 4) != 0) {
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+            xs[i] = x;
+            ys[i] = y;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+        }
+        long[] temp = new long[n];
+        for (int i = 0; i < n; i++) {
+            temp[i] = (long) (xs[i] - minX) << 32 | (ys[i] - minY);
+        }
+        Arrays.sort(temp);
+        return temp;
+    }
+
+    /** Returns a hash of the canonical live-cell set, equal
+     *  for patterns that differ only by translation (and
+     *  rotation or reflection if symmetric).
+     *
+     * @param symmetric true to ignore rotation and reflection
+     * @return canonical hash
+     */
+    public long canonicalHash(boolean symmetric) {
+        if (symmetric ? symmetricHashed : hashed) {
+            return symmetric ? symmetricHash : canonicalHash;
+        }
+        long h = 0x9E3779B97F4A7C15L;
+        for (long cell : canonicalCells(symmetric)) {
+            h = (h ^ cell) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        //keeps only the hash, the canonical form may be as large as the pattern
+        if (symmetric) {
+            symmetricHash = h;
+            symmetricHashed = true;
+        }
+        else {
+            canonicalHash = h;
+            hashed = true;
+        }
+        return h;
+    }
+
+    /** Returns true if both contain the same pattern.
+     *
+     * @param m MatrixData to be compared
+     * @param symmetric true to ignore rotation and reflection
+     * @return true if canonical live-cell sets are equal
+     */
+    public boolean isSamePattern(MatrixData m, boolean symmetric) {
+        if (canonicalHash(symmetric) != m.canonicalHash(symmetric) || numCells != m.numCells) {
+            return false;
+        }
+        return Arrays.equals(canonicalCells(symmetric), m.canonicalCells(symmetric));
     }
 
     /** Converts Matrix Data to CellMatrix
@@ -72,20 +437,69 @@ public class MatrixData {
      * @return CellMatrix of size with all cells revived
      */
     public CellMatrix toCellMatrix() {
-        CellMatrix temp = new CellMatrix(size[0], size[1]);
-        for (int[] cell : cells) {
-            temp.getCell(cell[0], cell[1]).revive();
+        return new CellMatrix(toPackedGrid());
+    }
+
+    /** Converts Matrix Data to a PackedGrid of another size,
+     *  with the pattern placed at its offset, if cropped, and
+     *  clipped.
+     *
+     * @param numRows grid length
+     * @param numColumns grid height
+     * @return PackedGrid with the cells revived
+     */
+    public PackedGrid toPackedGrid(int numRows, int numColumns) {
+        PackedGrid temp = new PackedGrid(numRows, numColumns);
+        long[] words = temp.getWords();
+        int wordsPerRow = temp.getWordsPerRow();
+        int dX = offset == null ? 0 : offset[0];
+        int dY = offset == null ? 0 : offset[1];
+        for (long cell : getPackedCells()) {
+            int x = (int) (cell >> 32) + dX;
+            int y = (int) cell + dY;
+            if (x < numRows && y < numColumns) {
+                words[x * wordsPerRow + (y >>> 6)] |= 1L << y;
+            }
+        }
+        return temp;
+    }
+
+    /** Converts Matrix Data to PackedGrid, rebuilding the
+     *  grid a cropped pattern was taken from.
+     *
+     * @return PackedGrid of size, or of the grid size if cropped, with all cells revived
+     */
+    public PackedGrid toPackedGrid() {
+        if (offset != null) {
+            return toPackedGrid(gridSize[0], gridSize[1]);
+        }
+        if (bitmap != null) {
+            return new PackedGrid(size[0], size[1], bitmap.clone());
+        }
+        PackedGrid temp = new PackedGrid(size[0], size[1]);
+        long[] words = temp.getWords();
+        int wordsPerRow = temp.getWordsPerRow();
+        for (long cell : cells) {
+            int y = (int) cell;
+            words[(int) (cell >> 32) * wordsPerRow + (y >>> 6)] |= 1L << y;
         }
         return temp;
     }
 
     @Override
     public String toString() {
-        String temp = "\"" + name + "\"";
-        temp += "##(" + size[0] + "x" + size[1] + ")";
-        for (int[] cell : cells) {
-            temp += "##[" + cell[0] + "," + cell[1] + "]";
+        StringBuilder temp = new StringBuilder("\"" + name + "\"");
+        temp.append("##(").append(size[0]).append("x").append(size[1]).append(")");
+        if (seeded) {
+            temp.append("##{").append(seed).append(",").append(density).append("}");
         }
-        return temp;
+        if (offset != null) {
+            temp.append("##<").append(offset[0]).append(",").append(offset[1]).append(",")
+                    .append(gridSize[0]).append(",").append(gridSize[1]).append(">");
+        }
+        for (long cell : getPackedCells()) {
+            temp.append("##[").append((int) (cell >> 32)).append(",").append((int) cell).append("]");
+        }
+        return temp.toString();
     }
 }
@@ -0,0 +1,161 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.function.IntFunction;
+
+/** OffHeapWords class keeps packed words outside
+ *  the Java heap, so large grids add nothing to
+ *  garbage collector marking or old generation
+ *  size. Words are held in direct buffers of up
+ *  to CHUNK_WORDS each and indexed by long.
+ *
+ *  Direct buffers are freed only once collected;
+ *  allocate() prefers SegmentWords, which frees
+ *  its memory as soon as it is closed.
+ *
+ * @author RMizelle
+ */
+public class OffHeapWords implements AutoCloseable {
+    //words per buffer, keeping each under the 2GB buffer limit
+    private static final int CHUNK_SHIFT = 27;
+    private static final int CHUNK_WORDS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_WORDS - 1;
+
+    private final long length;
+    private LongBuffer[] chunks;
+
+    /** 1-arg constructor allocates zeroed words in direct buffers.
+     *
+     * @param length number of words
+     */
+    public OffHeapWords(long length) {
+        this(length, ByteBuffer::allocateDirect);
+    }
+
+    /** 2-arg constructor allocates zeroed words in buffers
+     *  supplied by a subclass.
+     *
+     * @param length number of words
+     * @param allocator returns a zeroed buffer of the given bytes
+     */
+    protected OffHeapWords(long length, IntFunction<ByteBuffer> allocator) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        this.length = length;
+        chunks = new LongBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int c = 0; c < chunks.length; c++) {
+            long n = Math.min(CHUNK_WORDS, length - ((long) c << CHUNK_SHIFT));
+            chunks[c] = allocator.apply((int) (8 * n)).order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+    }
+
+    /** Returns the best storage available. Memory segments are
+     *  used when the jdk.incubator.foreign module is present
+     *  (--add-modules jdk.incubator.foreign), else direct buffers.
+     *
+     * @param length number of words
+     * @return zeroed words
+     */
+    public static OffHeapWords allocate(long length) {
+        try {
+            //loaded reflectively so the module stays optional
+            return (OffHeapWords) Class.forName("SegmentWords").getDeclaredConstructor(long.class).newInstance(length);
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            //module unavailable, falls through to direct buffers
+        }
+        return new OffHeapWords(length);
+    }
+
+    /** Accessor Method for Length
+     *
+     * @return number of words
+     */
+    public long length() {
+        return length;
+    }
+
+    /** Returns word i.
+     *
+     * @param i word index
+     * @return packed word
+     */
+    public long get(long i) {
+        return chunks[(int) (i >>> CHUNK_SHIFT)].get((int) i & CHUNK_MASK);
+    }
+
+    /** Sets word i.
+     *
+     * @param i word index
+     * @param w packed word
+     */
+    public void set(long i, long w) {
+        chunks[(int) (i >>> CHUNK_SHIFT)].put((int) i & CHUNK_MASK, w);
+    }
+
+    /** Copies words [from, from + length) into dst.
+     *
+     * @param from first word
+     * @param dst destination
+     * @param offset first index of dst
+     * @param length number of words
+     */
+    public void read(long from, long[] dst, int offset, int length) {
+        while (length > 0) {
+            int i = (int) from & CHUNK_MASK;
+            int n = Math.min(length, CHUNK_WORDS - i);
+            chunks[(int) (from >>> CHUNK_SHIFT)].get(i, dst, offset, n);
+            from += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /** Copies words of src into [from, from + length).
+     *
+     * @param from first word
+     * @param src source
+     * @param offset first index of src
+     * @param length number of words
+     */
+    public void write(long from, long[] src, int offset, int length) {
+        while (length > 0) {
+            int i = (int) from & CHUNK_MASK;
+            int n = Math.min(length, CHUNK_WORDS - i);
+            chunks[(int) (from >>> CHUNK_SHIFT)].put(i, src, offset, n);
+            from += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /** Zeroes every word. */
+    public void clear() {
+        long[] zeros = new long[(int) Math.min(length, 1 << 16)];
+        for (long i = 0; i < length; i += zeros.length) {
+            write(i, zeros, 0, (int) Math.min(zeros.length, length - i));
+        }
+    }
+
+    /** Returns an independent copy in the same kind of storage.
+     *
+     * @return copy of words
+     */
+    public OffHeapWords copy() {
+        OffHeapWords temp = allocate(length);
+        long[] buffer = new long[(int) Math.min(length, 1 << 16)];
+        for (long i = 0; i < length; i += buffer.length) {
+            int n = (int) Math.min(buffer.length, length - i);
+            read(i, buffer, 0, n);
+            temp.write(i, buffer, 0, n);
+        }
+        return temp;
+    }
+
+    /** Drops the buffers, which are freed once collected. */
+    @Override
+    public void close() {
+        chunks = new LongBuffer[0];
+    }
+}
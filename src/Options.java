@@ -0,0 +1,98 @@
+import java.util.HashMap;
+
+/** Options class parses command line arguments
+ *  of the form "command --key value --flag".
+ *
+ * @author RMizelle
+ */
+public class Options {
+    private final String command;
+    private final HashMap<String, String> values;
+
+    /** 1-arg constructor parses arguments.
+     *
+     * @param args command line arguments
+     */
+    public Options(String[] args) {
+        values = new HashMap<>();
+        int i = 0;
+        //first argument names the command unless it is an option
+        if (args.length > 0 && !args[0].startsWith("--")) {
+            command = args[0];
+            i++;
+        }
+        else {
+            command = "";
+        }
+        for (; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            //flags have no value
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                values.put(key, args[++i]);
+            }
+            else {
+                values.put(key, "true");
+            }
+        }
+    }
+
+    /** Accessor Method for Command
+     *
+     * @return command name, empty if none
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /** Returns true if option was given.
+     *
+     * @param key option name
+     * @return true if present
+     */
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    /** Returns option value or default.
+     *
+     * @param key option name
+     * @param def default value
+     * @return value of option
+     */
+    public String getString(String key, String def) {
+        return values.getOrDefault(key, def);
+    }
+
+    /** Returns option value as int or default.
+     *
+     * @param key option name
+     * @param def default value
+     * @return value of option
+     */
+    public int getInt(String key, int def) {
+        return has(key) ? Integer.parseInt(values.get(key)) : def;
+    }
+
+    /** Returns option value as long or default.
+     *
+     * @param key option name
+     * @param def default value
+     * @return value of option
+     */
+    public long getLong(String key, long def) {
+        return has(key) ? Long.parseLong(values.get(key)) : def;
+    }
+
+    /** Returns option value as double or default.
+     *
+     * @param key option name
+     * @param def default value
+     * @return value of option
+     */
+    public double getDouble(String key, double def) {
+        return has(key) ? Double.parseDouble(values.get(key)) : def;
+    }
+}
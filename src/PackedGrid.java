@@ -0,0 +1,969 @@
+/** PackedGrid class stores a grid of cells
+ *  as bits packed into 64-bit words and
+ *  advances it a generation at a time,
+ *  64 cells per operation.
+ *
+ *  Row x holds the cells [x,0]..[x,numColumns - 1],
+ *  matching the indexing of CellMatrix.
+ *
+ *  Words are kept in a long[] or, for grids made by
+ *  offHeap(), in OffHeapWords outside the heap. Off-heap
+ *  grids are read and written a row at a time and step
+ *  through a small on-heap band of rows.
+ *
+ * @author RMizelle
+ */
+public class PackedGrid {
+    //fastest kernel available on this JVM
+    private static final StepKernel DEFAULT_KERNEL = StepKernel.best();
+    //rows of an off-heap grid stepped at a time
+    private static final int BAND_ROWS = 64;
+    //rows of a tile tracked by stepActive, one word wide
+    public static final int TILE_ROWS = 16;
+
+    private final int numRows;
+    private final int numColumns;
+    private final int wordsPerRow;
+    //valid bits of the last word in each row
+    private final long lastMask;
+    private long[] words;
+    private long[] scratch;
+    //words with a ghost row above and below and a ghost word either side, stepped from
+    private long[] padded;
+    //off-heap words, null if words are on the heap
+    private OffHeapWords store;
+    private OffHeapWords nextStore;
+    //padded rows of an off-heap grid, and their next generation
+    private long[] band;
+    private long[] bandNext;
+    private StepKernel kernel = DEFAULT_KERNEL;
+    //tiles next to a changed tile, reused by stepActive
+    private java.util.BitSet candidates;
+    //incremented by every edit made through the grid
+    private int modCount;
+
+    /** 2-arg constructor instantiates an empty grid.
+     *
+     * @param numRows grid length
+     * @param numColumns grid height
+     */
+    public PackedGrid(int numRows, int numColumns) {
+        this(numRows, numColumns, new long[numRows * wordsPerRow(numColumns)]);
+    }
+
+    /** 3-arg constructor wraps existing packed words.
+     *
+     * @param numRows grid length
+     * @param numColumns grid height
+     * @param words packed rows, wordsPerRow(numColumns) words per row
+     */
+    public PackedGrid(int numRows, int numColumns, long[] words) {
+        this(numRows, numColumns, words, null);
+        if (words.length != numRows * wordsPerRow) {
+            throw new IllegalArgumentException("Expected " + numRows * wordsPerRow + " words, found " + words.length);
+        }
+    }
+
+    private PackedGrid(int numRows, int numColumns, long[] words, OffHeapWords store) {
+        if (numRows < 1 || numColumns < 1) {
+            throw new IllegalArgumentException("Invalid grid size: " + numRows + "x" + numColumns);
+        }
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.wordsPerRow = wordsPerRow(numColumns);
+        this.lastMask = (numColumns & 63) == 0 ? -1L : (1L << (numColumns & 63)) - 1;
+        this.words = words;
+        this.store = store;
+    }
+
+    /** Returns an empty grid whose words are kept off the heap.
+     *  Call free() once the grid is no longer needed.
+     *
+     * @param numRows grid length
+     * @param numColumns grid height
+     * @return off-heap grid
+     */
+    public static PackedGrid offHeap(int numRows, int numColumns) {
+        return new PackedGrid(numRows, numColumns, null,
+                OffHeapWords.allocate((long) numRows * wordsPerRow(numColumns)));
+    }
+
+    /** Returns the number of words needed to pack a row.
+     *
+     * @param numColumns cells per row
+     * @return words per row
+     */
+    public static int wordsPerRow(int numColumns) {
+        return (numColumns + 63) >>> 6;
+    }
+
+    /** Accessor Method for numRows
+     *
+     * @return grid length
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /** Accessor Method for numColumns
+     *
+     * @return grid height
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    /** Accessor Method for wordsPerRow
+     *
+     * @return words per packed row
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /** Accessor Method for the mask of valid bits in a row's last word
+     *
+     * @return last word mask
+     */
+    public long getLastMask() {
+        return lastMask;
+    }
+
+    /** Returns true if words are kept off the heap.
+     *
+     * @return true for grids made by offHeap()
+     */
+    public boolean isOffHeap() {
+        return store != null;
+    }
+
+    /** Accessor Method for packed words. Changes to
+     *  the returned array are reflected in the grid.
+     *  Off-heap grids have no array; use readRow.
+     *
+     * @return packed rows
+     */
+    public long[] getWords() {
+        if (store != null) {
+            throw new IllegalStateException("Grid is off-heap, words must be read by row");
+        }
+        return words;
+    }
+
+    /** Returns word i of row x.
+     *
+     * @param x row
+     * @param i word within row
+     * @return packed word
+     */
+    public long getWord(int x, int i) {
+        if (store != null) {
+            return store.get((long) x * wordsPerRow + i);
+        }
+        return words[x * wordsPerRow + i];
+    }
+
+    /** Copies the words of row x into dst.
+     *
+     * @param x row
+     * @param dst destination
+     * @param offset first index of dst
+     */
+    public void readRow(int x, long[] dst, int offset) {
+        if (store != null) {
+            store.read((long) x * wordsPerRow, dst, offset, wordsPerRow);
+        }
+        else {
+            System.arraycopy(words, x * wordsPerRow, dst, offset, wordsPerRow);
+        }
+    }
+
+    /** Replaces the words of row x with words of src.
+     *
+     * @param x row
+     * @param src source
+     * @param offset first index of src
+     */
+    public void writeRow(int x, long[] src, int offset) {
+        modCount++;
+        if (store != null) {
+            store.write((long) x * wordsPerRow, src, offset, wordsPerRow);
+        }
+        else {
+            System.arraycopy(src, offset, words, x * wordsPerRow, wordsPerRow);
+        }
+    }
+
+    /** Returns mortality of cell at position.
+     *
+     * @param pX position X
+     * @param pY position Y
+     * @return true if cell is alive
+     */
+    public boolean get(int pX, int pY) {
+        return (getWord(pX, pY >>> 6) >>> pY & 1L) != 0;
+    }
+
+    /** Sets mortality of cell at position.
+     *
+     * @param pX position X
+     * @param pY position Y
+     * @param alive mortality of cell
+     */
+    public void set(int pX, int pY, boolean alive) {
+        modCount++;
+        if (store != null) {
+            long i = (long) pX * wordsPerRow + (pY >>> 6);
+            long w = store.get(i);
+            store.set(i, alive ? w | 1L << pY : w & ~(1L << pY));
+            return;
+        }
+        int i = pX * wordsPerRow + (pY >>> 6);
+        if (alive) {
+            words[i] |= 1L << pY;
+        }
+        else {
+            words[i] &= ~(1L << pY);
+        }
+    }
+
+    /** Kills all cells. */
+    public void clear() {
+        modCount++;
+        if (store != null) {
+            store.clear();
+        }
+        else {
+            java.util.Arrays.fill(words, 0L);
+        }
+    }
+
+    /** Returns a count of the edits made through set, clear and
+     *  writeRow, so that callers can tell when the cells were
+     *  changed other than by stepping.
+     *
+     * @return number of edits
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /** Counts living cells.
+     *
+     * @return number of living cells
+     */
+    public long population() {
+        long num = 0;
+        if (store != null) {
+            long[] row = new long[wordsPerRow];
+            for (int x = 0; x < numRows; x++) {
+                readRow(x, row, 0);
+                for (long w : row) {
+                    num += Long.bitCount(w);
+                }
+            }
+            return num;
+        }
+        for (long w : words) {
+            num += Long.bitCount(w);
+        }
+        return num;
+    }
+
+    /** Returns the cells of word i of row x that changed since
+     *  the previous generation, which step leaves in its buffer.
+     *
+     * @param x row
+     * @param i word of row
+     * @return set bits for changed cells, 0 if the previous
+     *         generation is not kept
+     */
+    public long getChange(int x, int i) {
+        long k = (long) x * wordsPerRow + i;
+        if (store != null) {
+            return nextStore == null ? 0L : store.get(k) ^ nextStore.get(k);
+        }
+        return scratch == null ? 0L : words[(int) k] ^ scratch[(int) k];
+    }
+
+    /** Adds the cells born and killed since the previous
+     *  generation in each word column of rows [fromRow, toRow),
+     *  read row by row.
+     *
+     * @param fromRow first row, inclusive
+     * @param toRow last row, exclusive
+     * @param born cells born, by word of row
+     * @param killed cells killed, by word of row
+     */
+    public void countChanges(int fromRow, int toRow, int[] born, int[] killed) {
+        for (int x = fromRow; x < toRow; x++) {
+            int base = x * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                long now;
+                long change;
+                if (store != null) {
+                    now = getWord(x, i);
+                    change = getChange(x, i);
+                }
+                else {
+                    now = words[base + i];
+                    change = scratch == null ? 0L : now ^ scratch[base + i];
+                }
+                born[i] += Long.bitCount(change & now);
+                killed[i] += Long.bitCount(change & ~now);
+            }
+        }
+    }
+
+    /** Counts living cells and the cells born and killed since
+     *  the previous generation, which step leaves in its buffer,
+     *  in one pass. Edits since the step count as changes.
+     *
+     * @return {population, births, deaths}, null if the previous
+     *         generation is not kept
+     */
+    public long[] changeCounts() {
+        if (store != null ? nextStore == null : scratch == null) {
+            return null;
+        }
+        long population = 0;
+        long births = 0;
+        long deaths = 0;
+        long[] row = new long[wordsPerRow];
+        long[] last = new long[wordsPerRow];
+        for (int x = 0; x < numRows; x++) {
+            int base = 0;
+            long[] now = row;
+            long[] before = last;
+            if (store != null) {
+                readRow(x, row, 0);
+                nextStore.read((long) x * wordsPerRow, last, 0, wordsPerRow);
+            }
+            else {
+                base = x * wordsPerRow;
+                now = words;
+                before = scratch;
+            }
+            for (int i = base; i < base + wordsPerRow; i++) {
+                population += Long.bitCount(now[i]);
+                births += Long.bitCount(now[i] & ~before[i]);
+                deaths += Long.bitCount(before[i] & ~now[i]);
+            }
+        }
+        return new long[] {population, births, deaths};
+    }
+
+    /** Returns an independent copy of the grid, kept
+     *  on or off the heap as the grid is.
+     *
+     * @return copy of grid
+     */
+    public PackedGrid copy() {
+        return copy(store != null);
+    }
+
+    /** Returns an independent copy of the grid.
+     *
+     * @param offHeap true to keep the copy off the heap
+     * @return copy of grid
+     */
+    public PackedGrid copy(boolean offHeap) {
+        if (!offHeap && store == null) {
+            return new PackedGrid(numRows, numColumns, words.clone());
+        }
+        if (offHeap && store != null) {
+            return new PackedGrid(numRows, numColumns, null, store.copy());
+        }
+        PackedGrid temp = offHeap ? offHeap(numRows, numColumns) : new PackedGrid(numRows, numColumns);
+        long[] row = new long[wordsPerRow];
+        for (int x = 0; x < numRows; x++) {
+            readRow(x, row, 0);
+            temp.writeRow(x, row, 0);
+        }
+        return temp;
+    }
+
+    /** Accessor Method for Kernel
+     *
+     * @return kernel used by step
+     */
+    public StepKernel getKernel() {
+        return kernel;
+    }
+
+    /** Setter Method for Kernel
+     *
+     * @param kernel kernel to be used by step
+     */
+    public void setKernel(StepKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /** Advances grid one generation.
+     *
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     */
+    public void step(Rule rule, boolean wrapEnabled) {
+        step(rule, Topology.of(wrapEnabled));
+    }
+
+    /** Advances grid one generation with edges joined by a
+     *  topology. The words are copied into a buffer padded by a
+     *  ghost row above and below and a ghost word either side,
+     *  refreshed from the topology, so the kernel steps every
+     *  row alike without edge checks.
+     *
+     * @param rule birth/survival rule
+     * @param topology how edges are joined
+     */
+    public void step(Rule rule, Topology topology) {
+        step(rule, topology, 0, numRows);
+    }
+
+    /** Advances rows [fromRow, toRow) with edges joined by a
+     *  topology. Rows outside the range are left stale.
+     */
+    private void step(Rule rule, Topology topology, int fromRow, int toRow) {
+        if (store != null) {
+            stepBands(rule, topology, fromRow, toRow);
+            return;
+        }
+        if (scratch == null) {
+            scratch = new long[words.length];
+            padded = new long[(numRows + 2) * (wordsPerRow + 2)];
+        }
+        pad(padded, 0, numRows, topology);
+        kernel.stepRows(this, padded, scratch, fromRow, toRow, rule);
+        //migrates previous to current generation
+        long[] temp = words;
+        words = scratch;
+        scratch = temp;
+    }
+
+    /** Copies rows [fromRow, toRow) into dst, one padded row
+     *  each, between the rows either side of them. Each padded
+     *  row is a ghost word, the row's words and another ghost
+     *  word; rows and columns beyond the edges are filled as
+     *  the topology joins them.
+     *
+     * @param dst (toRow - fromRow + 2) * (wordsPerRow + 2) words
+     * @param fromRow first row, inclusive
+     * @param toRow last row, exclusive
+     * @param topology how edges are joined
+     */
+    public void pad(long[] dst, int fromRow, int toRow, Topology topology) {
+        int stride = wordsPerRow + 2;
+        for (int x = fromRow - 1; x <= toRow; x++) {
+            int base = (x - fromRow + 1) * stride;
+            fillRow(dst, base + 1, x, topology);
+            padColumns(dst, base, topology.wrapsColumns());
+        }
+    }
+
+    /** Fills the ghost cells either side of the padded row at
+     *  base: the cell left of column 0 in the top bit of the
+     *  first ghost word, and the cell right of the last column
+     *  just past it, in the last word or the second ghost word.
+     */
+    private void padColumns(long[] dst, int base, boolean wrapsColumns) {
+        int last = base + wordsPerRow;
+        int end = numColumns & 63;
+        if (!wrapsColumns) {
+            dst[base] = 0L;
+            dst[last + 1] = 0L;
+        }
+        else if (end == 0) {
+            dst[base] = dst[last];
+            dst[last + 1] = dst[base + 1] & 1L;
+        }
+        else {
+            //past columns are 0 in a copied row, so the ghost is ORed in
+            dst[base] = dst[last] << 64 - end;
+            dst[last] |= (dst[base + 1] & 1L) << end;
+            dst[last + 1] = 0L;
+        }
+    }
+
+    /** Copies row x to dst at base. Rows beyond the edges are
+     *  filled as the topology joins them: dead, the row from the
+     *  opposite edge, or that row mirrored.
+     */
+    private void fillRow(long[] dst, int base, int x, Topology topology) {
+        if (x >= 0 && x < numRows) {
+            readRow(x, dst, base);
+        }
+        else if (!topology.wrapsRows()) {
+            java.util.Arrays.fill(dst, base, base + wordsPerRow, 0L);
+        }
+        else {
+            readRow(Math.floorMod(x, numRows), dst, base);
+            if (topology.reversesRows()) {
+                reverseRow(dst, base);
+            }
+        }
+    }
+
+    /** Reverses the row at base of dst in place, moving cell y
+     *  to numColumns - 1 - y.
+     */
+    private void reverseRow(long[] dst, int base) {
+        //reversing all words moves y to 64 * wordsPerRow - 1 - y
+        for (int i = base, j = base + wordsPerRow - 1; i <= j; i++, j--) {
+            long w = Long.reverse(dst[i]);
+            dst[i] = Long.reverse(dst[j]);
+            dst[j] = w;
+        }
+        int shift = (wordsPerRow << 6) - numColumns;
+        if (shift > 0) {
+            for (int i = base; i < base + wordsPerRow; i++) {
+                long w = dst[i] >>> shift;
+                if (i + 1 < base + wordsPerRow) {
+                    w |= dst[i + 1] << (64 - shift);
+                }
+                dst[i] = w;
+            }
+        }
+    }
+
+    /** Steps rows [fromRow, toRow) of an off-heap grid into
+     *  nextStore, BAND_ROWS at a time, each band padded with
+     *  its ghost rows and words into an on-heap buffer. Heap
+     *  use is the band alone, whatever the grid size.
+     */
+    private void stepBands(Rule rule, Topology topology, int fromRow, int toRow) {
+        if (band == null) {
+            band = new long[(BAND_ROWS + 2) * (wordsPerRow + 2)];
+            bandNext = new long[BAND_ROWS * wordsPerRow];
+        }
+        if (nextStore == null) {
+            nextStore = OffHeapWords.allocate(store.length());
+        }
+        for (int x = fromRow; x < toRow; x += BAND_ROWS) {
+            int num = Math.min(BAND_ROWS, toRow - x);
+            pad(band, x, x + num, topology);
+            kernel.stepRows(this, band, bandNext, 0, num, rule);
+            nextStore.write((long) x * wordsPerRow, bandNext, 0, num * wordsPerRow);
+        }
+        //migrates previous to current generation
+        OffHeapWords temp = store;
+        store = nextStore;
+        nextStore = temp;
+    }
+
+    /** Advances rows [fromRow, toRow) one generation. Rows
+     *  outside the range are left stale, for grids whose
+     *  border rows are replaced every generation.
+     *
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     * @param fromRow first row, inclusive
+     * @param toRow last row, exclusive
+     */
+    public void step(Rule rule, boolean wrapEnabled, int fromRow, int toRow) {
+        step(rule, Topology.of(wrapEnabled), fromRow, toRow);
+    }
+
+    /** Returns the number of tiles tracked by stepActive,
+     *  TILE_ROWS rows by one word each.
+     *
+     * @return number of tiles
+     */
+    public int getNumTiles() {
+        return (numRows + TILE_ROWS - 1) / TILE_ROWS * wordsPerRow;
+    }
+
+    /** Marks the tiles that differ from the previous generation,
+     *  which step leaves in its buffer. Edits since the step
+     *  count as changes.
+     *
+     * @param changed replaced by the changed tiles
+     * @return number of changed tiles, -1 if the previous
+     *         generation is not kept
+     */
+    public int markChanged(java.util.BitSet changed) {
+        if (scratch == null || store != null) {
+            return -1;
+        }
+        changed.clear();
+        //differences of each word column over a tile row, read row by row
+        long[] diff = new long[wordsPerRow];
+        for (int x0 = 0; x0 < numRows; x0 += TILE_ROWS) {
+            for (int x = x0; x < Math.min(numRows, x0 + TILE_ROWS); x++) {
+                int base = x * wordsPerRow;
+                for (int i = 0; i < wordsPerRow; i++) {
+                    diff[i] |= words[base + i] ^ scratch[base + i];
+                }
+            }
+            int tile = x0 / TILE_ROWS * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                if (diff[i] != 0) {
+                    changed.set(tile + i);
+                    diff[i] = 0;
+                }
+            }
+        }
+        return changed.cardinality();
+    }
+
+    /** Advances grid one generation, computing only tiles in or
+     *  next to a tile changed by the last generation. Any other
+     *  tile is unchanged, and the step buffer already holds it
+     *  from the generation before, so it is neither computed
+     *  nor copied. Requires changed to come from markChanged
+     *  or the previous stepActive.
+     *
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     * @param changed tiles changed by the last generation,
+     *                replaced by those changed by this one
+     * @return number of tiles computed
+     */
+    public int stepActive(Rule rule, boolean wrapEnabled, java.util.BitSet changed) {
+        if (candidates == null) {
+            candidates = new java.util.BitSet(getNumTiles());
+        }
+        int numTileRows = (numRows + TILE_ROWS - 1) / TILE_ROWS;
+        candidates.clear();
+        for (int t = changed.nextSetBit(0); t >= 0; t = changed.nextSetBit(t + 1)) {
+            int tileRow = t / wordsPerRow;
+            int i = t % wordsPerRow;
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int di = -1; di <= 1; di++) {
+                    int r = wrapEnabled ? Math.floorMod(tileRow + dr, numTileRows) : tileRow + dr;
+                    int j = wrapEnabled ? Math.floorMod(i + di, wordsPerRow) : i + di;
+                    if (r >= 0 && r < numTileRows && j >= 0 && j < wordsPerRow) {
+                        candidates.set(r * wordsPerRow + j);
+                    }
+                }
+            }
+        }
+
+        int birth = rule.getBirthMask();
+        int survival = rule.getSurvivalMask();
+        int num = 0;
+        changed.clear();
+        for (int t = candidates.nextSetBit(0); t >= 0; t = candidates.nextSetBit(t + 1)) {
+            int i = t % wordsPerRow;
+            int fromRow = t / wordsPerRow * TILE_ROWS;
+            boolean different = false;
+            for (int x = fromRow; x < Math.min(numRows, fromRow + TILE_ROWS); x++) {
+                int baseC = x * wordsPerRow;
+                long w = stepWord(words, rowAbove(x, wrapEnabled), baseC, rowBelow(x, wrapEnabled), i,
+                        birth, survival, wrapEnabled);
+                scratch[baseC + i] = w;
+                different |= w != words[baseC + i];
+            }
+            if (different) {
+                changed.set(t);
+            }
+            num++;
+        }
+        //migrates previous to current generation
+        long[] temp = words;
+        words = scratch;
+        scratch = temp;
+        return num;
+    }
+
+    /** Returns the smallest box holding every living cell.
+     *
+     * @return {minX, minY, maxX, maxY}, null if no cell is alive
+     */
+    public int[] boundingBox() {
+        int minX = -1;
+        int maxX = -1;
+        int minW = wordsPerRow;
+        int maxW = -1;
+        long[] row = new long[wordsPerRow];
+        //bits of the first and last occupied words of any row
+        long first = 0L;
+        long last = 0L;
+        for (int x = 0; x < numRows; x++) {
+            readRow(x, row, 0);
+            for (int i = 0; i < wordsPerRow; i++) {
+                long w = row[i];
+                if (w == 0) {
+                    continue;
+                }
+                if (minX < 0) {
+                    minX = x;
+                }
+                maxX = x;
+                if (i < minW) {
+                    minW = i;
+                    first = w;
+                }
+                else if (i == minW) {
+                    first |= w;
+                }
+                if (i > maxW) {
+                    maxW = i;
+                    last = w;
+                }
+                else if (i == maxW) {
+                    last |= w;
+                }
+            }
+        }
+        if (minX < 0) {
+            return null;
+        }
+        return new int[] {minX, (minW << 6) + Long.numberOfTrailingZeros(first),
+                maxX, (maxW << 6) + 63 - Long.numberOfLeadingZeros(last)};
+    }
+
+    /** Frees the buffer step writes into until the next step,
+     *  for grids that are not being stepped.
+     */
+    public void releaseScratch() {
+        scratch = null;
+        padded = null;
+        band = null;
+        bandNext = null;
+        candidates = null;
+        if (nextStore != null) {
+            nextStore.close();
+            nextStore = null;
+        }
+    }
+
+    /** Frees the off-heap words of the grid, for grids being
+     *  replaced. The grid may not be used after.
+     */
+    public void free() {
+        releaseScratch();
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /** Computes the next generation of rows [fromRow, toRow)
+     *  from padded rows into dst, see pad. Every word has its
+     *  neighbors in the buffer, so none is checked for edges.
+     *  Rows outside the range are only read, so disjoint ranges
+     *  may be computed concurrently.
+     *
+     * @param src current generation, padded, row x at padded row x + 1
+     * @param dst next generation
+     * @param fromRow first row, inclusive
+     * @param toRow last row, exclusive
+     * @param rule birth/survival rule
+     */
+    public void stepRows(long[] src, long[] dst, int fromRow, int toRow, Rule rule) {
+        int birth = rule.getBirthMask();
+        int survival = rule.getSurvivalMask();
+        int stride = wordsPerRow + 2;
+        for (int x = fromRow; x < toRow; x++) {
+            int c = (x + 1) * stride + 1;
+            int out = x * wordsPerRow;
+            for (int i = 0; i < wordsPerRow; i++) {
+                dst[out + i] = stepPadded(src, c - stride + i, c + i, c + stride + i, birth, survival);
+            }
+            dst[out + wordsPerRow - 1] &= lastMask;
+        }
+    }
+
+    /** Computes the next generation of a padded word, whose
+     *  neighbor words are all in the buffer.
+     *
+     * @param src current generation, padded
+     * @param u index of the word above
+     * @param c index of the word
+     * @param d index of the word below
+     * @param birth bitmask of neighbor counts causing birth
+     * @param survival bitmask of neighbor counts allowing survival
+     * @return next word, unmasked
+     */
+    public static long stepPadded(long[] src, int u, int c, int d, int birth, int survival) {
+        long up = src[u];
+        long mid = src[c];
+        long down = src[d];
+        return nextWord(mid,
+                up << 1 | src[u - 1] >>> 63, up, up >>> 1 | src[u + 1] << 63,
+                mid << 1 | src[c - 1] >>> 63, mid >>> 1 | src[c + 1] << 63,
+                down << 1 | src[d - 1] >>> 63, down, down >>> 1 | src[d + 1] << 63,
+                birth, survival);
+    }
+
+    /** Computes the next generation of rows [fromRow, toRow)
+     *  of unpadded src into dst, checking every word for edges.
+     *  Used by stepActive, which steps too few words to pad,
+     *  and as the branching baseline in Benchmark.
+     *
+     * @param src current generation
+     * @param dst next generation
+     * @param fromRow first row, inclusive
+     * @param toRow last row, exclusive
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     */
+    public void stepRowsUnpadded(long[] src, long[] dst, int fromRow, int toRow, Rule rule, boolean wrapEnabled) {
+        int birth = rule.getBirthMask();
+        int survival = rule.getSurvivalMask();
+        for (int x = fromRow; x < toRow; x++) {
+            int baseU = rowAbove(x, wrapEnabled);
+            int baseC = x * wordsPerRow;
+            int baseD = rowBelow(x, wrapEnabled);
+            for (int i = 0; i < wordsPerRow; i++) {
+                dst[baseC + i] = stepWord(src, baseU, baseC, baseD, i, birth, survival, wrapEnabled);
+            }
+        }
+    }
+
+    /** Returns the base index of the row above x, -1 if outside the grid. */
+    private int rowAbove(int x, boolean wrapEnabled) {
+        int up = x > 0 ? x - 1 : wrapEnabled ? numRows - 1 : -1;
+        return up < 0 ? -1 : up * wordsPerRow;
+    }
+
+    /** Returns the base index of the row below x, -1 if outside the grid. */
+    private int rowBelow(int x, boolean wrapEnabled) {
+        int down = x < numRows - 1 ? x + 1 : wrapEnabled ? 0 : -1;
+        return down < 0 ? -1 : down * wordsPerRow;
+    }
+
+    /** Computes the next generation of word i of a row.
+     *
+     * @param src current generation
+     * @param baseU base of row above, -1 if outside the grid
+     * @param baseC base of row
+     * @param baseD base of row below, -1 if outside the grid
+     * @param i word within row
+     * @param birth bitmask of neighbor counts causing birth
+     * @param survival bitmask of neighbor counts allowing survival
+     * @param wrapEnabled true if edges wrap around
+     * @return next word
+     */
+    private long stepWord(long[] src, int baseU, int baseC, int baseD, int i,
+                         int birth, int survival, boolean wrapEnabled) {
+        long next = nextWord(src[baseC + i],
+                west(src, baseU, i, wrapEnabled), word(src, baseU, i), east(src, baseU, i, wrapEnabled),
+                west(src, baseC, i, wrapEnabled), east(src, baseC, i, wrapEnabled),
+                west(src, baseD, i, wrapEnabled), word(src, baseD, i), east(src, baseD, i, wrapEnabled),
+                birth, survival);
+        return i == wordsPerRow - 1 ? next & lastMask : next;
+    }
+
+    /** Returns word i of the row at base, 0 outside the grid. */
+    private long word(long[] src, int base, int i) {
+        return base < 0 ? 0L : src[base + i];
+    }
+
+    /** Returns word i of the row at base shifted so that
+     *  each bit holds the cell to its left (y - 1).
+     */
+    private long west(long[] src, int base, int i, boolean wrapEnabled) {
+        if (base < 0) {
+            return 0L;
+        }
+        long w = src[base + i] << 1;
+        if (i > 0) {
+            w |= src[base + i - 1] >>> 63;
+        }
+        else if (wrapEnabled) {
+            w |= src[base + wordsPerRow - 1] >>> ((numColumns - 1) & 63) & 1L;
+        }
+        return w;
+    }
+
+    /** Returns word i of the row at base shifted so that
+     *  each bit holds the cell to its right (y + 1).
+     */
+    private long east(long[] src, int base, int i, boolean wrapEnabled) {
+        if (base < 0) {
+            return 0L;
+        }
+        long w = src[base + i] >>> 1;
+        if (i < wordsPerRow - 1) {
+            w |= src[base + i + 1] << 63;
+        }
+        else if (wrapEnabled) {
+            w |= (src[base] & 1L) << ((numColumns - 1) & 63);
+        }
+        return w;
+    }
+
+    /** Computes the next state of 64 cells from their eight
+     *  neighbor words using bit-sliced addition.
+     *
+     * @param alive current cells
+     * @param birth bitmask of neighbor counts causing birth
+     * @param survival bitmask of neighbor counts allowing survival
+     * @return next cells
+     */
+    public static long nextWord(long alive, long ul, long u, long ur, long l, long r,
+                                long dl, long d, long dr, int birth, int survival) {
+        //full adder for the row above
+        long u0 = ul ^ u ^ ur;
+        long u1 = (ul & u) | (ur & (ul ^ u));
+        //half adder for the middle row
+        long m0 = l ^ r;
+        long m1 = l & r;
+        //full adder for the row below
+        long d0 = dl ^ d ^ dr;
+        long d1 = (dl & d) | (dr & (dl ^ d));
+        //sums the three 2-bit counts
+        long s0 = u0 ^ m0 ^ d0;
+        long c0 = (u0 & m0) | (d0 & (u0 ^ m0));
+        long t = u1 ^ m1 ^ d1;
+        long c1 = (u1 & m1) | (d1 & (u1 ^ m1));
+        long s1 = t ^ c0;
+        long c2 = t & c0;
+        long s2 = c1 ^ c2;
+        long s3 = c1 & c2;
+        return applyRule(alive, s0, s1, s2, s3, birth, survival);
+    }
+
+    /** Applies a birth/survival rule to a bit-sliced neighbor count.
+     *
+     * @param alive current cells
+     * @param s0 count bit 0
+     * @param s1 count bit 1
+     * @param s2 count bit 2
+     * @param s3 count bit 3
+     * @param birth bitmask of neighbor counts causing birth
+     * @param survival bitmask of neighbor counts allowing survival
+     * @return next cells
+     */
+    public static long applyRule(long alive, long s0, long s1, long s2, long s3, int birth, int survival) {
+        long result = 0L;
+        for (int n = 0; n <= 8; n++) {
+            boolean b = (birth >>> n & 1) != 0;
+            boolean s = (survival >>> n & 1) != 0;
+            if (!b && !s) {
+                continue;
+            }
+            //cells whose count equals n
+            long m = ((n & 1) != 0 ? s0 : ~s0) & ((n & 2) != 0 ? s1 : ~s1)
+                    & ((n & 4) != 0 ? s2 : ~s2) & ((n & 8) != 0 ? s3 : ~s3);
+            if (b && s) {
+                result |= m;
+            }
+            else if (b) {
+                result |= m & ~alive;
+            }
+            else {
+                result |= m & alive;
+            }
+        }
+        return result;
+    }
+
+    /** Converts CellMatrix to PackedGrid.
+     *
+     * @param m CellMatrix to be packed
+     * @return copy of the living cells of m
+     */
+    public static PackedGrid fromCellMatrix(CellMatrix m) {
+        return m.getGrid().copy();
+    }
+
+    /** Converts PackedGrid to CellMatrix.
+     *
+     * @return CellMatrix with a copy of the living cells
+     */
+    public CellMatrix toCellMatrix() {
+        return new CellMatrix(copy());
+    }
+}
@@ -0,0 +1,122 @@
+/** Rule class describes a Life-like
+ *  birth/survival rule as two bitmasks
+ *  over the number of living neighbors.
+ *
+ * @author RMizelle
+ */
+public class Rule {
+    //Conway's Game of Life, B3/S23
+    public static final Rule CONWAY = new Rule(1 << 3, (1 << 2) | (1 << 3));
+
+    //bit n set if a dead cell with n neighbors is born
+    private final int birth;
+    //bit n set if a living cell with n neighbors survives
+    private final int survival;
+
+    /** 2-arg constructor instantiates birth and survival masks.
+     *
+     * @param birth bitmask of neighbor counts causing birth
+     * @param survival bitmask of neighbor counts allowing survival
+     */
+    public Rule(int birth, int survival) {
+        this.birth = birth & 0x1FF;
+        this.survival = survival & 0x1FF;
+    }
+
+    /** Parses a rule in B/S notation such as "B3/S23".
+     *
+     * @param s rule string
+     * @return Rule represented by s
+     */
+    public static Rule parse(String s) {
+        int birth = 0;
+        int survival = 0;
+        for (String part : s.trim().toUpperCase().split("/")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            //selects mask from prefix
+            boolean isBirth = part.charAt(0) == 'B';
+            if (!isBirth && part.charAt(0) != 'S') {
+                throw new IllegalArgumentException("Invalid rule: " + s);
+            }
+            for (int i = 1; i < part.length(); i++) {
+                int n = part.charAt(i) - '0';
+                if (n < 0 || n > 8) {
+                    throw new IllegalArgumentException("Invalid rule: " + s);
+                }
+                if (isBirth) {
+                    birth |= 1 << n;
+                }
+                else {
+                    survival |= 1 << n;
+                }
+            }
+        }
+        return new Rule(birth, survival);
+    }
+
+    /** Returns true if a dead cell with n living neighbors is born.
+     *
+     * @param n number of living neighbors
+     * @return true if born
+     */
+    public boolean isBorn(int n) {
+        return (birth >>> n & 1) != 0;
+    }
+
+    /** Returns true if a living cell with n living neighbors survives.
+     *
+     * @param n number of living neighbors
+     * @return true if survives
+     */
+    public boolean survives(int n) {
+        return (survival >>> n & 1) != 0;
+    }
+
+    /** Accessor Method for Birth Mask
+     *
+     * @return bitmask of neighbor counts causing birth
+     */
+    public int getBirthMask() {
+        return birth;
+    }
+
+    /** Accessor Method for Survival Mask
+     *
+     * @return bitmask of neighbor counts allowing survival
+     */
+    public int getSurvivalMask() {
+        return survival;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Rule)) {
+            return false;
+        }
+        Rule r = (Rule) o;
+        return birth == r.birth && survival == r.survival;
+    }
+
+    @Override
+    public int hashCode() {
+        return birth << 9 | survival;
+    }
+
+    /** String representation of Rule
+     * @return B[counts]/S[counts]
+     */
+    @Override
+    public String toString() {
+        StringBuilder temp = new StringBuilder("B");
+        for (int n = 0; n <= 8; n++) {
+            if (isBorn(n)) temp.append(n);
+        }
+        temp.append("/S");
+        for (int n = 0; n <= 8; n++) {
+            if (survives(n)) temp.append(n);
+        }
+        return temp.toString();
+    }
+}
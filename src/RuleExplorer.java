@@ -0,0 +1,484 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** RuleExplorer class sweeps Life-like rules, all
+ *  2^18 of them or a chosen subset, and classifies
+ *  how each behaves from random soups.
+ *
+ *  Every rule runs the same soups: a square patch
+ *  of side soupSize, seeded as in Seeder, centered
+ *  in an empty torus. A soup is stepped until it
+ *  dies, repeats a state (still or periodic), its
+ *  population repeats (spaceships, which never
+ *  repeat a state on the torus), its population
+ *  reaches EXPLODE_FACTOR times the first, or
+ *  maxGenerations pass (chaotic). A rule takes the
+ *  class most of its soups show.
+ *
+ *  Rules are handed to a worker pool one at a time;
+ *  each worker reuses one grid and history.
+ *
+ * @author RMizelle
+ */
+public class RuleExplorer {
+    //longest period detected, by state or by population
+    private static final int MAX_PERIOD = 30;
+    //growth over the first population at which a soup is exploding
+    private static final int EXPLODE_FACTOR = 4;
+    private static final int NUM_RULES = 1 << 18;
+
+    /** Behavior enum names the classes, from least to most active. */
+    public enum Behavior {
+        DYING,
+        STABLE,
+        PERIODIC,
+        CHAOTIC,
+        EXPLODING;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    /** Result class holds the metrics of one rule over its soups. */
+    public static class Result {
+        private final Rule rule;
+        //soups showing each behavior
+        private final int[] counts = new int[Behavior.values().length];
+        //first soup showing each behavior, -1 if none
+        private final long[] examples = new long[Behavior.values().length];
+        private double growthSum;
+        private double peakSum;
+        private long generationSum;
+        private int maxPeriod;
+        private Behavior behavior;
+
+        /** 1-arg constructor instantiates an empty result.
+         *
+         * @param rule rule explored
+         */
+        public Result(Rule rule) {
+            this.rule = rule;
+            Arrays.fill(examples, -1);
+        }
+
+        /** Adds one soup's outcome. */
+        private void add(Behavior b, long soup, double growth, double peak, int generations, int period) {
+            counts[b.ordinal()]++;
+            if (examples[b.ordinal()] < 0) {
+                examples[b.ordinal()] = soup;
+            }
+            growthSum += growth;
+            peakSum += peak;
+            generationSum += generations;
+            maxPeriod = Math.max(maxPeriod, period);
+        }
+
+        /** Picks the class most soups show, ties going to the more active. */
+        private void classify() {
+            int best = 0;
+            for (int b = 1; b < counts.length; b++) {
+                if (counts[b] >= counts[best]) {
+                    best = b;
+                }
+            }
+            behavior = Behavior.values()[best];
+        }
+
+        /** Accessor Method for Rule
+         *
+         * @return rule explored
+         */
+        public Rule getRule() {
+            return rule;
+        }
+
+        /** Accessor Method for Behavior
+         *
+         * @return class most soups show
+         */
+        public Behavior getBehavior() {
+            return behavior;
+        }
+
+        /** Returns the soups showing the rule's class.
+         *
+         * @return number of soups
+         */
+        public int getAgreement() {
+            return counts[behavior.ordinal()];
+        }
+
+        /** Accessor Method for Growth
+         *
+         * @return mean growth of log population per generation
+         */
+        public double getGrowth() {
+            return growthSum / total();
+        }
+
+        /** Accessor Method for Period
+         *
+         * @return longest period found, 0 if none
+         */
+        public int getPeriod() {
+            return maxPeriod;
+        }
+
+        /** Returns the number of soups run. */
+        private int total() {
+            int temp = 0;
+            for (int c : counts) {
+                temp += c;
+            }
+            return temp;
+        }
+
+        /** Returns a line of the result table. */
+        private String toRow() {
+            StringBuilder temp = new StringBuilder();
+            temp.append(rule).append(',').append(rule.hashCode()).append(',').append(behavior);
+            for (int c : counts) {
+                temp.append(',').append(c);
+            }
+            int n = total();
+            temp.append(String.format(",%.5f,%.3f,%.1f,%d", growthSum / n, peakSum / n,
+                    (double) generationSum / n, maxPeriod));
+            return temp.toString();
+        }
+    }
+
+    private final int gridSize;
+    private final int soupSize;
+    private final double density;
+    private final int numSoups;
+    private final int maxGenerations;
+    private final long seed;
+    private final AtomicLong numDone = new AtomicLong();
+
+    /** 6-arg constructor instantiates an explorer.
+     *
+     * @param gridSize side of the torus
+     * @param soupSize side of the soup patch, at most gridSize
+     * @param density % chance for cell of the patch to be alive
+     * @param numSoups soups run per rule
+     * @param maxGenerations generations before a soup is chaotic
+     * @param seed seed of soup i is seed + i, the same for every rule
+     */
+    public RuleExplorer(int gridSize, int soupSize, double density, int numSoups, int maxGenerations, long seed) {
+        this.gridSize = gridSize;
+        this.soupSize = Math.min(soupSize, gridSize);
+        this.density = density;
+        this.numSoups = numSoups;
+        this.maxGenerations = maxGenerations;
+        this.seed = seed;
+    }
+
+    /** Explores rules on numThreads workers.
+     *
+     * @param rules rules to be explored
+     * @param numThreads number of workers
+     * @return one result per rule, in the same order
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Result[] explore(Rule[] rules, int numThreads) throws InterruptedException {
+        Result[] results = new Result[rules.length];
+        AtomicLong next = new AtomicLong();
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            workers.execute(() -> {
+                //per-worker buffers
+                PackedGrid grid = new PackedGrid(gridSize, gridSize);
+                PackedGrid patch = new PackedGrid(soupSize, soupSize);
+                long[] history = new long[maxGenerations + 1];
+                long[] hashes = new long[maxGenerations + 1];
+                long i;
+                while ((i = next.getAndIncrement()) < rules.length) {
+                    results[(int) i] = exploreRule(rules[(int) i], grid, patch, history, hashes);
+                    progress(rules.length, start);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        return results;
+    }
+
+    /** Prints progress every percent of the sweep. */
+    private void progress(int numRules, long start) {
+        long done = numDone.incrementAndGet();
+        long step = Math.max(1, numRules / 100);
+        if (done % step == 0 && done < numRules) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d/%d rules (%.0f%%), %.0fs left%n", done, numRules, 100.0 * done / numRules,
+                    seconds * (numRules - done) / done);
+        }
+    }
+
+    /** Runs every soup of a rule. */
+    private Result exploreRule(Rule rule, PackedGrid grid, PackedGrid patch, long[] history, long[] hashes) {
+        Result result = new Result(rule);
+        for (int i = 0; i < numSoups; i++) {
+            runSoup(rule, result, seed + i, grid, patch, history, hashes);
+        }
+        result.classify();
+        return result;
+    }
+
+    /** Seeds and steps one soup until its behavior is known. */
+    private void runSoup(Rule rule, Result result, long soup, PackedGrid grid, PackedGrid patch,
+                         long[] history, long[] hashes) {
+        seedSoup(soup, grid, patch);
+        long first = grid.population();
+        if (first == 0) {
+            result.add(Behavior.DYING, soup, 0, 0, 0, 0);
+            return;
+        }
+        long peak = first;
+        history[0] = first;
+        hashes[0] = hash(grid);
+        Behavior b = Behavior.CHAOTIC;
+        int period = 0;
+        int t = 0;
+        while (t < maxGenerations) {
+            grid.step(rule, true);
+            t++;
+            history[t] = grid.population();
+            hashes[t] = hash(grid);
+            peak = Math.max(peak, history[t]);
+            if (history[t] == 0) {
+                b = Behavior.DYING;
+                break;
+            }
+            if (history[t] >= EXPLODE_FACTOR * first) {
+                b = Behavior.EXPLODING;
+                break;
+            }
+            period = statePeriod(hashes, t);
+            if (period > 0) {
+                b = period == 1 ? Behavior.STABLE : Behavior.PERIODIC;
+                break;
+            }
+            period = populationPeriod(history, t);
+            if (period > 0) {
+                b = Behavior.PERIODIC;
+                break;
+            }
+        }
+        double growth = (Math.log(history[t] + 1) - Math.log(first + 1)) / Math.max(1, t);
+        result.add(b, soup, growth, (double) peak / first, t, period);
+    }
+
+    /** Clears grid and seeds soup as a patch in its center. */
+    private void seedSoup(long soup, PackedGrid grid, PackedGrid patch) {
+        new Seeder(soup, density).fill(patch);
+        grid.clear();
+        int offset = (gridSize - soupSize) / 2;
+        for (int x = 0; x < soupSize; x++) {
+            for (int y = 0; y < soupSize; y++) {
+                if (patch.get(x, y)) {
+                    grid.set(x + offset, y + offset, true);
+                }
+            }
+        }
+    }
+
+    /** Returns the period of a repeated state, 0 if none. */
+    private static int statePeriod(long[] hashes, int t) {
+        for (int p = 1; p <= MAX_PERIOD && p <= t; p++) {
+            if (hashes[t - p] == hashes[t]) {
+                return p;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the period with which the population over the
+     *  last generations repeats, 0 if none, as in SoupSearch.
+     */
+    private static int populationPeriod(long[] history, int t) {
+        for (int p = 1; p <= MAX_PERIOD; p++) {
+            //requires several repeats of the period
+            int window = Math.max(4 * p, 16);
+            if (t < window + p) {
+                return 0;
+            }
+            boolean repeats = true;
+            for (int k = 0; k < window && repeats; k++) {
+                repeats = history[t - k] == history[t - k - p];
+            }
+            if (repeats) {
+                return p;
+            }
+        }
+        return 0;
+    }
+
+    /** Hashes the words of a grid, as EngineManager does. */
+    private static long hash(PackedGrid grid) {
+        long h = 0;
+        for (long w : grid.getWords()) {
+            h = Long.rotateLeft((h ^ w) * 0x9E3779B97F4A7C15L, 31);
+        }
+        return h;
+    }
+
+    /** Returns the state a rule's example soup of a behavior
+     *  reached when it was classified, or its last living state
+     *  if it died, cropped to its living cells and named for its
+     *  rule, behavior, generation and seed. Unlike the soup, the
+     *  state is particular to the rule.
+     *
+     * @param result result of the rule
+     * @param b behavior shown by the soup
+     * @return state, null if no soup showed b or it never lived
+     */
+    public MatrixData example(Result result, Behavior b) {
+        long soup = result.examples[b.ordinal()];
+        if (soup < 0) {
+            return null;
+        }
+        PackedGrid grid = new PackedGrid(gridSize, gridSize);
+        PackedGrid patch = new PackedGrid(soupSize, soupSize);
+        Result run = new Result(result.rule);
+        runSoup(result.rule, run, soup, grid, patch, new long[maxGenerations + 1], new long[maxGenerations + 1]);
+        int t = (int) run.generationSum;
+        if (grid.population() == 0) {
+            if (t == 0) {
+                return null;
+            }
+            //reruns to the generation before the soup died
+            seedSoup(soup, grid, patch);
+            for (int i = 0; i < t - 1; i++) {
+                grid.step(result.rule, true);
+            }
+            t--;
+        }
+        MatrixData m = new MatrixData(grid, new LiveTracker(grid).boundingBox());
+        String detail = b == Behavior.PERIODIC ? " p" + result.maxPeriod : "";
+        m.setName(result.rule + " " + b + detail + " gen " + t + " (seed " + soup + ")");
+        return m;
+    }
+
+    /** Parses the rules to explore: a list (--rules B3/S23,B36/S23)
+     *  or a range of rule indices, birth << 9 | survival, as in
+     *  Rule.hashCode (--from, --to), by default all 2^18.
+     */
+    private static Rule[] parseRules(Options o) {
+        if (o.has("rules")) {
+            String[] parts = o.getString("rules", "").split(",");
+            Rule[] temp = new Rule[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                temp[i] = Rule.parse(parts[i]);
+            }
+            return temp;
+        }
+        int from = Math.max(0, o.getInt("from", 0));
+        int to = Math.min(NUM_RULES, o.getInt("to", NUM_RULES));
+        Rule[] temp = new Rule[Math.max(0, to - from)];
+        for (int i = 0; i < temp.length; i++) {
+            temp[i] = new Rule((from + i) >>> 9, from + i);
+        }
+        return temp;
+    }
+
+    /** Returns the ordering of the result table for --sort. */
+    private static Comparator<Result> order(String sort) {
+        Comparator<Result> byRule = Comparator.comparingInt(r -> r.rule.hashCode());
+        switch (sort) {
+            case "rule":
+                return byRule;
+            case "growth":
+                return Comparator.comparingDouble(Result::getGrowth).reversed().thenComparing(byRule);
+            case "period":
+                return Comparator.comparingInt(Result::getPeriod).reversed().thenComparing(byRule);
+            default:
+                //by class, then by growth
+                return Comparator.comparing(Result::getBehavior)
+                        .thenComparing(Comparator.comparingDouble(Result::getGrowth).reversed())
+                        .thenComparing(byRule);
+        }
+    }
+
+    /** Explores rules from command line options, writes the result
+     *  table and saves example states of the most consistent rules
+     *  of each class into the Database.
+     *
+     * @param o options: --rules or --from/--to, --threads, --grid,
+     *          --soup, --density, --soups, --max-generations, --seed,
+     *          --out (default rules.csv), --sort (class, growth,
+     *          period or rule), --save (examples per class)
+     */
+    public static void run(Options o) throws InterruptedException, FileNotFoundException {
+        Rule[] rules = parseRules(o);
+        RuleExplorer explorer = new RuleExplorer(o.getInt("grid", 128), o.getInt("soup", 32),
+                o.getDouble("density", 0.5), o.getInt("soups", 16), o.getInt("max-generations", 2000),
+                o.getLong("seed", 1));
+        int numThreads = o.getInt("threads", Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        Result[] results = explorer.explore(rules, numThreads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int[] counts = new int[Behavior.values().length];
+        for (Result r : results) {
+            counts[r.behavior.ordinal()]++;
+        }
+        System.out.printf("%d rules in %.1fs on %d threads (%.1f rules/s)%n",
+                rules.length, seconds, numThreads, rules.length / seconds);
+        for (Behavior b : Behavior.values()) {
+            System.out.printf("%10d  %s%n", counts[b.ordinal()], b);
+        }
+
+        List<Result> sorted = new ArrayList<>(Arrays.asList(results));
+        sorted.sort(order(o.getString("sort", "class")));
+        File output = new File(o.getString("out", "rules.csv"));
+        try (PrintWriter out = new PrintWriter(output)) {
+            out.print("rule,index,class");
+            for (Behavior b : Behavior.values()) {
+                out.print("," + b);
+            }
+            out.println(",growth,peak,generations,period");
+            for (Result r : sorted) {
+                out.println(r.toRow());
+            }
+        }
+        System.out.println("Wrote " + output);
+
+        //the rules whose soups agree most, per class
+        int perClass = o.getInt("save", 4);
+        sorted.sort(Comparator.comparing(Result::getBehavior)
+                .thenComparing(Comparator.comparingInt(Result::getAgreement).reversed())
+                .thenComparingInt(r -> r.rule.hashCode()));
+        Database database = new Database();
+        int saved = 0;
+        int kept = 0;
+        Behavior last = null;
+        for (Result r : sorted) {
+            if (r.behavior != last) {
+                last = r.behavior;
+                kept = 0;
+            }
+            if (kept < perClass) {
+                kept++;
+                MatrixData m = explorer.example(r, r.behavior);
+                //reruns and overlapping ranges find their examples already saved
+                if (m != null && database.addIfAbsent(m)) {
+                    saved++;
+                }
+            }
+        }
+        database.exportDatabase();
+        System.out.println("Saved " + saved + " Example States to Database");
+    }
+}
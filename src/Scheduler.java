@@ -0,0 +1,246 @@
+import javax.swing.JFrame;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/** Scheduler class multiplexes many Simulations
+ *  onto a fixed number of worker threads. Each
+ *  simulation is due at intervals set by its
+ *  target rate; workers take the most overdue
+ *  one and step it for at most one time slice
+ *  before it goes back in the queue, so fast and
+ *  slow simulations share the pool fairly.
+ *
+ *  Paused simulations leave the queue and free
+ *  their stepping buffers.
+ *
+ * @author RMizelle
+ */
+public class Scheduler implements AutoCloseable {
+    //longest a worker steps one simulation before yielding
+    private static final long SLICE = TimeUnit.MILLISECONDS.toNanos(2);
+    //backlog dropped when a simulation cannot keep its rate
+    private static final long MAX_LAG = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final DelayQueue<Slot> queue = new DelayQueue<>();
+    private final ConcurrentHashMap<Simulation, Slot> slots = new ConcurrentHashMap<>();
+    private final Thread[] workers;
+
+    /** Queue entry of a simulation, guarded by itself. */
+    private static class Slot implements Delayed {
+        private final Simulation simulation;
+        //System.nanoTime at which the next generation is due
+        private volatile long due;
+        //true while in the queue, or taken but not yet claimed
+        private boolean queued;
+        //true while a worker is stepping the simulation
+        private boolean busy;
+
+        private Slot(Simulation simulation) {
+            this.simulation = simulation;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(due - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(due, ((Slot) o).due);
+        }
+    }
+
+    /** 1-arg constructor starts the worker pool.
+     *
+     * @param numThreads number of workers
+     */
+    public Scheduler(int numThreads) {
+        workers = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            workers[i] = new Thread(this::work, "scheduler-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /** Adds a simulation, paused.
+     *
+     * @param s simulation to be hosted
+     */
+    public void add(Simulation s) {
+        slots.putIfAbsent(s, new Slot(s));
+    }
+
+    /** Pauses and removes a simulation.
+     *
+     * @param s hosted simulation
+     */
+    public void remove(Simulation s) {
+        pause(s);
+        slots.remove(s);
+    }
+
+    /** Starts stepping a simulation at its target rate.
+     *
+     * @param s hosted simulation
+     */
+    public void resume(Simulation s) {
+        Slot slot = slots.get(s);
+        if (slot == null) {
+            throw new IllegalArgumentException("Simulation not hosted: " + s.getName());
+        }
+        synchronized (slot) {
+            if (s.isRunning()) {
+                return;
+            }
+            s.setRunning(true);
+            //a busy worker requeues it when done
+            if (!slot.busy && !slot.queued) {
+                slot.due = System.nanoTime();
+                slot.queued = true;
+                queue.offer(slot);
+            }
+        }
+    }
+
+    /** Stops stepping a simulation and frees its buffers.
+     *
+     * @param s hosted simulation
+     */
+    public void pause(Simulation s) {
+        Slot slot = slots.get(s);
+        if (slot == null) {
+            return;
+        }
+        synchronized (slot) {
+            s.setRunning(false);
+            if (queue.remove(slot)) {
+                slot.queued = false;
+            }
+            //a busy worker releases it when done
+            if (!slot.busy) {
+                s.release();
+            }
+        }
+    }
+
+    /** Toggles a simulation between running and paused.
+     *
+     * @param s hosted simulation
+     */
+    public void toggle(Simulation s) {
+        if (s.isRunning()) {
+            pause(s);
+        }
+        else {
+            resume(s);
+        }
+    }
+
+    /** Takes due simulations and steps them until interrupted. */
+    private void work() {
+        try {
+            while (true) {
+                Slot slot = queue.take();
+                Simulation s = slot.simulation;
+                synchronized (slot) {
+                    slot.queued = false;
+                    if (!s.isRunning()) {
+                        continue;
+                    }
+                    slot.busy = true;
+                }
+                long start = System.nanoTime();
+                long now = start;
+                long due = slot.due;
+                try {
+                    //steps every generation due, within one slice
+                    do {
+                        s.step();
+                        double rate = s.getTargetRate();
+                        due = rate > 0 ? due + (long) (1e9 / rate) : System.nanoTime();
+                        now = System.nanoTime();
+                    } while (due - now <= 0 && now - start < SLICE && s.isRunning());
+                }
+                finally {
+                    synchronized (slot) {
+                        slot.busy = false;
+                        if (s.isRunning()) {
+                            slot.due = Math.max(due, now - MAX_LAG);
+                            slot.queued = true;
+                            queue.offer(slot);
+                        }
+                        else {
+                            s.release();
+                        }
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            //scheduler closed
+        }
+    }
+
+    /** Stops the worker pool. Simulations keep their state. */
+    @Override
+    public void close() {
+        for (Thread t : workers) {
+            t.interrupt();
+        }
+    }
+
+    /** Runs many simulations from command line options, in a
+     *  window of tiles or, with --headless, for --seconds while
+     *  printing their combined rate. Rules are cycled from a
+     *  comma separated list and soup i uses seed + i.
+     *
+     * @param o options: --count, --threads, --rows, --columns, --density,
+     *          --seed, --rules, --nowrap, --rate, --headless, --seconds
+     */
+    public static void run(Options o) throws InterruptedException {
+        int count = o.getInt("count", 16);
+        String[] rules = o.getString("rules", Rule.CONWAY.toString()).split(",");
+        long seed = o.getLong("seed", Seeder.newSeed());
+        double density = o.getDouble("density", 0.30);
+        List<Simulation> simulations = new ArrayList<>();
+        Scheduler scheduler = new Scheduler(o.getInt("threads", Runtime.getRuntime().availableProcessors()));
+        for (int i = 0; i < count; i++) {
+            PackedGrid grid = new PackedGrid(o.getInt("rows", 256), o.getInt("columns", 256));
+            new Seeder(seed + i, density).fill(grid);
+            Rule rule = Rule.parse(rules[i % rules.length].trim());
+            Simulation s = new Simulation(rule + " (seed " + (seed + i) + ")", grid, rule,
+                    !o.has("nowrap"), o.getDouble("rate", 0));
+            simulations.add(s);
+            scheduler.add(s);
+            scheduler.resume(s);
+        }
+
+        if (!o.has("headless")) {
+            JFrame frame = new JFrame("Automata (" + count + " Simulations)");
+            frame.setContentPane(new TilePanel(scheduler, simulations));
+            frame.setSize(AppDriver.WIDTH + 17, AppDriver.HEIGHT + 40);
+            frame.setLocation(50, 50);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setResizable(false);
+            frame.setVisible(true);
+            return;
+        }
+        int seconds = o.getInt("seconds", 10);
+        long last = 0;
+        for (int t = 1; t <= seconds; t++) {
+            Thread.sleep(1000);
+            long total = simulations.stream().mapToLong(Simulation::getNumTicks).sum();
+            System.out.println(t + "s: " + (total - last) + " generations/s");
+            last = total;
+        }
+        scheduler.close();
+        long min = simulations.stream().mapToLong(Simulation::getNumTicks).min().orElse(0);
+        long max = simulations.stream().mapToLong(Simulation::getNumTicks).max().orElse(0);
+        System.out.println(count + " simulations, " + min + " to " + max + " generations each");
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/** Seeder class fills grids with reproducible
+ *  random soups from a 64-bit seed and density.
+ *
+ *  Each row draws from its own SplitMix64 stream
+ *  derived from the seed and row index, so rows
+ *  may be filled in any order or in parallel with
+ *  bit-identical results. Words of 64 cells are
+ *  thresholded to the density by combining random
+ *  words according to its binary expansion.
+ *
+ * @author RMizelle
+ */
+public class Seeder {
+    //bits of density precision
+    private static final int PRECISION = 16;
+
+    private final long seed;
+    private final double density;
+    //density as a PRECISION-bit fraction
+    private final int threshold;
+
+    /** 2-arg constructor instantiates a Seeder.
+     *
+     * @param seed 64-bit seed
+     * @param density % chance for cell to be alive
+     */
+    public Seeder(long seed, double density) {
+        this.seed = seed;
+        this.density = density;
+        this.threshold = (int) Math.round(Math.max(0.0, Math.min(1.0, density)) * (1 << PRECISION));
+    }
+
+    /** Returns a fresh seed for a new soup.
+     *
+     * @return random 64-bit seed
+     */
+    public static long newSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /** Accessor Method for Seed
+     *
+     * @return 64-bit seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Accessor Method for Density
+     *
+     * @return % chance for cell to be alive
+     */
+    public double getDensity() {
+        return density;
+    }
+
+    /** Replaces all cells of grid with the soup.
+     *
+     * @param grid grid to be filled
+     */
+    public void fill(PackedGrid grid) {
+        fillRows(grid, 0, grid.getNumRows());
+    }
+
+    /** Replaces all cells of grid with the soup, filling
+     *  row stripes in parallel.
+     *
+     * @param grid grid to be filled
+     */
+    public void fillParallel(PackedGrid grid) {
+        int stripe = 256;
+        int numStripes = (grid.getNumRows() + stripe - 1) / stripe;
+        IntStream.range(0, numStripes).parallel().forEach(s ->
+                fillRows(grid, s * stripe, Math.min(grid.getNumRows(), (s + 1) * stripe)));
+    }
+
+    /** Replaces cells of rows [fromRow, toRow) with the soup.
+     *
+     * @param grid grid to be filled
+     * @param fromRow first row, inclusive
+     * @param toRow last row, exclusive
+     */
+    public void fillRows(PackedGrid grid, int fromRow, int toRow) {
+        fillRows(grid, fromRow, toRow, fromRow);
+    }
+
+    /** Replaces cells of rows [fromRow, toRow) with rows of the
+     *  soup starting at soupRow, so a grid holding one stripe
+     *  of a larger soup matches the soup exactly.
+     *
+     * @param grid grid to be filled
+     * @param fromRow first row, inclusive
+     * @param toRow last row, exclusive
+     * @param soupRow row of the soup copied into fromRow
+     */
+    public void fillRows(PackedGrid grid, int fromRow, int toRow, int soupRow) {
+        long[] row = new long[grid.getWordsPerRow()];
+        for (int x = fromRow; x < toRow; x++) {
+            nextRow(x - fromRow + soupRow, row, grid.getLastMask());
+            grid.writeRow(x, row, 0);
+        }
+    }
+
+    /** Revives the cells of the soup, leaving living cells alive.
+     *
+     * @param grid grid to be seeded
+     */
+    public void overlay(PackedGrid grid) {
+        long[] row = new long[grid.getWordsPerRow()];
+        long[] soup = new long[row.length];
+        for (int x = 0; x < grid.getNumRows(); x++) {
+            grid.readRow(x, row, 0);
+            nextRow(x, soup, grid.getLastMask());
+            for (int i = 0; i < row.length; i++) {
+                row[i] |= soup[i];
+            }
+            grid.writeRow(x, row, 0);
+        }
+    }
+
+    /** Generates row x of the soup into row. */
+    private void nextRow(int x, long[] row, long lastMask) {
+        //independent stream per row
+        long[] state = {mix(seed ^ mix(x + 0x632BE59BD9B4E019L))};
+        for (int i = 0; i < row.length; i++) {
+            row[i] = nextWord(state);
+        }
+        row[row.length - 1] &= lastMask;
+    }
+
+    /** Generates 64 cells, each alive with probability
+     *  threshold / 2^PRECISION. Processes the bits of threshold
+     *  from least significant, OR-ing a random word for each
+     *  set bit and AND-ing one for each clear bit.
+     */
+    private long nextWord(long[] state) {
+        if (threshold == 0) {
+            return 0L;
+        }
+        if (threshold >= 1 << PRECISION) {
+            return -1L;
+        }
+        long w = 0L;
+        for (int b = Integer.numberOfTrailingZeros(threshold); b < PRECISION; b++) {
+            long r = mix(state[0] += 0x9E3779B97F4A7C15L);
+            w = (threshold >>> b & 1) != 0 ? w | r : w & r;
+        }
+        return w;
+    }
+
+    /** SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,44 @@
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.lang.ref.Cleaner;
+
+/** SegmentWords class keeps packed words in native
+ *  memory segments of the Foreign Memory API. The
+ *  memory belongs to a resource scope and is freed
+ *  as soon as the words are closed, or when they
+ *  become unreachable if never closed.
+ *
+ *  Requires --add-modules jdk.incubator.foreign at
+ *  compile and run time; see OffHeapWords.allocate().
+ *
+ * @author RMizelle
+ */
+public class SegmentWords extends OffHeapWords {
+    //frees segments of scopes never closed
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final ResourceScope scope;
+
+    /** 1-arg constructor allocates zeroed words in native memory.
+     *
+     * @param length number of words
+     */
+    public SegmentWords(long length) {
+        this(length, ResourceScope.newSharedScope(CLEANER));
+    }
+
+    private SegmentWords(long length, ResourceScope scope) {
+        super(length, bytes -> MemorySegment.allocateNative(bytes, 8, scope).asByteBuffer());
+        this.scope = scope;
+    }
+
+    /** Frees the native memory. Words may not be used after. */
+    @Override
+    public void close() {
+        super.close();
+        if (scope.isAlive()) {
+            scope.close();
+        }
+    }
+}
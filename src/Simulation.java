@@ -0,0 +1,125 @@
+import java.awt.Graphics;
+
+/** Simulation class is one independently running
+ *  universe hosted by a Scheduler, with its own
+ *  grid, rule and target rate. Stepping and drawing
+ *  are synchronized so a simulation can be shown
+ *  while a worker steps it.
+ *
+ * @author RMizelle
+ */
+public class Simulation {
+    private final String name;
+    private final PackedGrid grid;
+    private final Rule rule;
+    private final boolean wrapEnabled;
+    //generations per second, 0 for as fast as possible
+    private volatile double targetRate;
+    private volatile boolean running;
+    private volatile long numTicks;
+
+    /** 5-arg constructor instantiates a paused simulation.
+     *
+     * @param name display name
+     * @param grid first generation, stepped in place
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     * @param targetRate generations per second, 0 for unlimited
+     */
+    public Simulation(String name, PackedGrid grid, Rule rule, boolean wrapEnabled, double targetRate) {
+        this.name = name;
+        this.grid = grid;
+        this.rule = rule;
+        this.wrapEnabled = wrapEnabled;
+        this.targetRate = targetRate;
+    }
+
+    /** Advances one generation. */
+    public synchronized void step() {
+        grid.step(rule, wrapEnabled);
+        numTicks++;
+    }
+
+    /** Frees stepping buffers while the simulation is idle. */
+    public synchronized void release() {
+        grid.releaseScratch();
+    }
+
+    /** Draws the grid.
+     *
+     * @param g graphics
+     * @param view visible region
+     */
+    public synchronized void draw(Graphics g, Viewport view) {
+        view.render(g, grid, -1, -1);
+    }
+
+    /** Returns a copy of the grid, consistent with numTicks.
+     *
+     * @return copy of the current generation
+     */
+    public synchronized PackedGrid snapshot() {
+        return grid.copy();
+    }
+
+    /** Accessor Method for Name
+     *
+     * @return display name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /** Accessor Method for Rule
+     *
+     * @return birth/survival rule
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    /** Accessor Method for grid size
+     *
+     * @return {numRows, numColumns}
+     */
+    public int[] getSize() {
+        return new int[] {grid.getNumRows(), grid.getNumColumns()};
+    }
+
+    /** Accessor Method for Target Rate
+     *
+     * @return generations per second, 0 for unlimited
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /** Setter Method for Target Rate
+     *
+     * @param targetRate generations per second, 0 for unlimited
+     */
+    public void setTargetRate(double targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    /** Returns true if the simulation is scheduled to run.
+     *
+     * @return running state
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Setter Method for running, used by Scheduler. */
+    void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    /** Accessor Method for numTicks
+     *
+     * @return generations completed
+     */
+    public long getNumTicks() {
+        return numTicks;
+    }
+}
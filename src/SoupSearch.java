@@ -0,0 +1,209 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/** SoupSearch class runs many random soups
+ *  concurrently on a worker pool, steps each
+ *  until its population settles, takes its
+ *  census and aggregates the object counts.
+ *  Rare and unknown objects are saved into
+ *  the Database.
+ *
+ * @author RMizelle
+ */
+public class SoupSearch {
+    //objects too common to be saved
+    private static final Set<String> COMMON = new HashSet<>(Arrays.asList(
+            "block", "beehive", "blinker", "loaf", "boat", "ship", "tub", "pond",
+            "barge", "long boat", "toad", "beacon", "glider"));
+    //longest population period detected as settled
+    private static final int MAX_PERIOD = 30;
+
+    private final int numRows;
+    private final int numColumns;
+    private final double density;
+    private final Rule rule;
+    private final boolean wrapEnabled;
+    private final int maxGenerations;
+    private final int minUnknownCells;
+    private final long seed;
+
+    //aggregate statistics
+    private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder numGenerations = new LongAdder();
+    private final LongAdder numUnsettled = new LongAdder();
+    private final List<MatrixData> finds = new ArrayList<>();
+
+    /** 8-arg constructor instantiates a search.
+     *
+     * @param numRows soup length
+     * @param numColumns soup height
+     * @param density % chance for cell to be alive
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     * @param maxGenerations generations before a soup is abandoned
+     * @param minUnknownCells smallest unknown object worth saving
+     * @param seed seed of soup i is seed + i, see Seeder
+     */
+    public SoupSearch(int numRows, int numColumns, double density, Rule rule, boolean wrapEnabled,
+                      int maxGenerations, int minUnknownCells, long seed) {
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.density = density;
+        this.rule = rule;
+        this.wrapEnabled = wrapEnabled;
+        this.maxGenerations = maxGenerations;
+        this.minUnknownCells = minUnknownCells;
+        this.seed = seed;
+    }
+
+    /** Runs soups [0, numSoups) on numThreads workers. Each
+     *  worker reuses one grid and population history.
+     *
+     * @param numSoups number of soups
+     * @param numThreads number of workers
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void run(long numSoups, int numThreads) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+        for (int t = 0; t < numThreads; t++) {
+            workers.execute(() -> {
+                //per-worker buffers
+                PackedGrid grid = new PackedGrid(numRows, numColumns);
+                long[] history = new long[maxGenerations + 1];
+                long i;
+                while ((i = next.getAndIncrement()) < numSoups) {
+                    runSoup(i, grid, history);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    /** Seeds, settles and censuses soup i. */
+    private void runSoup(long i, PackedGrid grid, long[] history) {
+        new Seeder(seed + i, density).fill(grid);
+        int t = 0;
+        history[0] = grid.population();
+        while (t < maxGenerations && !isSettled(history, t)) {
+            grid.step(rule, wrapEnabled);
+            history[++t] = grid.population();
+        }
+        numGenerations.add(t);
+        if (t == maxGenerations) {
+            numUnsettled.increment();
+        }
+        Census census = new Census(grid, wrapEnabled);
+        for (Map.Entry<String, Long> e : census.getCounts().entrySet()) {
+            counts.computeIfAbsent(e.getKey(), k -> new LongAdder()).add(e.getValue());
+        }
+        //keeps rare objects
+        for (Map.Entry<String, MatrixData> e : census.getSamples().entrySet()) {
+            if (!COMMON.contains(e.getKey())) {
+                keep(e.getValue(), e.getKey() + " (seed " + (seed + i) + ")");
+            }
+        }
+        for (MatrixData m : census.getUnknownObjects()) {
+            if (m.getNumCells() >= minUnknownCells) {
+                keep(m, "unknown " + m.getNumCells() + "c (seed " + (seed + i) + ")");
+            }
+        }
+    }
+
+    /** Returns true if the population over the last generations
+     *  repeats with a period of at most MAX_PERIOD.
+     *
+     * @param history population by generation
+     * @param t current generation
+     */
+    private static boolean isSettled(long[] history, int t) {
+        for (int p = 1; p <= MAX_PERIOD; p++) {
+            //requires several repeats of the period
+            int window = Math.max(4 * p, 16);
+            if (t < window + p) {
+                return false;
+            }
+            boolean repeats = true;
+            for (int k = 0; k < window && repeats; k++) {
+                repeats = history[t - k] == history[t - k - p];
+            }
+            if (repeats) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Records an interesting object. */
+    private void keep(MatrixData m, String name) {
+        m.setName(name);
+        synchronized (finds) {
+            finds.add(m);
+        }
+    }
+
+    /** Accessor Method for counts
+     *
+     * @return number of objects by name over all soups
+     */
+    public Map<String, LongAdder> getCounts() {
+        return counts;
+    }
+
+    /** Accessor Method for finds
+     *
+     * @return rare and unknown objects found
+     */
+    public List<MatrixData> getFinds() {
+        return finds;
+    }
+
+    /** Runs a search from command line options and saves
+     *  new finds into the Database.
+     *
+     * @param o options: --soups, --threads, --rows, --columns,
+     *          --density, --rule, --nowrap, --max-generations,
+     *          --min-cells, --seed
+     */
+    public static void run(Options o) throws InterruptedException {
+        SoupSearch search = new SoupSearch(o.getInt("rows", 64), o.getInt("columns", 64),
+                o.getDouble("density", 0.30), Rule.parse(o.getString("rule", Rule.CONWAY.toString())),
+                !o.has("nowrap"), o.getInt("max-generations", 5000), o.getInt("min-cells", 12),
+                o.getLong("seed", System.nanoTime()));
+        long numSoups = o.getLong("soups", 1000);
+        int numThreads = o.getInt("threads", Runtime.getRuntime().availableProcessors());
+        long start = System.nanoTime();
+        search.run(numSoups, numThreads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d soups in %.1fs on %d threads (%.1f soups/s, %d generations, %d unsettled)%n",
+                numSoups, seconds, numThreads, numSoups / seconds,
+                search.numGenerations.sum(), search.numUnsettled.sum());
+        search.counts.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(e -> System.out.printf("%10d  %s%n", e.getValue().sum(), e.getKey()));
+
+        Database database = new Database();
+        //objects found in any orientation count once
+        database.setMatchSymmetries(true);
+        int saved = 0;
+        for (MatrixData m : search.finds) {
+            if (database.addIfAbsent(m)) {
+                saved++;
+            }
+        }
+        database.exportDatabase();
+        System.out.println("Saved " + saved + " New Finds to Database");
+    }
+}
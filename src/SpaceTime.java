@@ -0,0 +1,231 @@
+import javax.imageio.ImageIO;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** SpaceTime class draws the space-time diagram of an
+ *  Elementary row: each generation is a line, the
+ *  newest at the bottom, older lines scrolling up.
+ *
+ *  The diagram is kept in a CellMatrix whose rows are
+ *  the drawn cells and whose columns are generations,
+ *  so it is drawn by the same Viewport as MainPanel.
+ *  It can also be written headless, to a .png or
+ *  streamed line by line to a .pbm.
+ *
+ *  SPACE pauses and resumes, F fits, the wheel zooms
+ *  and dragging pans.
+ *
+ * @author RMizelle
+ */
+public class SpaceTime extends JPanel {
+    //milliseconds between generations
+    private static final int FRAME_DELAY = 15;
+
+    private final Elementary row;
+    private final int from;
+    private final int width;
+    private final int history;
+    private final CellMatrix matrix;
+    private final Viewport view = new Viewport(AppDriver.WIDTH, AppDriver.HEIGHT);
+    //cells [from, from + width) of the newest generation
+    private final long[] line;
+    private boolean running = true;
+    private int lastX;
+    private int lastY;
+
+    /** 3-arg constructor instantiates a diagram tall enough
+     *  to fill the screen when fit, starting from the row's
+     *  current generation.
+     *
+     * @param row row to be stepped
+     * @param from first cell drawn
+     * @param width number of cells drawn
+     */
+    public SpaceTime(Elementary row, int from, int width) {
+        this.row = row;
+        this.from = from;
+        this.width = width;
+        history = Math.max(1, (int) ((long) width * AppDriver.HEIGHT / AppDriver.WIDTH));
+        matrix = new CellMatrix(width, history);
+        line = new long[(width + 63) >>> 6];
+        view.fit(width, history);
+        record();
+
+        setFocusable(true);
+        MouseAdapter mouse = new MouseAdapter() {
+            public void mousePressed(MouseEvent e) {
+                lastX = e.getX();
+                lastY = e.getY();
+            }
+
+            public void mouseDragged(MouseEvent e) {
+                view.pan(e.getX() - lastX, e.getY() - lastY);
+                lastX = e.getX();
+                lastY = e.getY();
+                repaint();
+            }
+
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                view.zoom(Math.pow(1.25, -e.getWheelRotation()), e.getX(), e.getY());
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+        addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_SPACE) {
+                    running = !running;
+                }
+                else if (e.getKeyCode() == KeyEvent.VK_F) {
+                    view.fit(SpaceTime.this.width, history);
+                }
+                repaint();
+            }
+        });
+        new Timer(FRAME_DELAY, e -> {
+            if (running) {
+                row.step();
+                record();
+                repaint();
+            }
+        }).start();
+    }
+
+    /** Scrolls the diagram up a generation and draws the
+     *  row's current generation along the bottom.
+     */
+    private void record() {
+        PackedGrid grid = matrix.getGrid();
+        long[] words = grid.getWords();
+        int wpr = grid.getWordsPerRow();
+        int newest = history - 1;
+        row.readCells(from, width, line);
+        for (int x = 0; x < width; x++) {
+            int base = x * wpr;
+            //moves each generation one column towards the top
+            for (int i = 0; i < wpr - 1; i++) {
+                words[base + i] = words[base + i] >>> 1 | words[base + i + 1] << 63;
+            }
+            words[base + wpr - 1] >>>= 1;
+            words[base + (newest >>> 6)] |= (line[x >>> 6] >>> x & 1L) << newest;
+        }
+    }
+
+    @Override
+    /** Paint method for SpaceTime that draws the
+     *  diagram and its generation.
+     *
+     * @param g graphics
+     */
+    public void paintComponent(Graphics g) {
+        matrix.drawMatrix(g, view);
+        g.setColor(Color.white);
+        g.drawString("Rule " + row.getRule() + ", generation " + row.getNumTicks()
+                + (running ? "" : " paused"), 10, 20);
+    }
+
+    /** Opens a window scrolling through a row's diagram.
+     *
+     * @param row row to be stepped
+     * @param from first cell drawn
+     * @param width number of cells drawn
+     */
+    public static void open(Elementary row, int from, int width) throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            JFrame frame = new JFrame("Automata Rule " + row.getRule());
+            frame.setContentPane(new SpaceTime(row, from, width));
+            frame.setSize(AppDriver.WIDTH + 17, AppDriver.HEIGHT + 40);
+            frame.setLocation(50, 50);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setResizable(false);
+            frame.setVisible(true);
+        });
+    }
+
+    /** Writes the diagram of a number of generations, one line
+     *  each after the current one, living cells black on white.
+     *  A .pbm is streamed a line at a time, so its height is
+     *  unlimited; anything else is written as a .png.
+     *
+     * @param row row to be stepped
+     * @param from first cell drawn
+     * @param width number of cells drawn
+     * @param generations generations stepped
+     * @param output file written
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Elementary row, int from, int width, int generations, File output) throws IOException {
+        long start = System.nanoTime();
+        int height = generations + 1;
+        long[] cells = new long[(width + 63) >>> 6];
+        byte[] bytes = new byte[8 * cells.length];
+        int lineBytes = (width + 7) >>> 3;
+        if (output.getName().toLowerCase().endsWith(".pbm")) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output), 1 << 16)) {
+                out.write(("P4\n" + width + " " + height + "\n").getBytes(StandardCharsets.US_ASCII));
+                for (int t = 0; t < height; t++) {
+                    if (t > 0) {
+                        row.step();
+                    }
+                    row.readCells(from, width, cells);
+                    toBytes(cells, bytes);
+                    out.write(bytes, 0, lineBytes);
+                }
+            }
+        }
+        else {
+            if ((long) lineBytes * height > Integer.MAX_VALUE) {
+                throw new IOException("Diagram too large for a .png, use a .pbm: " + width + "x" + height);
+            }
+            //one bit per pixel, set bits black as in a .pbm
+            IndexColorModel colors = new IndexColorModel(1, 2, new byte[] {-1, 0}, new byte[] {-1, 0},
+                    new byte[] {-1, 0});
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY, colors);
+            byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            for (int t = 0; t < height; t++) {
+                if (t > 0) {
+                    row.step();
+                }
+                row.readCells(from, width, cells);
+                toBytes(cells, bytes);
+                System.arraycopy(bytes, 0, data, t * lineBytes, lineBytes);
+            }
+            if (!ImageIO.write(image, "png", output)) {
+                throw new IOException("No PNG writer available");
+            }
+        }
+        System.out.println("Wrote " + height + " Generations of rule " + row.getRule() + " to " + output
+                + " in " + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+
+    /** Packs cells into bytes leftmost cell first, the most
+     *  significant bit of each byte, as PBM and PNG expect.
+     */
+    private static void toBytes(long[] cells, byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        for (long w : cells) {
+            buffer.putLong(Long.reverse(w));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/** StepKernel interface computes the next
+ *  generation of a range of rows of a
+ *  PackedGrid, allowing the stepping loop
+ *  to be swapped for faster implementations.
+ *
+ * @author RMizelle
+ */
+public interface StepKernel {
+    //reference word-at-a-time kernel
+    StepKernel SCALAR = (grid, src, dst, fromRow, toRow, rule) -> grid.stepRows(src, dst, fromRow, toRow, rule);
+
+    /** Computes the next generation of rows [fromRow, toRow)
+     *  of src into dst, bit-identical to the scalar kernel.
+     *  Edges are already joined in the ghost rows and words
+     *  of src, see PackedGrid.pad, so no word needs edge checks.
+     *
+     * @param grid grid dimensions
+     * @param src current generation, padded, row x at padded row x + 1
+     * @param dst next generation, unpadded
+     * @param fromRow first row, inclusive
+     * @param toRow last row, exclusive
+     * @param rule birth/survival rule
+     */
+    void stepRows(PackedGrid grid, long[] src, long[] dst, int fromRow, int toRow, Rule rule);
+
+    /** Returns the fastest kernel available. The SIMD kernel is
+     *  used when the jdk.incubator.vector module is present
+     *  (--add-modules jdk.incubator.vector) and the hardware
+     *  has 64-bit SIMD lanes, unless the property
+     *  automata.kernel is set to "scalar", or to "lut" for the
+     *  block lookup table kernel.
+     *
+     * @return best kernel
+     */
+    static StepKernel best() {
+        String name = System.getProperty("automata.kernel");
+        if ("lut".equals(name)) {
+            return new LutKernel();
+        }
+        if (!"scalar".equals(name)) {
+            try {
+                //loaded reflectively so the module stays optional
+                Class<?> vector = Class.forName("VectorKernel");
+                if ((Boolean) vector.getMethod("isSupported").invoke(null)) {
+                    return (StepKernel) vector.getDeclaredConstructor().newInstance();
+                }
+            }
+            catch (ReflectiveOperationException | LinkageError e) {
+                //module unavailable, falls through to scalar
+            }
+        }
+        return SCALAR;
+    }
+}
@@ -0,0 +1,245 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/** StreamServer class runs one simulation and
+ *  streams it to any number of StreamViewers.
+ *  Stepping, encoding and all socket I/O share
+ *  a single thread using non-blocking channels.
+ *
+ *  Every generation is encoded once as a delta
+ *  frame. A viewer still sending an earlier frame
+ *  skips generations instead of holding up the
+ *  simulation, and is sent a key frame once it
+ *  catches up.
+ *
+ * @author RMizelle
+ */
+public class StreamServer {
+    public static final int DEFAULT_PORT = 7341;
+
+    private final PackedGrid grid;
+    private final Rule rule;
+    private final boolean wrapEnabled;
+    private final int delay;
+    private final DeltaCodec codec = new DeltaCodec();
+    private long[] previous;
+    private long generation;
+    //key frame of the current generation, built on demand
+    private byte[] keyFrame;
+    private Selector selector;
+    private int numViewers;
+    private long numSkipped;
+    private final ByteBuffer discard = ByteBuffer.allocate(256);
+
+    /** Viewer connection state. */
+    private static class Viewer {
+        //frame being sent, null when idle
+        private ByteBuffer pending;
+        //last generation sent, -1 if none
+        private long generation = -1;
+    }
+
+    /** 4-arg constructor instantiates a server for a grid.
+     *  The grid is stepped in place.
+     *
+     * @param grid first generation
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     * @param delay milliseconds per generation
+     */
+    public StreamServer(PackedGrid grid, Rule rule, boolean wrapEnabled, int delay) {
+        this.grid = grid;
+        this.rule = rule;
+        this.wrapEnabled = wrapEnabled;
+        this.delay = delay;
+        this.previous = new long[grid.getWords().length];
+    }
+
+    /** Serves viewers on a port until interrupted.
+     *
+     * @param port port to listen on
+     * @throws IOException if the port cannot be opened
+     */
+    public void serve(int port) throws IOException {
+        selector = Selector.open();
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            long nextTick = System.nanoTime();
+            long nextReport = nextTick + 10_000_000_000L;
+            while (!Thread.currentThread().isInterrupted()) {
+                long wait = (nextTick - System.nanoTime()) / 1_000_000;
+                if (wait > 0) {
+                    selector.select(wait);
+                }
+                else {
+                    selector.selectNow();
+                }
+                handleKeys(server);
+                long now = System.nanoTime();
+                if (now - nextTick >= 0) {
+                    tick();
+                    //drops ticks rather than bursting after a stall
+                    nextTick = Math.max(nextTick + delay * 1_000_000L, now);
+                }
+                if (now - nextReport >= 0) {
+                    System.out.println("Generation " + generation + ": " + numViewers + " viewers, "
+                            + numSkipped + " frames skipped");
+                    nextReport += 10_000_000_000L;
+                }
+            }
+        }
+        finally {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    /** Accepts new viewers and continues pending writes. */
+    private void handleKeys(ServerSocketChannel server) throws IOException {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                SocketChannel channel;
+                while ((channel = server.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    SelectionKey k = channel.register(selector, SelectionKey.OP_READ, new Viewer());
+                    numViewers++;
+                    //new viewers start from a key frame
+                    send(k, getKeyFrame());
+                }
+                continue;
+            }
+            try {
+                if (key.isReadable()) {
+                    //viewers send nothing, reading detects disconnects
+                    discard.clear();
+                    if (((SocketChannel) key.channel()).read(discard) < 0) {
+                        disconnect(key);
+                        continue;
+                    }
+                }
+                if (key.isWritable()) {
+                    flush(key);
+                }
+            }
+            catch (IOException e) {
+                disconnect(key);
+            }
+        }
+    }
+
+    /** Steps one generation and sends it to every idle viewer. */
+    private void tick() {
+        long[] words = grid.getWords();
+        System.arraycopy(words, 0, previous, 0, words.length);
+        grid.step(rule, wrapEnabled);
+        generation++;
+        keyFrame = null;
+        byte[] delta = null;
+        for (SelectionKey key : selector.keys()) {
+            if (!(key.attachment() instanceof Viewer) || !key.isValid()) {
+                continue;
+            }
+            Viewer v = (Viewer) key.attachment();
+            if (v.pending != null) {
+                //slow viewer skips this generation
+                numSkipped++;
+                continue;
+            }
+            if (v.generation == generation - 1) {
+                if (delta == null) {
+                    delta = codec.encodeDelta(grid, previous, generation);
+                }
+                send(key, delta);
+            }
+            else {
+                send(key, getKeyFrame());
+            }
+        }
+    }
+
+    /** Returns the key frame of the current generation. */
+    private byte[] getKeyFrame() {
+        if (keyFrame == null) {
+            keyFrame = codec.encodeKey(grid, generation);
+        }
+        return keyFrame;
+    }
+
+    /** Starts sending a frame, shared read-only between viewers. */
+    private void send(SelectionKey key, byte[] frame) {
+        Viewer v = (Viewer) key.attachment();
+        v.pending = ByteBuffer.wrap(frame);
+        v.generation = generation;
+        try {
+            flush(key);
+        }
+        catch (IOException e) {
+            disconnect(key);
+        }
+    }
+
+    /** Writes as much of the pending frame as the socket accepts,
+     *  waiting for writability if it is not all sent.
+     */
+    private void flush(SelectionKey key) throws IOException {
+        Viewer v = (Viewer) key.attachment();
+        if (v.pending == null) {
+            key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+        ((SocketChannel) key.channel()).write(v.pending);
+        if (v.pending.hasRemaining()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+        else {
+            v.pending = null;
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /** Drops a viewer. */
+    private void disconnect(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        }
+        catch (IOException e) {
+            //already closed
+        }
+        numViewers--;
+    }
+
+    /** Runs a server from command line options.
+     *
+     * @param o options: --port, --delay, --rule, --nowrap, and
+     *          the grid options of AppDriver.loadGrid
+     */
+    public static void run(Options o) throws IOException {
+        PackedGrid grid = AppDriver.loadGrid(o);
+        StreamServer server = new StreamServer(grid, Rule.parse(o.getString("rule", Rule.CONWAY.toString())),
+                !o.has("nowrap"), o.getInt("delay", 50));
+        int port = o.getInt("port", DEFAULT_PORT);
+        System.out.println("Streaming " + grid.getNumRows() + "x" + grid.getNumColumns() + " on Port " + port);
+        server.serve(port);
+    }
+}
@@ -0,0 +1,146 @@
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/** StreamViewer class is a thin client that shows
+ *  a simulation streamed by a StreamServer, applying
+ *  frames to a local grid and drawing it with the
+ *  same Viewport as MainPanel.
+ *
+ * @author RMizelle
+ */
+public class StreamViewer extends JPanel {
+    private final Viewport view = new Viewport(AppDriver.WIDTH, AppDriver.HEIGHT);
+    //guarded by this
+    private PackedGrid grid;
+    private long generation;
+    private long population;
+    private int lastX;
+    private int lastY;
+
+    /** 0-arg constructor instantiates a viewer with
+     *  wheel zoom, drag pan and F to fit.
+     */
+    public StreamViewer() {
+        setFocusable(true);
+        MouseAdapter mouse = new MouseAdapter() {
+            public void mousePressed(MouseEvent e) {
+                lastX = e.getX();
+                lastY = e.getY();
+            }
+
+            public void mouseDragged(MouseEvent e) {
+                synchronized (StreamViewer.this) {
+                    view.pan(e.getX() - lastX, e.getY() - lastY);
+                }
+                lastX = e.getX();
+                lastY = e.getY();
+                repaint();
+            }
+
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                synchronized (StreamViewer.this) {
+                    view.zoom(Math.pow(1.25, -e.getWheelRotation()), e.getX(), e.getY());
+                }
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+        addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                synchronized (StreamViewer.this) {
+                    if (e.getKeyCode() == KeyEvent.VK_F && grid != null) {
+                        view.fit(grid.getNumRows(), grid.getNumColumns());
+                    }
+                }
+                repaint();
+            }
+        });
+    }
+
+    /** Receives frames until the server disconnects.
+     *
+     * @param host server address
+     * @param port server port
+     * @throws IOException if the connection fails
+     */
+    public void receive(String host, int port) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            byte[] bytes = new byte[0];
+            while (true) {
+                int length = in.readInt();
+                if (bytes.length < length) {
+                    bytes = new byte[length];
+                }
+                in.readFully(bytes, 0, length);
+                ByteBuffer frame = ByteBuffer.wrap(bytes, 0, length);
+                synchronized (this) {
+                    boolean first = grid == null;
+                    generation = DeltaCodec.getGeneration(frame);
+                    population = DeltaCodec.getPopulation(frame);
+                    grid = DeltaCodec.apply(frame, grid);
+                    if (first) {
+                        view.fit(grid.getNumRows(), grid.getNumColumns());
+                    }
+                }
+                repaint();
+            }
+        }
+    }
+
+    @Override
+    /** Paint method for StreamViewer that draws
+     *  the latest frame and its generation.
+     *
+     * @param g graphics
+     */
+    public synchronized void paintComponent(Graphics g) {
+        if (grid == null) {
+            g.setColor(Color.black);
+            g.fillRect(0, 0, getWidth(), getHeight());
+            return;
+        }
+        view.render(g, grid, -1, -1);
+        g.setColor(Color.white);
+        g.drawString("Generation " + generation + " (" + population + " cells)", 10, 20);
+    }
+
+    /** Opens a viewer window from command line options.
+     *
+     * @param o options: --host, --port
+     */
+    public static void run(Options o) throws Exception {
+        StreamViewer viewer = new StreamViewer();
+        SwingUtilities.invokeAndWait(() -> {
+            JFrame frame = new JFrame("Automata Viewer");
+            frame.setContentPane(viewer);
+            frame.setSize(AppDriver.WIDTH + 17, AppDriver.HEIGHT + 40);
+            frame.setLocation(50, 50);
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.setResizable(false);
+            frame.setVisible(true);
+        });
+        try {
+            viewer.receive(o.getString("host", "localhost"), o.getInt("port", StreamServer.DEFAULT_PORT));
+        }
+        catch (IOException e) {
+            System.out.println("ERROR: Stream Closed");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import javax.swing.JPanel;
+import javax.swing.Timer;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/** TilePanel class shows many Simulations side by
+ *  side, one tile each. A single timer repaints
+ *  every tile while the Scheduler steps them.
+ *
+ *  Clicking a tile pauses or resumes it; SPACE
+ *  pauses or resumes all of them.
+ *
+ * @author RMizelle
+ */
+public class TilePanel extends JPanel {
+    //milliseconds between repaints
+    private static final int FRAME_DELAY = 33;
+
+    private final Scheduler scheduler;
+    private final List<Simulation> simulations;
+    private final Viewport[] views;
+    private final int numTileColumns;
+    private final int tileWidth;
+    private final int tileHeight;
+
+    /** 2-arg constructor instantiates a panel of tiles.
+     *
+     * @param scheduler scheduler hosting the simulations
+     * @param simulations simulations to be shown
+     */
+    public TilePanel(Scheduler scheduler, List<Simulation> simulations) {
+        this.scheduler = scheduler;
+        this.simulations = simulations;
+        numTileColumns = (int) Math.ceil(Math.sqrt(simulations.size()));
+        int numTileRows = (simulations.size() + numTileColumns - 1) / numTileColumns;
+        tileWidth = AppDriver.WIDTH / numTileColumns;
+        tileHeight = AppDriver.HEIGHT / numTileRows;
+        views = new Viewport[simulations.size()];
+        for (int i = 0; i < views.length; i++) {
+            //leaves a pixel between tiles
+            views[i] = new Viewport(tileWidth - 1, tileHeight - 1);
+            int[] size = simulations.get(i).getSize();
+            views[i].fit(size[0], size[1]);
+        }
+        setFocusable(true);
+        addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int i = (e.getY() / tileHeight) * numTileColumns + e.getX() / tileWidth;
+                if (e.getX() / tileWidth < numTileColumns && i < simulations.size()) {
+                    scheduler.toggle(simulations.get(i));
+                }
+            }
+        });
+        addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_SPACE) {
+                    boolean anyRunning = simulations.stream().anyMatch(Simulation::isRunning);
+                    for (Simulation s : simulations) {
+                        if (anyRunning) {
+                            scheduler.pause(s);
+                        }
+                        else {
+                            scheduler.resume(s);
+                        }
+                    }
+                }
+            }
+        });
+        new Timer(FRAME_DELAY, e -> repaint()).start();
+    }
+
+    @Override
+    /** Paint method for TilePanel that draws
+     *  every simulation with its rule and ticks.
+     *
+     * @param g graphics
+     */
+    public void paintComponent(Graphics g) {
+        g.setColor(Color.black);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        for (int i = 0; i < simulations.size(); i++) {
+            Simulation s = simulations.get(i);
+            int pX = (i % numTileColumns) * tileWidth;
+            int pY = (i / numTileColumns) * tileHeight;
+            Graphics tile = g.create(pX, pY, tileWidth - 1, tileHeight - 1);
+            s.draw(tile, views[i]);
+            //status indicator as in MainPanel
+            tile.setColor(s.isRunning() ? Color.GREEN : Color.RED);
+            tile.fillRect(2, 2, 6, 6);
+            tile.setColor(Color.white);
+            tile.drawString(s.getRule() + " " + s.getNumTicks(), 12, 11);
+            tile.dispose();
+        }
+    }
+}
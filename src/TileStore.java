@@ -0,0 +1,143 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/** TileStore class keeps fixed-size tiles of packed
+ *  words in a memory-mapped file. The file is mapped
+ *  in large regions as it grows, so only tiles in use
+ *  occupy disk or memory and the OS pages inactive
+ *  ones out of its page cache.
+ *
+ * @author RMizelle
+ */
+public class TileStore implements AutoCloseable {
+    //bytes mapped at a time, below the 2GB mapping limit
+    private static final long REGION_BYTES = 1L << 30;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int tileWords;
+    private final int tilesPerRegion;
+    private final ArrayList<LongBuffer> regions = new ArrayList<>();
+    //next never used slot, and slots freed since
+    private int numSlots;
+    private int[] freeSlots = new int[16];
+    private int numFree;
+
+    /** 2-arg constructor creates an empty store.
+     *
+     * @param file backing file, replaced if present
+     * @param tileWords words per tile
+     * @throws IOException if the file cannot be created
+     */
+    public TileStore(File file, int tileWords) throws IOException {
+        this.file = file;
+        this.tileWords = tileWords;
+        this.tilesPerRegion = (int) (REGION_BYTES / (8L * tileWords));
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /** Returns a free slot, growing the file if needed.
+     *
+     * @return slot index
+     * @throws IOException if the file cannot be mapped
+     */
+    public int allocate() throws IOException {
+        if (numFree > 0) {
+            return freeSlots[--numFree];
+        }
+        int slot = numSlots++;
+        if (slot / tilesPerRegion >= regions.size()) {
+            //maps the next region, the file grows sparsely as it is written
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE,
+                    (long) regions.size() * REGION_BYTES, REGION_BYTES);
+            regions.add(region.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+        }
+        return slot;
+    }
+
+    /** Returns a slot for reuse.
+     *
+     * @param slot slot index
+     */
+    public void free(int slot) {
+        if (numFree == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, numFree * 2);
+        }
+        freeSlots[numFree++] = slot;
+    }
+
+    /** Frees every slot, keeping the file and its mappings. */
+    public void clear() {
+        numSlots = 0;
+        numFree = 0;
+    }
+
+    /** Copies words of a tile into dst.
+     *
+     * @param slot slot index
+     * @param from first word within the tile
+     * @param dst destination
+     * @param offset first index of dst
+     * @param length number of words
+     */
+    public void read(int slot, int from, long[] dst, int offset, int length) {
+        regions.get(slot / tilesPerRegion).get((slot % tilesPerRegion) * tileWords + from, dst, offset, length);
+    }
+
+    /** Returns one word of a tile.
+     *
+     * @param slot slot index
+     * @param i word within the tile
+     * @return packed word
+     */
+    public long get(int slot, int i) {
+        return regions.get(slot / tilesPerRegion).get((slot % tilesPerRegion) * tileWords + i);
+    }
+
+    /** Sets one word of a tile.
+     *
+     * @param slot slot index
+     * @param i word within the tile
+     * @param w packed word
+     */
+    public void put(int slot, int i, long w) {
+        regions.get(slot / tilesPerRegion).put((slot % tilesPerRegion) * tileWords + i, w);
+    }
+
+    /** Copies a whole tile from src.
+     *
+     * @param slot slot index
+     * @param src tile words
+     */
+    public void write(int slot, long[] src) {
+        regions.get(slot / tilesPerRegion).put((slot % tilesPerRegion) * tileWords, src, 0, tileWords);
+    }
+
+    /** Accessor Method for the number of slots ever used
+     *
+     * @return high-water mark of slots
+     */
+    public int getNumSlots() {
+        return numSlots;
+    }
+
+    /** Closes and deletes the file. Mappings are released
+     *  once collected.
+     */
+    @Override
+    public void close() throws IOException {
+        regions.clear();
+        channel.close();
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,335 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/** TiledGrid class is a universe too large for
+ *  the heap, split into square tiles of packed
+ *  words kept in memory-mapped TileStores. Only
+ *  tiles with living cells are stored, so a mostly
+ *  empty universe costs little more than its
+ *  tile index.
+ *
+ *  Each generation is streamed tile by tile in
+ *  index order: a tile is copied with a one-cell
+ *  halo from its neighbors into a small PackedGrid,
+ *  stepped there, and written to the next store.
+ *
+ * @author RMizelle
+ */
+public class TiledGrid implements AutoCloseable {
+    //cells per tile side
+    public static final int TILE = 256;
+    private static final int TILE_ROW_WORDS = TILE / 64;
+    private static final int TILE_WORDS = TILE * TILE_ROW_WORDS;
+    //tile row plus a halo word on each side
+    private static final int LOCAL_ROW_WORDS = TILE_ROW_WORDS + 2;
+
+    private final long numRows;
+    private final long numColumns;
+    private final int numTileRows;
+    private final int numTileColumns;
+    private TileStore current;
+    private TileStore next;
+    //slot of each tile by index tx * numTileColumns + ty, -1 if empty
+    private int[] slots;
+    private int[] nextSlots;
+    //indices of stored tiles, so work scales with them rather than the universe
+    private int[] active = new int[16];
+    private int numActive;
+    private int[] nextActive = new int[16];
+    private final BitSet candidates = new BitSet();
+    //tile with its halo, and a tile being written
+    private final PackedGrid local = new PackedGrid(TILE + 2, LOCAL_ROW_WORDS * 64);
+    private final long[] tile = new long[TILE_WORDS];
+    private long population;
+    private long numTicks;
+
+    /** 3-arg constructor creates an empty universe.
+     *
+     * @param numRows universe length, a multiple of TILE
+     * @param numColumns universe height, a multiple of TILE
+     * @param directory where the tile files are created
+     * @throws IOException if the files cannot be created
+     */
+    public TiledGrid(long numRows, long numColumns, File directory) throws IOException {
+        if (numRows < TILE || numColumns < TILE || numRows % TILE != 0 || numColumns % TILE != 0
+                || (numRows / TILE) * (numColumns / TILE) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid universe size: " + numRows + "x" + numColumns);
+        }
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        numTileRows = (int) (numRows / TILE);
+        numTileColumns = (int) (numColumns / TILE);
+        slots = new int[numTileRows * numTileColumns];
+        nextSlots = new int[slots.length];
+        Arrays.fill(slots, -1);
+        Arrays.fill(nextSlots, -1);
+        current = new TileStore(File.createTempFile("tiles", ".bin", directory), TILE_WORDS);
+        next = new TileStore(File.createTempFile("tiles", ".bin", directory), TILE_WORDS);
+    }
+
+    /** Returns mortality of cell at position.
+     *
+     * @param pX position X
+     * @param pY position Y
+     * @return true if cell is alive
+     */
+    public boolean get(long pX, long pY) {
+        int slot = slots[(int) (pX / TILE) * numTileColumns + (int) (pY / TILE)];
+        if (slot < 0) {
+            return false;
+        }
+        return (current.get(slot, wordOf(pX, pY)) >>> pY & 1L) != 0;
+    }
+
+    /** Sets mortality of cell at position.
+     *
+     * @param pX position X
+     * @param pY position Y
+     * @param alive mortality of cell
+     * @throws IOException if a tile cannot be allocated
+     */
+    public void set(long pX, long pY, boolean alive) throws IOException {
+        int t = (int) (pX / TILE) * numTileColumns + (int) (pY / TILE);
+        if (slots[t] < 0) {
+            if (!alive) {
+                return;
+            }
+            slots[t] = current.allocate();
+            if (numActive == active.length) {
+                active = Arrays.copyOf(active, numActive * 2);
+            }
+            active[numActive++] = t;
+            Arrays.fill(tile, 0L);
+            current.write(slots[t], tile);
+        }
+        int i = wordOf(pX, pY);
+        long w = current.get(slots[t], i);
+        long v = alive ? w | 1L << pY : w & ~(1L << pY);
+        current.put(slots[t], i, v);
+        population += Long.bitCount(v) - Long.bitCount(w);
+    }
+
+    /** Returns the word of a cell within its tile. */
+    private static int wordOf(long pX, long pY) {
+        return (int) (pX % TILE) * TILE_ROW_WORDS + (int) (pY % TILE >>> 6);
+    }
+
+    /** Copies the living cells of a grid into the universe.
+     *
+     * @param grid cells to be copied
+     * @param pX position X of grid's first row
+     * @param pY position Y of grid's first column
+     * @throws IOException if a tile cannot be allocated
+     */
+    public void paste(PackedGrid grid, long pX, long pY) throws IOException {
+        long[] words = grid.getWords();
+        int wordsPerRow = grid.getWordsPerRow();
+        for (int i = 0; i < words.length; i++) {
+            //visits living cells only
+            long w = words[i];
+            while (w != 0) {
+                set(pX + i / wordsPerRow, pY + ((i % wordsPerRow) << 6) + Long.numberOfTrailingZeros(w), true);
+                w &= w - 1;
+            }
+        }
+    }
+
+    /** Advances universe one generation. Only tiles with living
+     *  cells and their neighbors are visited.
+     *
+     * @param rule birth/survival rule
+     * @param wrapEnabled true if edges wrap around
+     * @throws IOException if a tile cannot be allocated
+     */
+    public void step(Rule rule, boolean wrapEnabled) throws IOException {
+        //marks tiles where cells may live next generation
+        candidates.clear();
+        for (int k = 0; k < numActive; k++) {
+            int t = active[k];
+            int tx = t / numTileColumns;
+            int ty = t % numTileColumns;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int n = tileIndex(tx + dx, ty + dy, wrapEnabled);
+                    if (n >= 0) {
+                        candidates.set(n);
+                    }
+                }
+            }
+        }
+
+        next.clear();
+        int numNextActive = 0;
+        population = 0;
+        for (int t = candidates.nextSetBit(0); t >= 0; t = candidates.nextSetBit(t + 1)) {
+            loadLocal(t / numTileColumns, t % numTileColumns, wrapEnabled);
+            local.step(rule, false, 1, TILE + 1);
+            long[] words = local.getWords();
+            long num = 0;
+            for (int r = 0; r < TILE; r++) {
+                for (int i = 0; i < TILE_ROW_WORDS; i++) {
+                    long w = words[(r + 1) * LOCAL_ROW_WORDS + 1 + i];
+                    tile[r * TILE_ROW_WORDS + i] = w;
+                    num += Long.bitCount(w);
+                }
+            }
+            //empty tiles are not stored
+            if (num > 0) {
+                nextSlots[t] = next.allocate();
+                next.write(nextSlots[t], tile);
+                population += num;
+                if (numNextActive == nextActive.length) {
+                    nextActive = Arrays.copyOf(nextActive, numNextActive * 2);
+                }
+                nextActive[numNextActive++] = t;
+            }
+        }
+
+        //migrates previous to current generation
+        TileStore tempStore = current;
+        current = next;
+        next = tempStore;
+        int[] tempSlots = slots;
+        slots = nextSlots;
+        nextSlots = tempSlots;
+        //empties the old index for reuse
+        for (int k = 0; k < numActive; k++) {
+            nextSlots[active[k]] = -1;
+        }
+        int[] tempActive = active;
+        active = nextActive;
+        nextActive = tempActive;
+        numActive = numNextActive;
+        numTicks++;
+    }
+
+    /** Copies tile [tx, ty] into local with a halo of one row
+     *  above and below and one word to each side, taken from
+     *  the neighboring tiles.
+     */
+    private void loadLocal(int tx, int ty, boolean wrapEnabled) {
+        long[] words = local.getWords();
+        int[][] neighbors = new int[3][3];
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                int n = tileIndex(tx + dx, ty + dy, wrapEnabled);
+                neighbors[dx + 1][dy + 1] = n < 0 ? -1 : slots[n];
+            }
+        }
+        for (int r = 0; r < TILE + 2; r++) {
+            //tile row of the source, from the tile above or below at the ends
+            int dx = r == 0 ? 0 : r == TILE + 1 ? 2 : 1;
+            int row = r == 0 ? TILE - 1 : r == TILE + 1 ? 0 : r - 1;
+            int base = r * LOCAL_ROW_WORDS;
+            int left = neighbors[dx][0];
+            int center = neighbors[dx][1];
+            int right = neighbors[dx][2];
+            words[base] = left < 0 ? 0L : current.get(left, row * TILE_ROW_WORDS + TILE_ROW_WORDS - 1);
+            if (center < 0) {
+                Arrays.fill(words, base + 1, base + 1 + TILE_ROW_WORDS, 0L);
+            }
+            else {
+                current.read(center, row * TILE_ROW_WORDS, words, base + 1, TILE_ROW_WORDS);
+            }
+            words[base + LOCAL_ROW_WORDS - 1] = right < 0 ? 0L : current.get(right, row * TILE_ROW_WORDS);
+        }
+    }
+
+    /** Returns the index of tile [tx, ty], -1 beyond dead edges. */
+    private int tileIndex(int tx, int ty, boolean wrapEnabled) {
+        if (wrapEnabled) {
+            tx = Math.floorMod(tx, numTileRows);
+            ty = Math.floorMod(ty, numTileColumns);
+        }
+        else if (tx < 0 || tx >= numTileRows || ty < 0 || ty >= numTileColumns) {
+            return -1;
+        }
+        return tx * numTileColumns + ty;
+    }
+
+    /** Accessor Method for Population
+     *
+     * @return number of living cells
+     */
+    public long population() {
+        return population;
+    }
+
+    /** Returns the number of stored tiles.
+     *
+     * @return tiles with living cells
+     */
+    public int getNumActiveTiles() {
+        return numActive;
+    }
+
+    /** Accessor Method for numTicks
+     *
+     * @return generations completed
+     */
+    public long getNumTicks() {
+        return numTicks;
+    }
+
+    /** Accessor Method for numRows
+     *
+     * @return universe length
+     */
+    public long getNumRows() {
+        return numRows;
+    }
+
+    /** Accessor Method for numColumns
+     *
+     * @return universe height
+     */
+    public long getNumColumns() {
+        return numColumns;
+    }
+
+    /** Deletes the tile files. */
+    @Override
+    public void close() throws IOException {
+        current.close();
+        next.close();
+    }
+
+    /** Runs a universe from command line options, with a soup or
+     *  Database pattern pasted at its center.
+     *
+     * @param o options: --rows, --columns, --soup (side), --density,
+     *          --seed, --pattern, --rule, --nowrap, --generations, --dir
+     */
+    public static void run(Options o) throws IOException {
+        Rule rule = Rule.parse(o.getString("rule", Rule.CONWAY.toString()));
+        boolean wrapEnabled = !o.has("nowrap");
+        long numRows = o.getLong("rows", 1L << 18);
+        long numColumns = o.getLong("columns", 1L << 18);
+        int generations = o.getInt("generations", 100);
+        PackedGrid seed;
+        if (o.has("pattern")) {
+            seed = AppDriver.loadGrid(o);
+        }
+        else {
+            int side = o.getInt("soup", 1024);
+            seed = new PackedGrid(side, side);
+            new Seeder(o.getLong("seed", Seeder.newSeed()), o.getDouble("density", 0.30)).fillParallel(seed);
+        }
+
+        try (TiledGrid universe = new TiledGrid(numRows, numColumns, new File(o.getString("dir", ".")))) {
+            universe.paste(seed, (numRows - seed.getNumRows()) / 2, (numColumns - seed.getNumColumns()) / 2);
+            System.out.println(numRows + " x " + numColumns + " cells, " + universe.population() + " living");
+            long start = System.nanoTime();
+            for (int i = 1; i <= generations; i++) {
+                universe.step(rule, wrapEnabled);
+                if (i % 10 == 0 || i == generations) {
+                    System.out.printf("Generation %d: %d cells in %d tiles (%.1f ms/generation)%n",
+                            i, universe.population(), universe.getNumActiveTiles(),
+                            (System.nanoTime() - start) / 1e6 / i);
+                }
+            }
+        }
+    }
+}
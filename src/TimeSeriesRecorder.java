@@ -0,0 +1,321 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** TimeSeriesRecorder class records the population,
+ *  births and deaths of every generation to a file
+ *  without blocking the stepping loop on disk I/O.
+ *
+ *  The stepping thread is the only producer and a
+ *  background thread the only consumer of a ring
+ *  of samples, so neither locks: each publishes its
+ *  position with an ordered write the other reads.
+ *  The writer drains the ring into a buffer that is
+ *  written once full, or once a second when idle.
+ *
+ *  When the ring is full, samples are dropped
+ *  (Overflow.DROP) or the producer waits for room
+ *  (Overflow.BLOCK).
+ *
+ *  A .csv file is written as text. Any other file
+ *  is binary: "ATS1", then per sample zigzag varints
+ *  of the generation and population minus those of
+ *  the last sample, births and deaths. Dropped
+ *  samples show as gaps in the generations; births
+ *  and deaths are -1 where unknown.
+ *
+ * @author RMizelle
+ */
+public class TimeSeriesRecorder implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    //longs per sample: generation, population, births, deaths
+    private static final int FIELDS = 4;
+    private static final int BATCH_BYTES = 1 << 20;
+    //longest an idle writer holds a partial batch
+    private static final long FLUSH_NANOS = 1000000000L;
+    private static final long IDLE_NANOS = 1000000L;
+    private static final byte[] MAGIC = {'A', 'T', 'S', '1'};
+
+    /** Overflow enum picks what happens when the ring is full. */
+    public enum Overflow {
+        DROP,
+        BLOCK
+    }
+
+    /** Sink interface receives samples read from a file. */
+    public interface Sink {
+        void accept(long generation, long population, long births, long deaths);
+    }
+
+    private final long[] ring;
+    private final int mask;
+    private final Overflow overflow;
+    private final File file;
+    private final boolean csv;
+    //next sample the producer writes and the writer reads
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    //producer's copies of head and of tail when last read
+    private long nextHead;
+    private long cachedTail;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+    private volatile boolean failed;
+    private final Thread writer;
+
+    /** 3-arg constructor opens file and starts the writer.
+     *
+     * @param file destination, text if it ends in .csv
+     * @param capacity samples held, rounded up to a power of two
+     * @param overflow what to do when the ring is full
+     * @throws IOException if the file cannot be created
+     */
+    public TimeSeriesRecorder(File file, int capacity, Overflow overflow) throws IOException {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        ring = new long[size * FIELDS];
+        mask = size - 1;
+        this.overflow = overflow;
+        this.file = file;
+        csv = file.getName().toLowerCase().endsWith(".csv");
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        writer = new Thread(() -> drain(channel), "timeseries-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Records a sample. Called by the stepping thread only.
+     *
+     * @param generation generation number
+     * @param population living cells
+     * @param births cells born since the last generation, -1 if unknown
+     * @param deaths cells killed since the last generation, -1 if unknown
+     * @return true if recorded, false if dropped
+     */
+    public boolean record(long generation, long population, long births, long deaths) {
+        long h = nextHead;
+        if (h - cachedTail > mask) {
+            cachedTail = tail.get();
+            while (h - cachedTail > mask) {
+                if (overflow == Overflow.DROP || failed || closed) {
+                    dropped.lazySet(dropped.get() + 1);
+                    return false;
+                }
+                //applies backpressure until the writer catches up
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(IDLE_NANOS / 10);
+                cachedTail = tail.get();
+            }
+        }
+        int i = (int) (h & mask) * FIELDS;
+        ring[i] = generation;
+        ring[i + 1] = population;
+        ring[i + 2] = births;
+        ring[i + 3] = deaths;
+        nextHead = h + 1;
+        //publishes the sample after its fields
+        head.lazySet(h + 1);
+        return true;
+    }
+
+    /** Writer loop, encoding samples into batches until closed
+     *  and drained.
+     */
+    private void drain(FileChannel channel) {
+        ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+        long[] last = new long[FIELDS];
+        long t = 0;
+        long pending = System.nanoTime();
+        try (FileChannel out = channel) {
+            if (csv) {
+                batch.put("generation,population,births,deaths\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            else {
+                batch.put(MAGIC);
+            }
+            while (true) {
+                boolean done = closed;
+                long h = head.get();
+                if (h == t) {
+                    if (done) {
+                        break;
+                    }
+                    if (batch.position() > 0 && System.nanoTime() - pending > FLUSH_NANOS) {
+                        flush(out, batch);
+                    }
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+                for (; t < h; t++) {
+                    //room for the longest sample
+                    if (batch.remaining() < 100) {
+                        tail.lazySet(t);
+                        flush(out, batch);
+                    }
+                    if (batch.position() == 0) {
+                        pending = System.nanoTime();
+                    }
+                    int i = (int) (t & mask) * FIELDS;
+                    encode(batch, ring, i, last);
+                }
+                tail.lazySet(t);
+            }
+            flush(out, batch);
+        }
+        catch (IOException e) {
+            failed = true;
+            System.out.println("ERROR: Failure to write " + file.getName());
+            e.printStackTrace();
+        }
+    }
+
+    /** Appends the sample at ring[i] as text or varints. */
+    private void encode(ByteBuffer batch, long[] ring, int i, long[] last) {
+        if (csv) {
+            String line = ring[i] + "," + ring[i + 1] + "," + ring[i + 2] + "," + ring[i + 3] + "\n";
+            batch.put(line.getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        writeVarint(batch, zigzag(ring[i] - last[0]));
+        writeVarint(batch, zigzag(ring[i + 1] - last[1]));
+        writeVarint(batch, zigzag(ring[i + 2]));
+        writeVarint(batch, zigzag(ring[i + 3]));
+        last[0] = ring[i];
+        last[1] = ring[i + 1];
+    }
+
+    /** Writes the batch in full and empties it. */
+    private static void flush(FileChannel out, ByteBuffer batch) throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            out.write(batch);
+        }
+        batch.clear();
+    }
+
+    /** Maps signed to unsigned, small magnitudes to small values. */
+    private static long zigzag(long v) {
+        return v << 1 ^ v >> 63;
+    }
+
+    /** Appends an unsigned LEB128 varint. */
+    private static void writeVarint(ByteBuffer b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.put((byte) (v & 0x7F | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    /** Reads an unsigned LEB128 varint. */
+    private static long readVarint(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = in.readByte();
+            v |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return v;
+            }
+        }
+    }
+
+    /** Reads every sample of a binary file.
+     *
+     * @param file file written by a recorder, not .csv
+     * @param sink receives the samples in order
+     * @throws IOException if the file cannot be read or is not a time series
+     */
+    public static void read(File file, Sink sink) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a time series: " + file);
+            }
+            long generation = 0;
+            long population = 0;
+            while (true) {
+                long v;
+                try {
+                    v = readVarint(in);
+                }
+                catch (EOFException e) {
+                    return;
+                }
+                generation += unzigzag(v);
+                population += unzigzag(readVarint(in));
+                sink.accept(generation, population, unzigzag(readVarint(in)), unzigzag(readVarint(in)));
+            }
+        }
+    }
+
+    /** Inverts zigzag. */
+    private static long unzigzag(long v) {
+        return v >>> 1 ^ -(v & 1);
+    }
+
+    /** Accessor Method for Dropped
+     *
+     * @return samples dropped because the ring was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Writes every recorded sample and closes the file. */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Steps a grid for --generations, recording every
+     *  generation, and reports the rate and samples dropped.
+     *
+     * @param o options: --out (default series.bin, or .csv), --generations,
+     *          --capacity, --overflow (drop or block), --rule, --nowrap,
+     *          plus the pattern options of AppDriver.loadGrid
+     */
+    public static void run(Options o) throws IOException {
+        File output = new File(o.getString("out", "series.bin"));
+        Overflow overflow = Overflow.valueOf(o.getString("overflow", "drop").toUpperCase());
+        long generations = o.getLong("generations", 1000000);
+        Rule rule = Rule.parse(o.getString("rule", Rule.CONWAY.toString()));
+        Topology topology = Topology.of(!o.has("nowrap"));
+        PackedGrid grid = AppDriver.loadGrid(o);
+        EngineManager engines = new EngineManager(grid);
+        long start = System.nanoTime();
+        TimeSeriesRecorder recorder = new TimeSeriesRecorder(output, o.getInt("capacity", DEFAULT_CAPACITY), overflow);
+        try (recorder) {
+            recorder.record(0, grid.population(), -1, -1);
+            for (long i = 1; i <= generations; i++) {
+                engines.step(rule, topology);
+                long[] counts = engines.changeCounts();
+                if (counts != null) {
+                    recorder.record(i, counts[0], counts[1], counts[2]);
+                }
+                else {
+                    recorder.record(i, grid.population(), -1, -1);
+                }
+            }
+        }
+        //timed once the queued samples are written
+        System.out.printf("Recorded %d Generations to %s in %dms (%d dropped)%n", generations, output,
+                (System.nanoTime() - start) / 1000000, recorder.getDropped());
+    }
+}
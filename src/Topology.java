@@ -0,0 +1,75 @@
+/** Topology enum determines how the edges of
+ *  a grid are joined. Row edges are the top and
+ *  bottom (x), column edges the sides (y).
+ *
+ * @author RMizelle
+ */
+public enum Topology {
+    //cells beyond the edges are dead
+    DEAD("Dead Edge", false, false, false),
+    //both pairs of edges joined
+    TORUS("Torus", true, true, false),
+    //sides joined, top and bottom dead
+    CYLINDER("Cylinder", false, true, false),
+    //sides joined, top and bottom joined mirrored
+    KLEIN("Klein Bottle", true, true, true);
+
+    private final String name;
+    private final boolean wrapsRows;
+    private final boolean wrapsColumns;
+    private final boolean reversesRows;
+
+    Topology(String name, boolean wrapsRows, boolean wrapsColumns, boolean reversesRows) {
+        this.name = name;
+        this.wrapsRows = wrapsRows;
+        this.wrapsColumns = wrapsColumns;
+        this.reversesRows = reversesRows;
+    }
+
+    /** Returns the topology of the original wrap setting.
+     *
+     * @param wrapEnabled true if edges wrap around
+     * @return TORUS if wrapping, else DEAD
+     */
+    public static Topology of(boolean wrapEnabled) {
+        return wrapEnabled ? TORUS : DEAD;
+    }
+
+    /** Returns true if the top and bottom edges are joined.
+     *
+     * @return true if rows wrap
+     */
+    public boolean wrapsRows() {
+        return wrapsRows;
+    }
+
+    /** Returns true if the sides are joined.
+     *
+     * @return true if columns wrap
+     */
+    public boolean wrapsColumns() {
+        return wrapsColumns;
+    }
+
+    /** Returns true if rows are mirrored when wrapping
+     *  past the top or bottom edge.
+     *
+     * @return true if wrapped rows are reversed
+     */
+    public boolean reversesRows() {
+        return reversesRows;
+    }
+
+    /** Returns the next topology, for cycling through them.
+     *
+     * @return next topology
+     */
+    public Topology next() {
+        return values()[(ordinal() + 1) % values().length];
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,122 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** VectorKernel class steps a PackedGrid using the
+ *  Vector API, evaluating the bit-sliced neighbor sum
+ *  and rule over a full SIMD register of packed words
+ *  at a time. Rows are read from the padded buffer, so
+ *  edge words need no handling of their own.
+ *
+ *  Requires --add-modules jdk.incubator.vector at
+ *  compile and run time; see StepKernel.best().
+ *
+ * @author RMizelle
+ */
+public class VectorKernel implements StepKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /** Returns true if the hardware has SIMD lanes for more
+     *  than one 64-bit word, so the kernel is worth using.
+     *
+     * @return true if supported
+     */
+    public static boolean isSupported() {
+        return SPECIES.length() >= 2;
+    }
+
+    @Override
+    public void stepRows(PackedGrid grid, long[] src, long[] dst, int fromRow, int toRow, Rule rule) {
+        int birth = rule.getBirthMask();
+        int survival = rule.getSurvivalMask();
+        int wordsPerRow = grid.getWordsPerRow();
+        int stride = wordsPerRow + 2;
+        int lanes = SPECIES.length();
+        LongVector zero = LongVector.zero(SPECIES);
+        for (int x = fromRow; x < toRow; x++) {
+            int baseC = (x + 1) * stride + 1;
+            int baseU = baseC - stride;
+            int baseD = baseC + stride;
+            int out = x * wordsPerRow;
+            int i = 0;
+            //every word has both neighbors in the padded row
+            for (; i + lanes <= wordsPerRow; i += lanes) {
+                LongVector alive = LongVector.fromArray(SPECIES, src, baseC + i);
+                LongVector u = LongVector.fromArray(SPECIES, src, baseU + i);
+                LongVector d = LongVector.fromArray(SPECIES, src, baseD + i);
+                LongVector ul = west(src, baseU + i, u);
+                LongVector ur = east(src, baseU + i, u);
+                LongVector l = west(src, baseC + i, alive);
+                LongVector r = east(src, baseC + i, alive);
+                LongVector dl = west(src, baseD + i, d);
+                LongVector dr = east(src, baseD + i, d);
+
+                //full adder for the row above
+                LongVector u0 = ul.lanewise(VectorOperators.XOR, u).lanewise(VectorOperators.XOR, ur);
+                LongVector u1 = ul.and(u).or(ur.and(ul.lanewise(VectorOperators.XOR, u)));
+                //half adder for the middle row
+                LongVector m0 = l.lanewise(VectorOperators.XOR, r);
+                LongVector m1 = l.and(r);
+                //full adder for the row below
+                LongVector d0 = dl.lanewise(VectorOperators.XOR, d).lanewise(VectorOperators.XOR, dr);
+                LongVector d1 = dl.and(d).or(dr.and(dl.lanewise(VectorOperators.XOR, d)));
+                //sums the three 2-bit counts
+                LongVector um = u0.lanewise(VectorOperators.XOR, m0);
+                LongVector s0 = um.lanewise(VectorOperators.XOR, d0);
+                LongVector c0 = u0.and(m0).or(d0.and(um));
+                LongVector um1 = u1.lanewise(VectorOperators.XOR, m1);
+                LongVector t = um1.lanewise(VectorOperators.XOR, d1);
+                LongVector c1 = u1.and(m1).or(d1.and(um1));
+                LongVector s1 = t.lanewise(VectorOperators.XOR, c0);
+                LongVector c2 = t.and(c0);
+                LongVector s2 = c1.lanewise(VectorOperators.XOR, c2);
+                LongVector s3 = c1.and(c2);
+
+                applyRule(alive, s0, s1, s2, s3, birth, survival, zero).intoArray(dst, out + i);
+            }
+            //words left over from the last full register
+            for (; i < wordsPerRow; i++) {
+                dst[out + i] = PackedGrid.stepPadded(src, baseU + i, baseC + i, baseD + i, birth, survival);
+            }
+            dst[out + wordsPerRow - 1] &= grid.getLastMask();
+        }
+    }
+
+    /** Shifts words so each bit holds the cell to its left (y - 1). */
+    private static LongVector west(long[] src, int p, LongVector v) {
+        LongVector prev = LongVector.fromArray(SPECIES, src, p - 1);
+        return v.lanewise(VectorOperators.LSHL, 1).or(prev.lanewise(VectorOperators.LSHR, 63));
+    }
+
+    /** Shifts words so each bit holds the cell to its right (y + 1). */
+    private static LongVector east(long[] src, int p, LongVector v) {
+        LongVector next = LongVector.fromArray(SPECIES, src, p + 1);
+        return v.lanewise(VectorOperators.LSHR, 1).or(next.lanewise(VectorOperators.LSHL, 63));
+    }
+
+    /** Vector form of PackedGrid.applyRule. */
+    private static LongVector applyRule(LongVector alive, LongVector s0, LongVector s1, LongVector s2, LongVector s3,
+                                        int birth, int survival, LongVector zero) {
+        LongVector result = zero;
+        for (int n = 0; n <= 8; n++) {
+            boolean b = (birth >>> n & 1) != 0;
+            boolean s = (survival >>> n & 1) != 0;
+            if (!b && !s) {
+                continue;
+            }
+            //cells whose count equals n
+            LongVector m = ((n & 1) != 0 ? s0 : s0.not()).and((n & 2) != 0 ? s1 : s1.not())
+                    .and((n & 4) != 0 ? s2 : s2.not()).and((n & 8) != 0 ? s3 : s3.not());
+            if (b && s) {
+                result = result.or(m);
+            }
+            else if (b) {
+                result = result.or(m.and(alive.not()));
+            }
+            else {
+                result = result.or(m.and(alive));
+            }
+        }
+        return result;
+    }
+}
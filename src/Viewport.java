@@ -0,0 +1,322 @@
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/** Viewport class maps a zoomable, pannable
+ *  region of a grid onto the screen and renders
+ *  it pixel by pixel.
+ *
+ *  Below one pixel per cell, each pixel shows the
+ *  density of the block of cells it covers. Once a
+ *  pixel covers 16 cells a side, the density is read
+ *  from the coarsest level of a LiveTracker's
+ *  pyramid that fits, a few counts per pixel. Below
+ *  that, or without a tracker, the packed words are
+ *  counted, at most about two words per row of cells
+ *  a pixel covers. With a tracker, render cost then
+ *  depends on the screen size rather than the grid
+ *  size, apart from the tracker recounting its blocks
+ *  once after dense steps; without one, it grows with
+ *  the cells shown.
+ *
+ * @author RMizelle
+ */
+public class Viewport {
+    //smallest grid lines are drawn at
+    private static final double GRID_SCALE = 4.0;
+    private static final double MIN_SCALE = 1.0 / 4096;
+    private static final double MAX_SCALE = 64.0;
+
+    private final int width;
+    private final int height;
+    //pixels per cell
+    private double scale;
+    //cell coordinates at the top left pixel
+    private double originX;
+    private double originY;
+    private final BufferedImage image;
+    private final int[] pixels;
+    //cell coordinates of each pixel column and row
+    private final int[] cellX;
+    private final int[] cellY;
+
+    /** 2-arg constructor instantiates a viewport
+     *  of the given screen size.
+     *
+     * @param width screen width in pixels
+     * @param height screen height in pixels
+     */
+    public Viewport(int width, int height) {
+        this.width = width;
+        this.height = height;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        cellX = new int[width + 1];
+        cellY = new int[height + 1];
+        scale = 1.0;
+    }
+
+    /** Fits a grid to the screen width, as the matrix
+     *  was originally drawn.
+     *
+     * @param numRows grid length
+     * @param numColumns grid height
+     */
+    public void fit(int numRows, int numColumns) {
+        scale = ((double) width) / numRows;
+        originX = 0;
+        originY = 0;
+    }
+
+    /** Zooms by factor, keeping the cell under
+     *  the given pixel in place.
+     *
+     * @param factor zoom factor, greater than 1 zooms in
+     * @param pX anchor pixel x
+     * @param pY anchor pixel y
+     */
+    public void zoom(double factor, int pX, int pY) {
+        double anchorX = originX + pX / scale;
+        double anchorY = originY + pY / scale;
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        originX = anchorX - pX / scale;
+        originY = anchorY - pY / scale;
+    }
+
+    /** Pans by a number of pixels.
+     *
+     * @param dX pixels moved horizontally
+     * @param dY pixels moved vertically
+     */
+    public void pan(int dX, int dY) {
+        originX -= dX / scale;
+        originY -= dY / scale;
+    }
+
+    /** Accessor Method for Scale
+     *
+     * @return pixels per cell
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /** Returns row of the cell under a pixel.
+     *
+     * @param pX pixel x
+     * @return cell x
+     */
+    public int toCellX(int pX) {
+        return (int) Math.floor(originX + pX / scale);
+    }
+
+    /** Returns column of the cell under a pixel.
+     *
+     * @param pY pixel y
+     * @return cell y
+     */
+    public int toCellY(int pY) {
+        return (int) Math.floor(originY + pY / scale);
+    }
+
+    /** Draws the visible region of a grid.
+     *
+     * @param g graphics
+     * @param grid cells to be drawn
+     * @param spotX row of highlighted cell, -1 if none
+     * @param spotY column of highlighted cell, -1 if none
+     */
+    public void render(Graphics g, PackedGrid grid, int spotX, int spotY) {
+        render(g, grid, null, spotX, spotY);
+    }
+
+    /** Draws the visible region of a grid, reading the density
+     *  of zoomed out blocks from the tracker's pyramid.
+     *
+     * @param g graphics
+     * @param grid cells to be drawn
+     * @param tracker up to date tile counts of grid, null to count words
+     * @param spotX row of highlighted cell, -1 if none
+     * @param spotY column of highlighted cell, -1 if none
+     */
+    public void render(Graphics g, PackedGrid grid, LiveTracker tracker, int spotX, int spotY) {
+        for (int pX = 0; pX <= width; pX++) {
+            cellX[pX] = toCellX(pX);
+        }
+        for (int pY = 0; pY <= height; pY++) {
+            cellY[pY] = toCellY(pY);
+        }
+        //coarsest pyramid level whose blocks are no wider than a pixel
+        int level = -1;
+        if (tracker != null) {
+            long cellsPerPixel = (long) (1.0 / scale);
+            long blockSize = Math.max(PackedGrid.TILE_ROWS, LiveTracker.BLOCK_COLUMNS);
+            while (level + 1 < tracker.getNumLevels() && blockSize << level + 1 <= cellsPerPixel) {
+                level++;
+            }
+        }
+        if (scale >= 1.0) {
+            renderCells(grid, spotX, spotY);
+        }
+        else if (level >= 0) {
+            renderBlocks(grid, tracker, level);
+        }
+        else {
+            renderDensity(grid);
+        }
+        g.drawImage(image, 0, 0, null);
+    }
+
+    /** Draws an image over the grid, scaled so each of its
+     *  pixels covers a square block of cells and clipped to
+     *  the grid.
+     *
+     * @param g graphics
+     * @param overlay image, x across and y down as cells are
+     * @param cellsPerPixel cells per side of each image pixel
+     * @param numRows grid length
+     * @param numColumns grid height
+     */
+    public void drawOverlay(Graphics g, BufferedImage overlay, int cellsPerPixel, int numRows, int numColumns) {
+        int x0 = (int) Math.round(-originX * scale);
+        int y0 = (int) Math.round(-originY * scale);
+        int x1 = (int) Math.round(((double) overlay.getWidth() * cellsPerPixel - originX) * scale);
+        int y1 = (int) Math.round(((double) overlay.getHeight() * cellsPerPixel - originY) * scale);
+        Graphics clipped = g.create();
+        clipped.clipRect(x0, y0, (int) Math.round(numRows * scale), (int) Math.round(numColumns * scale));
+        clipped.drawImage(overlay, x0, y0, x1, y1, 0, 0, overlay.getWidth(), overlay.getHeight(), null);
+        clipped.dispose();
+    }
+
+    /** Outlines a box of cells, at least a few pixels across
+     *  so it stays visible when zoomed out.
+     *
+     * @param g graphics
+     * @param x first row
+     * @param y first column
+     * @param rows rows of the box
+     * @param columns columns of the box
+     */
+    public void drawBox(Graphics g, int x, int y, int rows, int columns) {
+        int pX = (int) Math.round((x - originX) * scale);
+        int pY = (int) Math.round((y - originY) * scale);
+        int w = Math.max(3, (int) Math.round(rows * scale));
+        int h = Math.max(3, (int) Math.round(columns * scale));
+        if (pX + w >= 0 && pY + h >= 0 && pX <= width && pY <= height) {
+            g.drawRect(pX - 1, pY - 1, w + 1, h + 1);
+        }
+    }
+
+    /** Draws one cell per block of pixels. */
+    private void renderCells(PackedGrid grid, int spotX, int spotY) {
+        int numRows = grid.getNumRows();
+        int numColumns = grid.getNumColumns();
+        boolean lines = Cell.gridEnabled && scale >= GRID_SCALE;
+        for (int pY = 0; pY < height; pY++) {
+            int y = cellY[pY];
+            int line = pY * width;
+            boolean columnVisible = y >= 0 && y < numColumns;
+            int word = y >>> 6;
+            long bit = 1L << y;
+            boolean border = lines && (pY == 0 || cellY[pY - 1] != y);
+            for (int pX = 0; pX < width; pX++) {
+                int x = cellX[pX];
+                if (!columnVisible || x < 0 || x >= numRows) {
+                    pixels[line + pX] = 0;
+                }
+                else if (border || lines && (pX == 0 || cellX[pX - 1] != x)) {
+                    //adds border
+                    pixels[line + pX] = 0;
+                }
+                else {
+                    boolean alive = (grid.getWord(x, word) & bit) != 0;
+                    pixels[line + pX] = Cell.color(alive, x == spotX && y == spotY);
+                }
+            }
+        }
+    }
+
+    /** Draws the density of the block of cells under each pixel. */
+    private void renderDensity(PackedGrid grid) {
+        int numRows = grid.getNumRows();
+        int numColumns = grid.getNumColumns();
+        for (int pY = 0; pY < height; pY++) {
+            //columns [y0, y1) of the block
+            int y0 = Math.max(0, cellY[pY]);
+            int y1 = Math.min(numColumns, Math.max(cellY[pY + 1], cellY[pY] + 1));
+            int line = pY * width;
+            for (int pX = 0; pX < width; pX++) {
+                int x0 = Math.max(0, cellX[pX]);
+                int x1 = Math.min(numRows, Math.max(cellX[pX + 1], cellX[pX] + 1));
+                if (x0 >= x1 || y0 >= y1) {
+                    pixels[line + pX] = 0;
+                    continue;
+                }
+                long num = 0;
+                for (int x = x0; x < x1; x++) {
+                    num += countRange(grid, x, y0, y1);
+                }
+                pixels[line + pX] = Cell.densityColor((double) num / ((long) (x1 - x0) * (y1 - y0)));
+            }
+        }
+    }
+
+    /** Draws the density of the pyramid blocks under each pixel.
+     *  Blocks are no wider than a pixel, and each is drawn by
+     *  the pixel its first cell lies under, except at the far
+     *  edges, where a pixel past the last block start shares it.
+     */
+    private void renderBlocks(PackedGrid grid, LiveTracker tracker, int level) {
+        int numRows = grid.getNumRows();
+        int numColumns = grid.getNumColumns();
+        int blockRows = PackedGrid.TILE_ROWS << level;
+        int blockColumns = LiveTracker.BLOCK_COLUMNS << level;
+        for (int pY = 0; pY < height; pY++) {
+            int y0 = Math.max(0, cellY[pY]);
+            int y1 = Math.min(numColumns, cellY[pY + 1]);
+            int line = pY * width;
+            if (y0 >= y1) {
+                java.util.Arrays.fill(pixels, line, line + width, 0);
+                continue;
+            }
+            //blocks [i0, i1) starting within the columns of the pixel
+            int i1 = (y1 + blockColumns - 1) / blockColumns;
+            int i0 = Math.min((y0 + blockColumns - 1) / blockColumns, i1 - 1);
+            long columns = Math.min(numColumns, (long) i1 * blockColumns) - (long) i0 * blockColumns;
+            for (int pX = 0; pX < width; pX++) {
+                int x0 = Math.max(0, cellX[pX]);
+                int x1 = Math.min(numRows, cellX[pX + 1]);
+                if (x0 >= x1) {
+                    pixels[line + pX] = 0;
+                    continue;
+                }
+                int r1 = (x1 + blockRows - 1) / blockRows;
+                int r0 = Math.min((x0 + blockRows - 1) / blockRows, r1 - 1);
+                long num = 0;
+                for (int r = r0; r < r1; r++) {
+                    for (int i = i0; i < i1; i++) {
+                        num += tracker.getBlockCount(level, r, i);
+                    }
+                }
+                long rows = Math.min(numRows, (long) r1 * blockRows) - (long) r0 * blockRows;
+                pixels[line + pX] = Cell.densityColor((double) num / (rows * columns));
+            }
+        }
+    }
+
+    /** Counts living cells [y0, y1) of row x. */
+    private static long countRange(PackedGrid grid, int x, int y0, int y1) {
+        int w0 = y0 >>> 6;
+        int w1 = (y1 - 1) >>> 6;
+        long first = -1L << y0;
+        long last = -1L >>> (63 - ((y1 - 1) & 63));
+        if (w0 == w1) {
+            return Long.bitCount(grid.getWord(x, w0) & first & last);
+        }
+        long num = Long.bitCount(grid.getWord(x, w0) & first) + Long.bitCount(grid.getWord(x, w1) & last);
+        for (int i = w0 + 1; i < w1; i++) {
+            num += Long.bitCount(grid.getWord(x, i));
+        }
+        return num;
+    }
+}
@@ -0,0 +1,266 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Worker class owns one stripe of rows of a
+ *  distributed universe. Each generation it swaps
+ *  its first and last rows with the workers above
+ *  and below, steps its stripe and reports back
+ *  to the Coordinator.
+ *
+ *  The stripe is stored with one halo row above
+ *  and below it, filled from the neighbors (or
+ *  left dead at the edges of the universe).
+ *
+ * @author RMizelle
+ */
+public class Worker {
+    //message types sent by the Coordinator
+    static final int STEP = 1;
+    static final int SNAPSHOT = 2;
+    static final int STOP = 3;
+    //ways a stripe is initialized
+    static final int INIT_SOUP = 0;
+    static final int INIT_WORDS = 1;
+
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private PackedGrid grid;
+    private int numRows;
+    private Rule rule;
+    private boolean wrapEnabled;
+    //halo links, null at the edges of the universe
+    private Socket upSocket;
+    private Socket downSocket;
+    private DataInputStream upIn;
+    private DataOutputStream upOut;
+    private DataInputStream downIn;
+    private DataOutputStream downOut;
+    //sends halos while the other side's are received
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "halo-sender");
+        t.setDaemon(true);
+        return t;
+    });
+    private byte[] buffer;
+    private byte[] sendBuffer;
+
+    /** 2-arg constructor connects a worker to the Coordinator
+     *  and receives its stripe.
+     *
+     * @param host Coordinator address
+     * @param port Coordinator port
+     * @throws IOException if the connection fails
+     */
+    public Worker(String host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        try (ServerSocket halo = new ServerSocket(0)) {
+            //tells the Coordinator where the worker above connects
+            out.writeInt(halo.getLocalPort());
+            out.flush();
+            init(halo);
+        }
+    }
+
+    /** Receives the stripe and links to the neighbors. */
+    private void init(ServerSocket halo) throws IOException {
+        int numColumns = in.readInt();
+        int firstRow = in.readInt();
+        numRows = in.readInt();
+        rule = new Rule(in.readInt(), in.readInt());
+        wrapEnabled = in.readBoolean();
+        boolean hasUp = in.readBoolean();
+        String downHost = in.readUTF();
+        int downPort = in.readInt();
+
+        grid = new PackedGrid(numRows + 2, numColumns);
+        buffer = new byte[grid.getWordsPerRow() * 8];
+        sendBuffer = new byte[buffer.length];
+        if (in.readInt() == INIT_SOUP) {
+            new Seeder(in.readLong(), in.readDouble()).fillRows(grid, 1, numRows + 1, firstRow);
+        }
+        else {
+            readWords(in, grid.getWords(), grid.getWordsPerRow(), numRows * grid.getWordsPerRow(), buffer);
+        }
+
+        //connects down before accepting up, the backlog holds pending links
+        if (downPort >= 0) {
+            downSocket = new Socket(downHost, downPort);
+            downSocket.setTcpNoDelay(true);
+            downIn = new DataInputStream(new BufferedInputStream(downSocket.getInputStream()));
+            downOut = new DataOutputStream(new BufferedOutputStream(downSocket.getOutputStream()));
+        }
+        if (hasUp) {
+            upSocket = halo.accept();
+            upSocket.setTcpNoDelay(true);
+            upIn = new DataInputStream(new BufferedInputStream(upSocket.getInputStream()));
+            upOut = new DataOutputStream(new BufferedOutputStream(upSocket.getOutputStream()));
+        }
+        out.writeInt(numRows);
+        out.flush();
+    }
+
+    /** Serves Coordinator requests until told to stop.
+     *
+     * @throws IOException if a connection fails
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                int type = in.readInt();
+                if (type == STEP) {
+                    int generations = in.readInt();
+                    for (int i = 0; i < generations; i++) {
+                        exchangeHalos();
+                        grid.step(rule, wrapEnabled, 1, numRows + 1);
+                    }
+                    out.writeLong(population());
+                    out.flush();
+                }
+                else if (type == SNAPSHOT) {
+                    int wordsPerRow = grid.getWordsPerRow();
+                    writeWords(out, grid.getWords(), wordsPerRow, numRows * wordsPerRow, buffer);
+                    out.flush();
+                }
+                else {
+                    return;
+                }
+            }
+        }
+        finally {
+            sender.shutdownNow();
+            if (upSocket != null) {
+                upSocket.close();
+            }
+            if (downSocket != null) {
+                downSocket.close();
+            }
+        }
+    }
+
+    /** Sends the first and last rows of the stripe to the
+     *  neighbors and receives their rows into the halos.
+     */
+    private void exchangeHalos() throws IOException {
+        long[] words = grid.getWords();
+        int wordsPerRow = grid.getWordsPerRow();
+        int last = numRows * wordsPerRow;
+        int below = last + wordsPerRow;
+        if (upOut == null && downOut == null) {
+            //sole worker wraps onto itself
+            if (wrapEnabled) {
+                System.arraycopy(words, last, words, 0, wordsPerRow);
+                System.arraycopy(words, wordsPerRow, words, below, wordsPerRow);
+            }
+            else {
+                java.util.Arrays.fill(words, 0, wordsPerRow, 0L);
+                java.util.Arrays.fill(words, below, below + wordsPerRow, 0L);
+            }
+            return;
+        }
+        //sending on another thread keeps both directions
+        //moving when rows exceed the socket buffers
+        Future<?> sent = sender.submit(() -> {
+            if (upOut != null) {
+                writeWords(upOut, words, wordsPerRow, wordsPerRow, sendBuffer);
+                upOut.flush();
+            }
+            if (downOut != null) {
+                writeWords(downOut, words, last, wordsPerRow, sendBuffer);
+                downOut.flush();
+            }
+            return null;
+        });
+        if (upIn != null) {
+            readWords(upIn, words, 0, wordsPerRow, buffer);
+        }
+        else {
+            java.util.Arrays.fill(words, 0, wordsPerRow, 0L);
+        }
+        if (downIn != null) {
+            readWords(downIn, words, below, wordsPerRow, buffer);
+        }
+        else {
+            java.util.Arrays.fill(words, below, below + wordsPerRow, 0L);
+        }
+        try {
+            sent.get();
+        }
+        catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Halo exchange failed", e);
+        }
+    }
+
+    /** Counts living cells of the stripe, excluding halos. */
+    private long population() {
+        long[] words = grid.getWords();
+        int wordsPerRow = grid.getWordsPerRow();
+        long num = 0;
+        for (int i = wordsPerRow; i < (numRows + 1) * wordsPerRow; i++) {
+            num += Long.bitCount(words[i]);
+        }
+        return num;
+    }
+
+    /** Writes words [from, from + length) as little-endian bytes.
+     *
+     * @param out destination stream
+     * @param words packed words
+     * @param from first word
+     * @param length number of words
+     * @param buffer reusable buffer, a multiple of 8 bytes
+     * @throws IOException if the write fails
+     */
+    static void writeWords(DataOutputStream out, long[] words, int from, int length, byte[] buffer) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        int chunk = buffer.length / 8;
+        for (int i = 0; i < length; i += chunk) {
+            int n = Math.min(chunk, length - i);
+            b.clear();
+            b.asLongBuffer().put(words, from + i, n);
+            out.write(buffer, 0, n * 8);
+        }
+    }
+
+    /** Reads words [from, from + length) as little-endian bytes.
+     *
+     * @param in source stream
+     * @param words packed words
+     * @param from first word
+     * @param length number of words
+     * @param buffer reusable buffer, a multiple of 8 bytes
+     * @throws IOException if the read fails
+     */
+    static void readWords(DataInputStream in, long[] words, int from, int length, byte[] buffer) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        int chunk = buffer.length / 8;
+        for (int i = 0; i < length; i += chunk) {
+            int n = Math.min(chunk, length - i);
+            in.readFully(buffer, 0, n * 8);
+            b.clear();
+            b.asLongBuffer().get(words, from + i, n);
+        }
+    }
+
+    /** Runs a worker from command line options until the
+     *  Coordinator stops it.
+     *
+     * @param o options: --host, --port
+     */
+    public static void run(Options o) throws IOException {
+        new Worker(o.getString("host", "localhost"), o.getInt("port", Coordinator.DEFAULT_PORT)).serve();
+    }
+}
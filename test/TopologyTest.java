@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/** TopologyTest class checks PackedGrid stepping in
+ *  every topology against the per-cell reference,
+ *  CellMatrix.numLivingNeighbors, on grids small and
+ *  narrow enough that edges and corners dominate.
+ *
+ *  Covers the ghost rows and words of PackedGrid.pad,
+ *  including the mirrored rows of a Klein bottle, each
+ *  available kernel, off-heap banding and the branching
+ *  path stepActive relies on.
+ *
+ *  Run with java -cp out TopologyTest after compiling
+ *  src and test together; exits with status 1 on the
+ *  first failure.
+ *
+ * @author RMizelle
+ */
+public class TopologyTest {
+    private static final int[] SIZES = {1, 2, 3, 5, 16, 17, 63, 64, 65, 130};
+    private static final Rule[] RULES = {Rule.CONWAY, Rule.parse("B36/S23"), Rule.parse("B1357/S1357")};
+    private static final int GENERATIONS = 4;
+    private static int numChecks = 0;
+
+    public static void main(String[] args) {
+        testGhostCells();
+        testKernels();
+        testOffHeap();
+        testRowRange();
+        testUnpadded();
+        System.out.println("PASS " + numChecks + " checks");
+    }
+
+    /** Every ghost cell of a padded grid holds the cell the
+     *  reference joins it to, or is dead.
+     */
+    private static void testGhostCells() {
+        Random random = new Random(1);
+        for (Topology topology : Topology.values()) {
+            for (int numRows : SIZES) {
+                for (int numColumns : SIZES) {
+                    PackedGrid grid = randomGrid(numRows, numColumns, random);
+                    int stride = grid.getWordsPerRow() + 2;
+                    long[] padded = new long[(numRows + 2) * stride];
+                    grid.pad(padded, 0, numRows, topology);
+                    for (int x = -1; x <= numRows; x++) {
+                        for (int y = -1; y <= numColumns; y++) {
+                            //padded column p lies at bit p - 64 of the first grid word
+                            int p = y + 64;
+                            boolean ghost = (padded[(x + 1) * stride + (p >>> 6)] >>> p & 1L) != 0;
+                            check(ghost == joined(grid, x, y, topology), "ghost cell [" + x + "," + y + "] of "
+                                    + numRows + "x" + numColumns + " " + topology);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Every kernel matches the reference over several generations. */
+    private static void testKernels() {
+        StepKernel[] kernels = {StepKernel.SCALAR, new LutKernel(), StepKernel.best()};
+        Random random = new Random(2);
+        for (StepKernel kernel : kernels) {
+            for (Topology topology : Topology.values()) {
+                for (Rule rule : RULES) {
+                    for (int numRows : SIZES) {
+                        for (int numColumns : SIZES) {
+                            PackedGrid grid = randomGrid(numRows, numColumns, random);
+                            grid.setKernel(kernel);
+                            CellMatrix reference = new CellMatrix(grid.copy());
+                            for (int i = 0; i < GENERATIONS; i++) {
+                                grid.step(rule, topology);
+                                reference = referenceStep(reference, rule, topology);
+                                check(Arrays.equals(grid.getWords(), reference.getGrid().getWords()),
+                                        kernel.getClass().getSimpleName() + " " + numRows + "x" + numColumns + " "
+                                                + topology + " " + rule + " generation " + (i + 1));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Off-heap grids, stepped in padded bands, match the reference. */
+    private static void testOffHeap() {
+        Random random = new Random(3);
+        for (Topology topology : Topology.values()) {
+            for (int numRows : SIZES) {
+                for (int numColumns : new int[] {1, 63, 64, 65, 130}) {
+                    PackedGrid heap = randomGrid(numRows, numColumns, random);
+                    PackedGrid grid = heap.copy(true);
+                    CellMatrix reference = new CellMatrix(heap);
+                    for (int i = 0; i < GENERATIONS; i++) {
+                        grid.step(Rule.CONWAY, topology);
+                        reference = referenceStep(reference, Rule.CONWAY, topology);
+                    }
+                    PackedGrid result = grid.copy(false);
+                    grid.free();
+                    check(Arrays.equals(result.getWords(), reference.getGrid().getWords()),
+                            "off-heap " + numRows + "x" + numColumns + " " + topology);
+                }
+            }
+        }
+    }
+
+    /** Stepping a range of rows matches the reference within it. */
+    private static void testRowRange() {
+        Random random = new Random(4);
+        for (boolean wrapEnabled : new boolean[] {false, true}) {
+            for (int numColumns : SIZES) {
+                PackedGrid grid = randomGrid(40, numColumns, random);
+                CellMatrix reference = referenceStep(new CellMatrix(grid.copy()), Rule.CONWAY,
+                        Topology.of(wrapEnabled));
+                grid.step(Rule.CONWAY, wrapEnabled, 7, 33);
+                for (int x = 7; x < 33; x++) {
+                    for (int y = 0; y < numColumns; y++) {
+                        check(grid.get(x, y) == reference.isAlive(x, y), "rows 7-33 of 40x" + numColumns
+                                + " at [" + x + "," + y + "]" + (wrapEnabled ? " wrapped" : ""));
+                    }
+                }
+            }
+        }
+    }
+
+    /** The branching path used by stepActive matches the reference. */
+    private static void testUnpadded() {
+        Random random = new Random(5);
+        for (boolean wrapEnabled : new boolean[] {false, true}) {
+            for (int numRows : SIZES) {
+                for (int numColumns : SIZES) {
+                    PackedGrid grid = randomGrid(numRows, numColumns, random);
+                    long[] next = new long[grid.getWords().length];
+                    grid.stepRowsUnpadded(grid.getWords(), next, 0, numRows, Rule.CONWAY, wrapEnabled);
+                    CellMatrix reference = referenceStep(new CellMatrix(grid), Rule.CONWAY, Topology.of(wrapEnabled));
+                    check(Arrays.equals(next, reference.getGrid().getWords()), "unpadded " + numRows + "x"
+                            + numColumns + (wrapEnabled ? " wrapped" : ""));
+                }
+            }
+        }
+    }
+
+    /** Returns the cell at [x,y], which may lie one beyond an
+     *  edge, as the reference joins it, false if dead.
+     */
+    private static boolean joined(PackedGrid grid, int x, int y, Topology topology) {
+        int numRows = grid.getNumRows();
+        int numColumns = grid.getNumColumns();
+        if (y < 0 || y >= numColumns) {
+            if (!topology.wrapsColumns()) {
+                return false;
+            }
+            y = Math.floorMod(y, numColumns);
+        }
+        if (x < 0 || x >= numRows) {
+            if (!topology.wrapsRows()) {
+                return false;
+            }
+            x = Math.floorMod(x, numRows);
+            if (topology.reversesRows()) {
+                y = numColumns - 1 - y;
+            }
+        }
+        return grid.get(x, y);
+    }
+
+    /** Steps cell by cell with CellMatrix.numLivingNeighbors. */
+    private static CellMatrix referenceStep(CellMatrix matrix, Rule rule, Topology topology) {
+        CellMatrix next = new CellMatrix(matrix.getNumRows(), matrix.getNumColumns());
+        for (int x = 0; x < matrix.getNumRows(); x++) {
+            for (int y = 0; y < matrix.getNumColumns(); y++) {
+                int numLiving = matrix.numLivingNeighbors(x, y, topology);
+                if (matrix.isAlive(x, y) ? rule.survives(numLiving) : rule.isBorn(numLiving)) {
+                    next.revive(x, y);
+                }
+            }
+        }
+        return next;
+    }
+
+    /** Returns a grid with about 40% of cells alive. */
+    private static PackedGrid randomGrid(int numRows, int numColumns, Random random) {
+        PackedGrid grid = new PackedGrid(numRows, numColumns);
+        new Seeder(random.nextLong(), 0.4).fill(grid);
+        return grid;
+    }
+
+    /** Counts a check, failing the run if it did not hold. */
+    private static void check(boolean condition, String message) {
+        numChecks++;
+        if (!condition) {
+            System.out.println("FAIL " + message);
+            System.exit(1);
+        }
+    }
+}